@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+/**
+ * Storage for assets loaded by {@link ManagedAssets}. Cached values are opaque to implementations: it may be an asset
+ * or some marker object used by {@link ManagedAssets} (for example to remember that resource does not exist).
+ * <p>
+ * Implementations are responsible for closing {@link AutoCloseable} values they drop (either on eviction or on
+ * {@link #close()}) and should be thread-safe if owning {@link ManagedAssets} is used from more than one thread.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public interface AssetCache extends AutoCloseable {
+
+    /**
+     * Looks up cached value.
+     *
+     * @param resource the resource name
+     * @return the cached value or {@code null} if there is no such entry
+     */
+    Object get(String resource);
+
+    /**
+     * Stores value in cache replacing existing entry (if any).
+     *
+     * @param resource the resource name
+     * @param value    the value to store
+     */
+    void put(String resource, Object value);
+
+    /**
+     * Drops entry closing value if it implements {@link AutoCloseable}.
+     *
+     * @param resource the resource name
+     * @return {@code true} if there was such entry
+     */
+    boolean remove(String resource);
+
+    /**
+     * Drops entry (closing value like {@link #remove(String)}) only if it still holds supplied value. Default
+     * implementation is not atomic.
+     *
+     * @param resource the resource name
+     * @param value    the expected value
+     * @return {@code true} if entry was dropped
+     */
+    default boolean remove(String resource, Object value) {
+        return get(resource) == value && remove(resource);
+    }
+
+    /**
+     * Drops entry like {@link #remove(String)}, but value is not closed until returned pin is closed, so it may still be
+     * used (for example until its replacement is loaded). Default implementation relies on {@link #pin(String)}.
+     *
+     * @param resource the resource name
+     * @return the pin of dropped value or {@code null} if there was no such entry
+     * @throws UnsupportedOperationException if cache can not pin entries
+     */
+    default Pin detach(String resource) throws UnsupportedOperationException {
+        final Pin pin = pin(resource);
+        if (pin != null) {
+            remove(resource, pin.value());
+        }
+        return pin;
+    }
+
+    /**
+     * Pins cached entry so it is not evicted and its value is not closed (even if entry is removed or replaced) until
+     * returned pin is closed. Required by {@link ManagedAssets#acquire(String, Class)} and
+     * {@link ManagedAssets#reload(String)}, default implementation does not support pinning.
+     *
+     * @param resource the resource name
+     * @return the pin or {@code null} if there is no such entry
+     * @throws UnsupportedOperationException if cache can not pin entries
+     */
+    default Pin pin(String resource) throws UnsupportedOperationException {
+        throw new UnsupportedOperationException(getClass().getName() + " can not pin entries");
+    }
+
+    /**
+     * Drops all entries closing values implementing {@link AutoCloseable}.
+     */
+    @Override
+    void close();
+
+    /**
+     * Pinned cache entry, see {@link #pin(String)}.
+     */
+    interface Pin extends AutoCloseable {
+
+        /**
+         * @return the pinned value
+         */
+        Object value();
+
+        /**
+         * Releases entry. Subsequent calls do nothing.
+         */
+        @Override
+        void close();
+    }
+}
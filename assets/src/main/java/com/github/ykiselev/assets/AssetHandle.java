@@ -0,0 +1,119 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reference to asset acquired with {@link ManagedAssets#acquire(String, Class)}. Each handle holds one reference, asset
+ * is freed when the last handle is closed. Handle may be shared between owners with {@link #retain()}, each copy
+ * should be closed by its owner. Counting is lock-free.
+ *
+ * @param <T> the type of asset
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class AssetHandle<T> implements AutoCloseable {
+
+    private final T value;
+
+    private final Counter counter;
+
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    AssetHandle(T value, Counter counter) {
+        this.value = value;
+        this.counter = counter;
+    }
+
+    /**
+     * @return the asset
+     * @throws IllegalStateException if handle is already closed
+     */
+    public T get() throws IllegalStateException {
+        if (released.get()) {
+            throw new IllegalStateException("Handle is closed!");
+        }
+        return value;
+    }
+
+    /**
+     * Acquires another reference to the same asset.
+     *
+     * @return the new handle
+     * @throws IllegalStateException if handle is already closed
+     */
+    public AssetHandle<T> retain() throws IllegalStateException {
+        if (released.get() || !counter.retain()) {
+            throw new IllegalStateException("Handle is closed!");
+        }
+        return new AssetHandle<>(value, counter);
+    }
+
+    /**
+     * @return the current number of references to asset
+     */
+    public int references() {
+        return counter.get();
+    }
+
+    /**
+     * Releases reference, asset is freed if it was the last one. Subsequent calls have no effect.
+     */
+    @Override
+    public void close() {
+        if (released.compareAndSet(false, true)) {
+            counter.release();
+        }
+    }
+
+    /**
+     * Lock-free reference counter. Starts with one reference, once it drops to zero counter is dead and can not be
+     * retained any more.
+     */
+    abstract static class Counter {
+
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        final boolean retain() {
+            for (; ; ) {
+                final int refs = references.get();
+                if (refs == 0) {
+                    return false;
+                }
+                if (references.compareAndSet(refs, refs + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        final void release() {
+            if (references.decrementAndGet() == 0) {
+                onReleased();
+            }
+        }
+
+        final int get() {
+            return references.get();
+        }
+
+        /**
+         * Called once when the last reference is released.
+         */
+        abstract void onReleased();
+    }
+}
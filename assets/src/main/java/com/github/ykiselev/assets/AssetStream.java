@@ -0,0 +1,218 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Asset read incrementally by {@link StreamingAsset} in background. Consumer may start using first chunks while the rest
+ * of asset is still being read. Chunks are passed through bounded queue: when consumer falls behind reader is blocked
+ * until there is free space, so at most {@code capacity + 2} chunks (queued ones, one being read and one being
+ * consumed) are held in memory no matter how large asset is.
+ * <p>
+ * Failure of reader is re-thrown to consumer (as {@link ResourceException}) after chunks read before failure.
+ * Closing stream before end stops reader (it fails on next chunk) and closes channel.
+ * <p>
+ * Instances are supposed to be consumed by single thread.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class AssetStream<C> implements Iterator<C>, AutoCloseable {
+
+    /**
+     * Marker of successful end of stream.
+     */
+    private static final Object END = new Object();
+
+    private final String resource;
+
+    private final BlockingQueue<Object> queue;
+
+    private volatile boolean closed;
+
+    /**
+     * Next element taken from queue (chunk, {@link #END} or {@link Failure}) or {@code null} if not taken yet.
+     */
+    private Object next;
+
+    private AssetStream(String resource, int capacity) {
+        this.resource = requireNonNull(resource);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * Opens resource and starts reading it in background. Resource is opened in calling thread so missing resources
+     * are reported immediately.
+     *
+     * @param resources the resources to open asset with
+     * @param resource  the resource name
+     * @param reader    the reader to read chunks with
+     * @param assets    the instance of asset manager to pass to reader
+     * @param executor  the executor to run reader
+     * @param capacity  the maximum number of chunks read ahead of consumer
+     * @param <C>       the type of chunk
+     * @return the stream or nothing if resource not found
+     * @throws ResourceException if something goes wrong during channel opening or executor rejected reader.
+     */
+    public static <C> Optional<AssetStream<C>> open(Resources resources, String resource, StreamingAsset<C> reader,
+                                                   Assets assets, Executor executor, int capacity)
+            throws ResourceException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity should be positive!");
+        }
+        requireNonNull(reader);
+        requireNonNull(assets);
+        requireNonNull(executor);
+        final Optional<ReadableByteChannel> opened = resources.open(resource);
+        if (!opened.isPresent()) {
+            return Optional.empty();
+        }
+        final ReadableByteChannel channel = opened.get();
+        final AssetStream<C> stream = new AssetStream<>(resource, capacity);
+        try {
+            executor.execute(() -> stream.run(channel, reader, assets));
+        } catch (RejectedExecutionException e) {
+            final ResourceException failure = new ResourceException("Unable to read " + resource, e);
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                failure.addSuppressed(ex);
+            }
+            throw failure;
+        }
+        return Optional.of(stream);
+    }
+
+    /**
+     * Waits for next chunk if necessary.
+     *
+     * @return {@code true} if there is next chunk or {@code false} if the whole asset was read
+     * @throws ResourceException if reader has failed or consumer was interrupted while waiting
+     */
+    @Override
+    public boolean hasNext() throws ResourceException {
+        if (next == null) {
+            if (closed) {
+                return false;
+            }
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ResourceException("Interrupted while reading " + resource, e);
+            }
+        }
+        if (next instanceof Failure) {
+            throw new ResourceException("Unable to read " + resource, ((Failure) next).cause);
+        }
+        return next != END;
+    }
+
+    /**
+     * Takes next chunk waiting for it if necessary.
+     *
+     * @return the next chunk
+     * @throws NoSuchElementException if the whole asset was read
+     * @throws ResourceException      if reader has failed or consumer was interrupted while waiting
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public C next() throws ResourceException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final C result = (C) next;
+        next = null;
+        return result;
+    }
+
+    /**
+     * Stops reading and drops chunks read ahead. Does nothing if the whole asset was already consumed.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        next = null;
+        // unblocks reader waiting for free space, it fails on next chunk
+        queue.clear();
+    }
+
+    private void run(ReadableByteChannel channel, StreamingAsset<C> reader, Assets assets) {
+        Object last = END;
+        try (ReadableByteChannel ch = channel) {
+            reader.read(ch, assets, this::push);
+        } catch (Cancelled e) {
+            return;
+        } catch (Exception | Error e) {
+            last = new Failure(e);
+        }
+        if (!closed) {
+            try {
+                put(last);
+            } catch (Cancelled e) {
+                // nobody is waiting anymore
+            }
+        }
+    }
+
+    private void push(C chunk) {
+        put(requireNonNull(chunk));
+    }
+
+    private void put(Object value) {
+        if (closed) {
+            throw new Cancelled();
+        }
+        try {
+            queue.put(value);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Cancelled();
+        }
+    }
+
+    private static final class Failure {
+
+        final Throwable cause;
+
+        Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+
+    /**
+     * Thrown from sink to stop reader when stream is closed.
+     */
+    private static final class Cancelled extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        Cancelled() {
+            super("Stream closed", null, false, false);
+        }
+    }
+}
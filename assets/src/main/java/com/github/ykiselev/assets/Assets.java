@@ -0,0 +1,192 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Asset manager. Implementations expected to delegate actual work of loading asset to appropriate instance of class implementing {@link ReadableAsset}.
+ * <p>
+ * Created by Y.Kiselev on 15.05.2016.
+ */
+public interface Assets extends ReadableAssets {
+
+    /**
+     * Loads asset using one of registered {@link ReadableAsset}'s
+     *
+     * @param resource the resource name
+     * @param clazz    the class of resource or {@code null} if not known
+     * @param <T>      the type of resource
+     * @return the requested resource
+     * @throws ResourceException if resource not found or something goes wrong during the resource loading process.
+     */
+    default <T> T load(String resource, Class<T> clazz) throws ResourceException {
+        return tryLoad(resource, clazz)
+                .orElseThrow(() -> new ResourceException("Unable to load " + resource));
+    }
+
+    /**
+     * Loads asset using one of registered {@link ReadableAsset}'s
+     *
+     * @param resource the resource name
+     * @param clazz    the class of resource or {@code null} if not known
+     * @param <T>      the type of resource
+     * @return the requested resource or nothing
+     * @throws ResourceException if something goes wrong during the resource loading process.
+     */
+    default <T> Optional<T> tryLoad(String resource, Class<T> clazz) throws ResourceException {
+        return tryLoad(resource, clazz, this);
+    }
+
+    /**
+     * Loads asset using one of registered {@link ReadableAsset}'s
+     *
+     * @param resource the resource name
+     * @param clazz    the class of resource or {@code null} if not known
+     * @param assets   the asset manager to pass to {@link ReadableAsset#read(java.nio.channels.ReadableByteChannel, Assets)} to load sub-assets
+     * @param <T>      the type of resource
+     * @return the requested resource or nothing
+     * @throws ResourceException if something goes wrong during the resource loading process.
+     */
+    <T> Optional<T> tryLoad(String resource, Class<T> clazz, Assets assets) throws ResourceException;
+
+    /**
+     * Loads asset asynchronously. Default implementation loads asset in the calling thread and returns already completed
+     * future, implementations backed by an executor (like {@link ManagedAssets}) are expected to override this method.
+     *
+     * @param resource the resource name
+     * @param clazz    the class of resource or {@code null} if not known
+     * @param <T>      the type of resource
+     * @return the future of requested resource or nothing
+     */
+    default <T> CompletableFuture<Optional<T>> tryLoadAsync(String resource, Class<T> clazz) {
+        final CompletableFuture<Optional<T>> result = new CompletableFuture<>();
+        try {
+            result.complete(tryLoad(resource, clazz));
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Loads asset asynchronously. Returned future is completed exceptionally with {@link ResourceException} if resource
+     * not found.
+     *
+     * @param resource the resource name
+     * @param clazz    the class of resource or {@code null} if not known
+     * @param <T>      the type of resource
+     * @return the future of requested resource
+     */
+    default <T> CompletableFuture<T> loadAsync(String resource, Class<T> clazz) {
+        return tryLoadAsync(resource, clazz)
+                .thenApply(opt -> opt.orElseThrow(() -> new ResourceException("Unable to load " + resource)));
+    }
+
+    /**
+     * Loads several assets of the same type. All loads are started through {@link #loadAsync(String, Class)} before
+     * waiting for any of them, so with implementation backed by an executor (like {@link ManagedAssets}) sibling
+     * sub-assets are loaded in parallel and whole call takes about as long as the slowest load. Note that waiting thread
+     * is blocked, so bounded executor used to load parent asset should have enough threads (or compensate blocked ones,
+     * like {@link java.util.concurrent.ForkJoinPool} does) to run children.
+     *
+     * @param resources the resource names
+     * @param clazz     the class of resources or {@code null} if not known
+     * @param <T>       the type of resources
+     * @return the requested resources in order of names
+     * @throws ResourceException if any of resources not found or something goes wrong during the loading process.
+     */
+    default <T> List<T> loadAll(Collection<String> resources, Class<T> clazz) throws ResourceException {
+        final List<CompletableFuture<T>> futures = new ArrayList<>(resources.size());
+        for (String resource : resources) {
+            futures.add(loadAsync(resource, clazz));
+        }
+        final List<T> result = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> future : futures) {
+            try {
+                result.add(future.join());
+            } catch (CompletionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new ResourceException(cause);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Starts batch load of resources (see {@link Preload}). Assets are loaded with {@link #tryLoadAsync(String, Class)},
+     * so with default implementation all of them are loaded by calling thread before this method returns.
+     *
+     * @param manifest    the names of resources with classes (or {@code null} if not known), iteration order of map is
+     *                    the order of loads
+     * @param parallelism the maximum number of resources being loaded at the same time
+     * @param progress    the progress listener
+     * @return the handle to track or cancel batch load
+     */
+    default Preload preload(Map<String, Class<?>> manifest, int parallelism, Preload.Progress progress) {
+        return new Preload(this, manifest, parallelism, progress).start();
+    }
+
+    /**
+     * Starts batch load of resources without progress reporting.
+     *
+     * @param manifest    the names of resources with classes (or {@code null} if not known)
+     * @param parallelism the maximum number of resources being loaded at the same time
+     * @return the handle to track or cancel batch load
+     * @see #preload(Map, int, Preload.Progress)
+     */
+    default Preload preload(Map<String, Class<?>> manifest, int parallelism) {
+        return preload(manifest, parallelism, Preload.Progress.NONE);
+    }
+
+    /**
+     * Convenient method taking only one string argument as a resource name.
+     *
+     * @param resource the resource name.
+     * @param <T>      the type of resource
+     * @return the requested resource
+     * @throws ResourceException if something goes wrong during the resource loading process.
+     */
+    default <T> T load(String resource) throws ResourceException {
+        return load(resource, null);
+    }
+
+    /**
+     * Convenient method taking only one string argument as a resource name.
+     *
+     * @param resource the resource name
+     * @param <T>      the type of resource
+     * @return the requested resource or nothing
+     * @throws ResourceException if something goes wrong during the resource loading process.
+     */
+    default <T> Optional<T> tryLoad(String resource) throws ResourceException {
+        return tryLoad(resource, null);
+    }
+
+}
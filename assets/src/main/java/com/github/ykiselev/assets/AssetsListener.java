@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+/**
+ * Receives notifications about asset loading (for metrics, logging, etc). All methods do nothing by default,
+ * implementations are called synchronously from loading threads so they should be fast and thread-safe.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ * @see AssetsStatistics
+ */
+public interface AssetsListener {
+
+    /**
+     * Listener which ignores everything.
+     */
+    AssetsListener NO_OP = new AssetsListener() {
+    };
+
+    /**
+     * Called by {@link ManagedAssets} when requested asset is found in cache.
+     *
+     * @param resource the resource name
+     */
+    default void onCacheHit(String resource) {
+    }
+
+    /**
+     * Called by {@link ManagedAssets} when requested asset is not found in cache.
+     *
+     * @param resource the resource name
+     */
+    default void onCacheMiss(String resource) {
+    }
+
+    /**
+     * Called by {@link BoundedAssetCache} when entry is evicted.
+     *
+     * @param resource the resource name
+     */
+    default void onEviction(String resource) {
+    }
+
+    /**
+     * Called by {@link ManagedAssets} before asset is loaded by delegate.
+     *
+     * @param resource the resource name
+     */
+    default void onLoadStarted(String resource) {
+    }
+
+    /**
+     * Called by {@link ManagedAssets} when asset is loaded (or found missing) by delegate.
+     *
+     * @param resource the resource name
+     * @param clazz    the asset class (requested one or the class of loaded asset if not specified), may be {@code null}
+     * @param nanos    the time spent loading
+     */
+    default void onLoadFinished(String resource, Class<?> clazz, long nanos) {
+    }
+
+    /**
+     * Called by {@link ManagedAssets} when delegate failed to load asset.
+     *
+     * @param resource the resource name
+     * @param clazz    the requested asset class, may be {@code null}
+     * @param nanos    the time spent loading
+     * @param error    the failure
+     */
+    default void onLoadFailed(String resource, Class<?> clazz, long nanos, Throwable error) {
+    }
+
+    /**
+     * Called by {@link HotReloader} when re-load of changed resource fails (including failures of subscribers and of
+     * closing old instances, see {@link ManagedAssets#reload(String)}).
+     *
+     * @param resource the resource name
+     * @param error    the failure
+     */
+    default void onReloadFailed(String resource, Throwable error) {
+    }
+
+    /**
+     * Called by {@link SimpleAssets} when resource channel is closed or mapped.
+     *
+     * @param resource the resource name
+     * @param bytes    the number of bytes read from channel
+     */
+    default void onBytesRead(String resource, long bytes) {
+    }
+
+    /**
+     * Called by {@link CompositeReadableAssets} after resolution.
+     *
+     * @param resource the resource name
+     * @param clazz    the requested asset class
+     * @param depth    the number of delegates consulted
+     */
+    default void onResolve(String resource, Class<?> clazz, int depth) {
+    }
+}
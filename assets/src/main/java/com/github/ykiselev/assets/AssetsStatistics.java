@@ -0,0 +1,264 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free {@link AssetsListener} collecting counters and latency histograms, cheap enough to stay enabled in
+ * production. Note that per-resource histograms are kept for each loaded resource.
+ * <pre>
+ * AssetsStatistics statistics = new AssetsStatistics();
+ * ManagedAssets assets = new ManagedAssets(
+ *      new SimpleAssets(resources, new CompositeReadableAssets(statistics, readers), statistics),
+ *      new BoundedAssetCache(1000, Weigher.unit(), statistics),
+ *      executor,
+ *      statistics
+ * );
+ * </pre>
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class AssetsStatistics implements AssetsListener {
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Single counter (not a difference of sums) so readers never see negative value.
+     */
+    private final AtomicLong inFlight = new AtomicLong();
+
+    private final LongAdder finished = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder bytesRead = new LongAdder();
+
+    private final Histogram latency = new Histogram();
+
+    private final Histogram resolveDepth = new Histogram();
+
+    private final ConcurrentMap<String, Histogram> latencyByResource = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Class<?>, Histogram> latencyByType = new ConcurrentHashMap<>();
+
+    @Override
+    public void onCacheHit(String resource) {
+        hits.increment();
+    }
+
+    @Override
+    public void onCacheMiss(String resource) {
+        misses.increment();
+    }
+
+    @Override
+    public void onEviction(String resource) {
+        evictions.increment();
+    }
+
+    @Override
+    public void onLoadStarted(String resource) {
+        inFlight.incrementAndGet();
+    }
+
+    @Override
+    public void onLoadFinished(String resource, Class<?> clazz, long nanos) {
+        finished.increment();
+        inFlight.decrementAndGet();
+        record(resource, clazz, nanos);
+    }
+
+    @Override
+    public void onLoadFailed(String resource, Class<?> clazz, long nanos, Throwable error) {
+        failed.increment();
+        inFlight.decrementAndGet();
+        record(resource, clazz, nanos);
+    }
+
+    @Override
+    public void onBytesRead(String resource, long bytes) {
+        bytesRead.add(bytes);
+    }
+
+    @Override
+    public void onResolve(String resource, Class<?> clazz, int depth) {
+        resolveDepth.record(depth);
+    }
+
+    private void record(String resource, Class<?> clazz, long nanos) {
+        latency.record(nanos);
+        histogram(latencyByResource, resource).record(nanos);
+        if (clazz != null) {
+            histogram(latencyByType, clazz).record(nanos);
+        }
+    }
+
+    private static <K> Histogram histogram(ConcurrentMap<K, Histogram> map, K key) {
+        final Histogram result = map.get(key);
+        if (result != null) {
+            return result;
+        }
+        return map.computeIfAbsent(key, k -> new Histogram());
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the number of successful loads (including those which found no resource)
+     */
+    public long loads() {
+        return finished.sum();
+    }
+
+    public long failures() {
+        return failed.sum();
+    }
+
+    /**
+     * @return the number of loads currently in progress
+     */
+    public long inFlight() {
+        return inFlight.get();
+    }
+
+    public long bytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * @return the histogram of load latencies (in nanoseconds) of all resources
+     */
+    public Histogram latency() {
+        return latency;
+    }
+
+    /**
+     * @return the histogram of number of delegates consulted by {@link CompositeReadableAssets}
+     */
+    public Histogram resolveDepth() {
+        return resolveDepth;
+    }
+
+    /**
+     * @return the read-only view of latency histograms by resource name
+     */
+    public Map<String, Histogram> latencyByResource() {
+        return Collections.unmodifiableMap(latencyByResource);
+    }
+
+    /**
+     * @return the read-only view of latency histograms by asset class
+     */
+    public Map<Class<?>, Histogram> latencyByType() {
+        return Collections.unmodifiableMap(latencyByType);
+    }
+
+    /**
+     * Lock-free histogram of non-negative values with power of two buckets: bucket {@code i} counts values from
+     * {@code 2^(i-1)} (inclusive) to {@code 2^i} (exclusive), bucket 0 counts zeroes.
+     */
+    public static final class Histogram {
+
+        private static final int BUCKETS = 64;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        private final LongAdder sum = new LongAdder();
+
+        /**
+         * @param value the value to record (negative values are treated as zero)
+         */
+        public void record(long value) {
+            final long v = Math.max(0, value);
+            buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(v));
+            sum.add(v);
+        }
+
+        public long count() {
+            long result = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                result += buckets.get(i);
+            }
+            return result;
+        }
+
+        public long sum() {
+            return sum.sum();
+        }
+
+        public double mean() {
+            final long count = count();
+            return count == 0 ? 0 : (double) sum() / count;
+        }
+
+        /**
+         * @param percentile the percentile (0..100)
+         * @return the upper bound of bucket containing requested percentile
+         */
+        public long percentile(double percentile) {
+            final long[] snapshot = buckets();
+            long total = 0;
+            for (long c : snapshot) {
+                total += c;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            final long rank = (long) Math.ceil(total * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= Math.max(1, rank)) {
+                    return i == 0 ? 0 : (i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1);
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * @return the snapshot of bucket counters
+         */
+        public long[] buckets() {
+            final long[] result = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                result[i] = buckets.get(i);
+            }
+            return result;
+        }
+    }
+}
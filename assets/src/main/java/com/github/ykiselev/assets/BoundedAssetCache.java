@@ -0,0 +1,406 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Thread-safe {@link AssetCache} limited by total weight of entries. Lookups take no locks, eviction uses CLOCK
+ * (second chance) policy which approximates LRU: entries accessed since last sweep are kept, others are evicted in
+ * insertion order.
+ * <p>
+ * Each entry is reference counted: cache itself holds one reference and each {@link Lease} obtained through
+ * {@link #acquire(String)} holds another one. Leased entries are never evicted. Evicted, removed, replaced and remaining
+ * on {@link #close()} {@link AutoCloseable} values are closed (outside of any lock) when last reference is released, so
+ * leased asset is never closed. Failures to close dropped values are ignored, failures to close values on
+ * {@link #close()} are re-thrown after all values are released.
+ * <p>
+ * Users of values returned by {@link #get(String)} are not tracked. If such values may still be used after eviction
+ * (for example assets returned by plain {@link ManagedAssets#load(String, Class)}), create cache with
+ * {@code closeEvicted} set to {@code false}: evicted values are left to garbage collector then, while assets acquired
+ * through {@link AssetHandle} are still closed when the last handle is closed.
+ * <p>
+ * Value heavier than maximum weight of cache is stored too (it would be closed on removal like any other value), but
+ * it evicts all other entries which are not leased and is evicted itself by the next {@link #put(String, Object)}.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class BoundedAssetCache implements AssetCache {
+
+    private final long maximumWeight;
+
+    private final Weigher weigher;
+
+    private final AssetsListener listener;
+
+    private final boolean closeEvicted;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Object lock = new Object();
+
+    /**
+     * Sentinel of circular list of entries in insertion order (guarded by lock).
+     */
+    private final Entry head = new Entry(null, null, 0);
+
+    /**
+     * Total weight of entries (guarded by lock).
+     */
+    private long weight;
+
+    /**
+     * Number of entries (guarded by lock).
+     */
+    private int count;
+
+    /**
+     * @param maximumWeight the maximum total weight of entries
+     * @param weigher       the weigher to calculate weight of each value
+     * @param listener      the listener to notify about evictions
+     * @param closeEvicted  whether to close evicted values (once they are not leased)
+     */
+    public BoundedAssetCache(long maximumWeight, Weigher weigher, AssetsListener listener, boolean closeEvicted) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("Maximum weight should be non-negative!");
+        }
+        this.maximumWeight = maximumWeight;
+        this.weigher = requireNonNull(weigher);
+        this.listener = requireNonNull(listener);
+        this.closeEvicted = closeEvicted;
+        head.prev = head.next = head;
+    }
+
+    /**
+     * Creates cache which closes evicted values.
+     *
+     * @param maximumWeight the maximum total weight of entries
+     * @param weigher       the weigher to calculate weight of each value
+     * @param listener      the listener to notify about evictions
+     */
+    public BoundedAssetCache(long maximumWeight, Weigher weigher, AssetsListener listener) {
+        this(maximumWeight, weigher, listener, true);
+    }
+
+    /**
+     * @param maximumWeight the maximum total weight of entries
+     * @param weigher       the weigher to calculate weight of each value
+     */
+    public BoundedAssetCache(long maximumWeight, Weigher weigher) {
+        this(maximumWeight, weigher, AssetsListener.NO_OP);
+    }
+
+    /**
+     * Creates cache limited by number of entries.
+     *
+     * @param maximumSize the maximum number of entries
+     */
+    public BoundedAssetCache(long maximumSize) {
+        this(maximumSize, Weigher.unit());
+    }
+
+    @Override
+    public Object get(String resource) {
+        final Entry entry = entries.get(resource);
+        if (entry == null) {
+            return null;
+        }
+        // avoid writing shared cache line when entry is already marked
+        if (!entry.accessed) {
+            entry.accessed = true;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Pins cached entry so it will not be evicted and its value will not be closed (even if entry is removed or
+     * replaced) until returned lease is closed.
+     *
+     * @param resource the resource name
+     * @return the lease or {@code null} if there is no such entry
+     */
+    public Lease acquire(String resource) {
+        for (; ; ) {
+            final Entry entry = entries.get(resource);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.retain()) {
+                // eviction skips retained entries, so entry which is still mapped stays cached until lease is closed
+                if (entries.get(resource) == entry) {
+                    entry.accessed = true;
+                    return new Lease(entry);
+                }
+                release(entry);
+            }
+            // entry was dropped concurrently, re-read
+        }
+    }
+
+    @Override
+    public boolean remove(String resource, Object value) {
+        final Entry entry;
+        synchronized (lock) {
+            entry = entries.get(resource);
+            if (entry == null || entry.value != value) {
+                return false;
+            }
+            entries.remove(resource);
+            unlink(entry);
+        }
+        release(entry);
+        return true;
+    }
+
+    @Override
+    public Lease pin(String resource) {
+        return acquire(resource);
+    }
+
+    @Override
+    public Lease detach(String resource) {
+        final Entry entry;
+        synchronized (lock) {
+            entry = entries.remove(resource);
+            if (entry == null) {
+                return null;
+            }
+            unlink(entry);
+        }
+        // reference held by cache is handed over to lease
+        return new Lease(entry);
+    }
+
+    @Override
+    public void put(String resource, Object value) {
+        final long w = weigher.weigh(value);
+        if (w < 0) {
+            throw new IllegalArgumentException("Negative weight of " + resource + ": " + w);
+        }
+        final Entry entry = new Entry(resource, value, w);
+        // new entry survives at least one sweep so caller has a chance to use it
+        entry.accessed = true;
+        final Entry previous;
+        final List<Entry> evicted = new ArrayList<>();
+        synchronized (lock) {
+            previous = entries.put(resource, entry);
+            if (previous != null) {
+                unlink(previous);
+            }
+            link(entry);
+            evict(entry, evicted);
+        }
+        if (previous != null) {
+            release(previous);
+        }
+        for (Entry e : evicted) {
+            release(e);
+            listener.onEviction(e.key);
+        }
+    }
+
+    @Override
+    public boolean remove(String resource) {
+        final Entry entry;
+        synchronized (lock) {
+            entry = entries.remove(resource);
+            if (entry == null) {
+                return false;
+            }
+            unlink(entry);
+        }
+        release(entry);
+        return true;
+    }
+
+    @Override
+    public void close() {
+        final List<Entry> dropped = new ArrayList<>();
+        synchronized (lock) {
+            Entry e = head.next;
+            while (e != head) {
+                final Entry next = e.next;
+                entries.remove(e.key, e);
+                unlink(e);
+                dropped.add(e);
+                e = next;
+            }
+        }
+        IllegalStateException failure = null;
+        for (Entry entry : dropped) {
+            try {
+                entry.release();
+            } catch (IllegalStateException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * @return the current total weight of entries
+     */
+    public long weight() {
+        synchronized (lock) {
+            return weight;
+        }
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Each entry is visited at most twice (the first visit takes its second chance), so sweep ends even if remaining
+     * entries are leased or the only one left is heavier than cache.
+     */
+    private void evict(Entry added, List<Entry> dropped) {
+        for (int visits = 2 * count; weight > maximumWeight && visits > 0; visits--) {
+            final Entry candidate = head.next;
+            unlink(candidate);
+            if (candidate.accessed || candidate == added || candidate.isLeased()) {
+                // second chance
+                candidate.accessed = false;
+                link(candidate);
+                continue;
+            }
+            entries.remove(candidate.key, candidate);
+            candidate.abandoned = !closeEvicted;
+            dropped.add(candidate);
+        }
+    }
+
+    private void link(Entry entry) {
+        entry.prev = head.prev;
+        entry.next = head;
+        head.prev.next = entry;
+        head.prev = entry;
+        weight += entry.weight;
+        count++;
+    }
+
+    private void unlink(Entry entry) {
+        entry.prev.next = entry.next;
+        entry.next.prev = entry.prev;
+        entry.prev = entry.next = null;
+        weight -= entry.weight;
+        count--;
+    }
+
+    private static void release(Entry entry) {
+        try {
+            entry.release();
+        } catch (IllegalStateException e) {
+            // nothing we can do here
+        }
+    }
+
+    /**
+     * Pinned cache entry. Closing lease releases the reference and closes value if entry was already removed or
+     * replaced.
+     */
+    public static final class Lease implements AssetCache.Pin {
+
+        private final Entry entry;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Lease(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object value() {
+            return entry.value;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                entry.release();
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        final String key;
+
+        final Object value;
+
+        final long weight;
+
+        /**
+         * Starts with one reference held by cache.
+         */
+        final AtomicInteger references = new AtomicInteger(1);
+
+        volatile boolean accessed;
+
+        /**
+         * Set before cache which does not close evicted values releases its reference to evicted entry, value of such
+         * entry is never closed.
+         */
+        volatile boolean abandoned;
+
+        Entry prev, next;
+
+        Entry(String key, Object value, long weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+
+        boolean retain() {
+            for (; ; ) {
+                final int refs = references.get();
+                if (refs == 0) {
+                    return false;
+                }
+                if (references.compareAndSet(refs, refs + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        boolean isLeased() {
+            return references.get() > 1;
+        }
+
+        void release() {
+            if (references.decrementAndGet() == 0 && !abandoned) {
+                Closeables.close(value);
+            }
+        }
+    }
+}
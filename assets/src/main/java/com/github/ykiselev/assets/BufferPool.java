@@ -0,0 +1,363 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Pool of reusable direct {@link ByteBuffer}s for {@link ReadableAsset} implementations, so loading many assets does not
+ * allocate (and later collect) new buffers for each of them. Each thread has its own small set of free buffers, so
+ * acquiring and releasing buffer takes no locks. Buffer is returned to pool of thread which has released it.
+ * <p>
+ * Buffers which are acquired by one thread and released by another (like content passed between stages of
+ * {@link LoadScheduler}) would never be reused that way, use {@link #concurrent(int, int)} pool for them: its free buffers
+ * are shared by all threads and guarded by lock.
+ * <p>
+ * Buffers are acquired with try-with-resources:
+ * <pre>
+ * try (BufferPool.Buffer buffer = pool.readFully(channel)) {
+ *     parse(buffer.buffer());
+ * }
+ * </pre>
+ * Nested acquisitions (reader loading sub-asset in the same thread) receive different buffers. Requests larger than
+ * maximum pooled capacity are served with heap buffers which are not retained.
+ * <p>
+ * Length of resource is taken from channel ({@link SizedChannel} or {@link SeekableByteChannel}) when known, so buffer is
+ * sized once, otherwise it grows while reading.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class BufferPool {
+
+    private static final int MIN_CAPACITY = 4 * 1024;
+
+    private static final BufferPool SHARED = new BufferPool(1024 * 1024, 4);
+
+    private final int maxCapacity;
+
+    private final int maxBuffers;
+
+    /**
+     * Free buffers of each thread or {@code null} if free buffers are shared.
+     */
+    private final ThreadLocal<ArrayDeque<Buffer>> free;
+
+    /**
+     * Free buffers shared by all threads (guarded by itself) or {@code null} if each thread has its own.
+     */
+    private final ArrayDeque<Buffer> shared;
+
+    private BufferPool(int maxCapacity, int maxBuffers, boolean perThread) {
+        if (maxCapacity < 1) {
+            throw new IllegalArgumentException("Maximum capacity should be positive!");
+        }
+        if (maxBuffers < 0) {
+            throw new IllegalArgumentException("Number of buffers should be non-negative!");
+        }
+        this.maxCapacity = maxCapacity;
+        this.maxBuffers = maxBuffers;
+        this.free = perThread ? ThreadLocal.withInitial(ArrayDeque::new) : null;
+        this.shared = perThread ? null : new ArrayDeque<>();
+    }
+
+    /**
+     * @param maxCapacity      the maximum capacity of pooled buffer
+     * @param buffersPerThread the maximum number of free buffers kept for each thread
+     */
+    public BufferPool(int maxCapacity, int buffersPerThread) {
+        this(maxCapacity, buffersPerThread, true);
+    }
+
+    /**
+     * Creates pool which keeps free buffers for all threads together, so buffer may be released by any thread and then
+     * reused by any other one. Acquiring and releasing buffer takes a lock.
+     *
+     * @param maxCapacity the maximum capacity of pooled buffer
+     * @param maxBuffers  the maximum number of free buffers kept
+     * @return the new pool
+     */
+    public static BufferPool concurrent(int maxCapacity, int maxBuffers) {
+        return new BufferPool(maxCapacity, maxBuffers, false);
+    }
+
+    /**
+     * @return the pool shared by all readers (pools buffers up to 1 MB, up to 4 buffers per thread)
+     */
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Acquires cleared buffer in big-endian order with limit set to requested capacity.
+     *
+     * @param capacity the required capacity
+     * @return the buffer to close after use
+     */
+    public Buffer acquire(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity should be non-negative!");
+        }
+        if (capacity > maxCapacity) {
+            return new Buffer(null, ByteBuffer.allocate(capacity)).reset(capacity);
+        }
+        final Buffer pooled;
+        if (shared == null) {
+            pooled = poll(free.get(), capacity);
+        } else {
+            synchronized (shared) {
+                pooled = poll(shared, capacity);
+            }
+        }
+        if (pooled != null) {
+            return pooled.reset(capacity);
+        }
+        return new Buffer(this, ByteBuffer.allocateDirect(allocationSize(capacity))).reset(capacity);
+    }
+
+    /**
+     * Takes free buffer which is large enough.
+     *
+     * @return the buffer or {@code null} if there is no such buffer
+     */
+    private Buffer poll(ArrayDeque<Buffer> buffers, int capacity) {
+        final Iterator<Buffer> it = buffers.iterator();
+        while (it.hasNext()) {
+            final Buffer buffer = it.next();
+            if (buffer.buffer.capacity() >= capacity) {
+                it.remove();
+                return buffer;
+            }
+        }
+        // least recently used buffer (which is too small) is dropped to make room for bigger one
+        if (!buffers.isEmpty() && buffers.size() >= maxBuffers) {
+            buffers.pollLast();
+        }
+        return null;
+    }
+
+    /**
+     * Reads the rest of channel into pooled buffer. Channel is not closed. If length of resource is known only that many
+     * bytes are read.
+     *
+     * @param channel the channel to read
+     * @return the buffer with content (flipped, so position is zero and limit is the length of content)
+     * @throws ResourceException if an I/O error occurs
+     */
+    public Buffer readFully(ReadableByteChannel channel) throws ResourceException {
+        Buffer result = null;
+        try {
+            final long length = remaining(channel);
+            if (length > Integer.MAX_VALUE) {
+                throw new ResourceException("Resource is too large: " + length);
+            }
+            if (length >= 0) {
+                result = acquire((int) length);
+                readFully(channel, result.buffer);
+            } else {
+                result = acquire(MIN_CAPACITY);
+                while (readFully(channel, result.buffer) >= 0 && !result.buffer.hasRemaining()) {
+                    final int capacity = result.buffer.limit();
+                    if (capacity > Integer.MAX_VALUE / 2) {
+                        throw new ResourceException("Resource is too large!");
+                    }
+                    final Buffer bigger = acquire(capacity * 2);
+                    result.buffer.flip();
+                    bigger.buffer.put(result.buffer);
+                    result.close();
+                    result = bigger;
+                }
+            }
+            result.buffer.flip();
+            return result;
+        } catch (IOException e) {
+            close(result);
+            throw new ResourceException(e);
+        } catch (RuntimeException e) {
+            close(result);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads channel until buffer is full or end of stream is reached.
+     *
+     * @param channel the channel to read
+     * @param buffer  the buffer to read into
+     * @return the number of bytes read or {@code -1} if channel was already at the end of stream
+     * @throws IOException if an I/O error occurs
+     */
+    public static int readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer);
+            if (read < 0) {
+                return total > 0 ? total : -1;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    /**
+     * @param channel the channel
+     * @return the number of bytes left to read or {@code -1} if not known
+     * @throws IOException if an I/O error occurs
+     */
+    public static long remaining(ReadableByteChannel channel) throws IOException {
+        if (channel instanceof SizedChannel) {
+            return ((SizedChannel) channel).remaining();
+        }
+        if (channel instanceof SeekableByteChannel) {
+            final SeekableByteChannel sc = (SeekableByteChannel) channel;
+            return sc.size() - sc.position();
+        }
+        return -1;
+    }
+
+    private static void close(Buffer buffer) {
+        if (buffer != null) {
+            buffer.close();
+        }
+    }
+
+    private int allocationSize(int capacity) {
+        if (capacity <= MIN_CAPACITY) {
+            return Math.min(MIN_CAPACITY, maxCapacity);
+        }
+        final int rounded = Integer.highestOneBit(capacity - 1) << 1;
+        return rounded > 0 ? Math.min(rounded, maxCapacity) : capacity;
+    }
+
+    private void release(Buffer buffer) {
+        if (shared == null) {
+            push(free.get(), buffer);
+        } else {
+            synchronized (shared) {
+                push(shared, buffer);
+            }
+        }
+    }
+
+    private void push(ArrayDeque<Buffer> buffers, Buffer buffer) {
+        if (buffers.size() < maxBuffers) {
+            buffers.push(buffer);
+        }
+    }
+
+    /**
+     * Buffer acquired from pool. Closing it returns buffer to pool, so buffer should not be used afterwards.
+     */
+    public static final class Buffer implements AutoCloseable {
+
+        private final BufferPool pool;
+
+        private final ByteBuffer buffer;
+
+        private boolean acquired;
+
+        Buffer(BufferPool pool, ByteBuffer buffer) {
+            this.pool = pool;
+            this.buffer = buffer;
+        }
+
+        Buffer reset(int capacity) {
+            buffer.clear()
+                    .limit(capacity);
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            acquired = true;
+            return this;
+        }
+
+        /**
+         * @return the buffer
+         * @throws IllegalStateException if buffer was released
+         */
+        public ByteBuffer buffer() {
+            if (!acquired) {
+                throw new IllegalStateException("Buffer is released!");
+            }
+            return buffer;
+        }
+
+        /**
+         * Creates channel reading content of buffer (from position to limit) to pass it to {@link ReadableAsset}.
+         * Unlike {@link ByteBufferChannel} returned channel does not implement {@link MappableChannel}, because buffer
+         * is reused once released, so reader should copy content it needs.
+         *
+         * @return the channel
+         * @throws IllegalStateException if buffer was released
+         */
+        public SizedChannel channel() {
+            final ByteBuffer content = buffer().slice();
+            return new SizedChannel() {
+
+                private boolean open = true;
+
+                @Override
+                public long remaining() throws IOException {
+                    if (!open) {
+                        throw new ClosedChannelException();
+                    }
+                    return content.remaining();
+                }
+
+                @Override
+                public int read(ByteBuffer dst) throws IOException {
+                    if (!open) {
+                        throw new ClosedChannelException();
+                    }
+                    if (!content.hasRemaining()) {
+                        return -1;
+                    }
+                    final int count = Math.min(content.remaining(), dst.remaining());
+                    final int limit = content.limit();
+                    content.limit(content.position() + count);
+                    dst.put(content);
+                    content.limit(limit);
+                    return count;
+                }
+
+                @Override
+                public boolean isOpen() {
+                    return open;
+                }
+
+                @Override
+                public void close() {
+                    open = false;
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            if (acquired) {
+                acquired = false;
+                if (pool != null) {
+                    pool.release(this);
+                }
+            }
+        }
+    }
+}
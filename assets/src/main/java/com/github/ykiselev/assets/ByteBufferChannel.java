@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+
+/**
+ * Channel reading content of {@link ByteBuffer} (usually a slice of memory-mapped file). Supplied buffer is not
+ * modified.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class ByteBufferChannel implements MappableChannel, SizedChannel {
+
+    private final ByteBuffer buffer;
+
+    private volatile boolean open = true;
+
+    /**
+     * @param buffer the buffer to read (from position to limit)
+     */
+    public ByteBufferChannel(ByteBuffer buffer) {
+        this.buffer = buffer.slice();
+    }
+
+    @Override
+    public ByteBuffer map() throws ResourceException {
+        return buffer.slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+        final int remaining = buffer.remaining();
+        if (remaining == 0) {
+            return -1;
+        }
+        final int count = Math.min(remaining, dst.remaining());
+        if (count == remaining) {
+            dst.put(buffer);
+        } else {
+            final int limit = buffer.limit();
+            buffer.limit(buffer.position() + count);
+            dst.put(buffer);
+            buffer.limit(limit);
+        }
+        return count;
+    }
+
+    @Override
+    public long remaining() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+}
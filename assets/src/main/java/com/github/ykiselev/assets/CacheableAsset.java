@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Readable asset which is able to store decoded asset in fast binary form, so {@link DiskCachedAssets} may skip
+ * expensive decoding (parsing, generating mipmaps, building indices, etc.) on next start.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public interface CacheableAsset<T> extends ReadableAsset<T> {
+
+    /**
+     * Version of binary form. Should be changed each time format written by {@link #write(Object, WritableByteChannel)}
+     * or result of {@link #read(ReadableByteChannel, Assets)} changes, so outdated cache entries are ignored.
+     *
+     * @return the version of binary form
+     */
+    int version();
+
+    /**
+     * Writes decoded asset in binary form.
+     *
+     * @param asset   the asset previously read by this instance
+     * @param channel the channel to write to
+     * @throws ResourceException if something goes wrong during serialization of asset.
+     */
+    void write(T asset, WritableByteChannel channel) throws ResourceException;
+
+    /**
+     * Reads asset from binary form written by {@link #write(Object, WritableByteChannel)}. Supplied channel implements
+     * {@link MappableChannel} so data may be used in place.
+     *
+     * @param channel the binary stream to read asset from
+     * @param assets  the instance of asset manager to load sub-assets
+     * @return de-serialized asset
+     * @throws ResourceException if something goes wrong during de-serialization of asset.
+     */
+    T readCached(ReadableByteChannel channel, Assets assets) throws ResourceException;
+}
@@ -0,0 +1,281 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.ProviderNotFoundException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.zip.ZipError;
+
+/**
+ * Resources of class path. All class path entries (folders and jar files, including jars referenced by
+ * {@code Class-Path} attribute of jar manifest) are listed once at construction and merged into single index (see
+ * {@link OverlayResources}), so lookup takes single hash lookup instead of searching class loaders and missing
+ * resources are detected without exceptions and without touching file system. Jar entries are read through zip
+ * {@link FileSystem}, folders through {@link FileSystemResources}. Like class loader, first entry containing resource
+ * wins.
+ * <p>
+ * Index is not refreshed, so resources added to class path folders after construction are not found. Zip file systems
+ * of jars are kept open until {@link #close()}.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class ClassPathResources implements ListableResources, AutoCloseable {
+
+    private final List<FileSystem> fileSystems = new ArrayList<>();
+
+    private final OverlayResources resources;
+
+    /**
+     * @param entries the class path entries (folders and jar files) in order of priority, missing entries and files
+     *                which are not readable zip archives are skipped (like class loaders do)
+     * @throws ResourceException if class path can not be indexed
+     */
+    public ClassPathResources(List<Path> entries) throws ResourceException {
+        final List<ListableResources> layers = new ArrayList<>();
+        try {
+            final Set<Path> visited = new LinkedHashSet<>();
+            final Deque<Path> pending = new ArrayDeque<>(entries);
+            while (!pending.isEmpty()) {
+                final Path entry = pending.pollFirst().toAbsolutePath().normalize();
+                if (!visited.add(entry)) {
+                    continue;
+                }
+                if (Files.isDirectory(entry)) {
+                    layers.add(new FileSystemResources(entry));
+                } else if (Files.isRegularFile(entry)) {
+                    final FileSystem fs = openJar(entry);
+                    if (fs == null) {
+                        continue;
+                    }
+                    fileSystems.add(fs);
+                    final Path root = fs.getPath("/");
+                    layers.add(new FileSystemResources(root));
+                    // entries of manifest class path follow referencing jar
+                    final List<Path> referenced = manifestClassPath(entry, root);
+                    for (int i = referenced.size() - 1; i >= 0; i--) {
+                        pending.addFirst(referenced.get(i));
+                    }
+                }
+            }
+            if (layers.isEmpty()) {
+                layers.add(EmptyResources.INSTANCE);
+            }
+            this.resources = new OverlayResources(layers.toArray(new ListableResources[0]));
+        } catch (IOException | RuntimeException e) {
+            final ResourceException failure = e instanceof ResourceException
+                    ? (ResourceException) e
+                    : new ResourceException("Unable to index class path", e);
+            closeFileSystems(failure);
+            throw failure;
+        }
+    }
+
+    /**
+     * Indexes class path of class loader and its parents (up to system class loader, so extensions are not indexed).
+     * Class path of class loaders which are not {@link URLClassLoader}s is taken from {@code java.class.path} system
+     * property.
+     *
+     * @param loader the class loader
+     * @throws ResourceException if class path can not be indexed
+     */
+    public ClassPathResources(ClassLoader loader) throws ResourceException {
+        this(classPath(loader));
+    }
+
+    /**
+     * Indexes class path of class loader of this class.
+     *
+     * @throws ResourceException if class path can not be indexed
+     */
+    public ClassPathResources() throws ResourceException {
+        this(ClassPathResources.class.getClassLoader());
+    }
+
+    @Override
+    public Optional<ReadableByteChannel> open(String resource) throws ResourceException {
+        return resources.open(resource);
+    }
+
+    @Override
+    public Optional<ResourceAttributes> attributes(String resource) throws ResourceException {
+        return resources.attributes(resource);
+    }
+
+    @Override
+    public Collection<String> names() {
+        return resources.names();
+    }
+
+    @Override
+    public boolean exists(String resource) {
+        return resources.exists(resource);
+    }
+
+    /**
+     * Closes zip file systems of jars.
+     *
+     * @throws ResourceException if any of file systems has failed to close
+     */
+    @Override
+    public void close() throws ResourceException {
+        final ResourceException failure = new ResourceException("Unable to close class path");
+        closeFileSystems(failure);
+        if (failure.getSuppressed().length > 0) {
+            throw failure;
+        }
+    }
+
+    private void closeFileSystems(Exception failure) {
+        for (FileSystem fs : fileSystems) {
+            try {
+                fs.close();
+            } catch (IOException e) {
+                failure.addSuppressed(e);
+            }
+        }
+        fileSystems.clear();
+    }
+
+    private static List<Path> classPath(ClassLoader loader) {
+        final ClassLoader system = ClassLoader.getSystemClassLoader();
+        final ClassLoader stop = system != null ? system.getParent() : null;
+        final List<ClassLoader> loaders = new ArrayList<>();
+        for (ClassLoader cl = loader; cl != null && cl != stop; cl = cl.getParent()) {
+            loaders.add(cl);
+        }
+        // parent is searched first
+        Collections.reverse(loaders);
+        final List<Path> result = new ArrayList<>();
+        boolean urls = false;
+        for (ClassLoader cl : loaders) {
+            if (cl instanceof URLClassLoader) {
+                urls = true;
+                for (URL url : ((URLClassLoader) cl).getURLs()) {
+                    final Path path = toPath(url);
+                    if (path != null) {
+                        result.add(path);
+                    }
+                }
+            }
+        }
+        if (!urls) {
+            for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+                if (!entry.isEmpty()) {
+                    result.add(Paths.get(entry));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the zip file system of jar or {@code null} if file is not a readable zip archive
+     */
+    private static FileSystem openJar(Path jar) {
+        try {
+            return FileSystems.newFileSystem(jar, (ClassLoader) null);
+        } catch (IOException | ProviderNotFoundException | ZipError e) {
+            // class loaders ignore such entries as well
+            return null;
+        }
+    }
+
+    /**
+     * @return the entries of {@code Class-Path} attribute (empty list if manifest is missing or malformed)
+     */
+    private static List<Path> manifestClassPath(Path jar, Path root) throws IOException {
+        final Path file = root.resolve("META-INF/MANIFEST.MF");
+        if (!Files.isRegularFile(file)) {
+            return Collections.emptyList();
+        }
+        final Manifest manifest;
+        try (InputStream is = Files.newInputStream(file)) {
+            manifest = new Manifest(is);
+        } catch (IOException e) {
+            return Collections.emptyList();
+        }
+        final String classPath = manifest.getMainAttributes().getValue(Attributes.Name.CLASS_PATH);
+        if (classPath == null) {
+            return Collections.emptyList();
+        }
+        final URL base = jar.toUri().toURL();
+        final List<Path> result = new ArrayList<>();
+        for (String entry : classPath.trim().split("\\s+")) {
+            if (!entry.isEmpty()) {
+                final Path path = toPath(new URL(base, entry));
+                if (path != null) {
+                    result.add(path);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the path of local file or {@code null} if url does not point to local file
+     */
+    private static Path toPath(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Layer of empty class path.
+     */
+    private enum EmptyResources implements ListableResources {
+
+        INSTANCE;
+
+        @Override
+        public Optional<ReadableByteChannel> open(String resource) {
+            return Optional.empty();
+        }
+
+        @Override
+        public Collection<String> names() {
+            return Collections.emptyList();
+        }
+    }
+}
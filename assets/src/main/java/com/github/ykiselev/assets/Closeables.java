@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+final class Closeables {
+
+    private Closeables() {
+    }
+
+    /**
+     * Closes asset if it implements {@link AutoCloseable}.
+     *
+     * @param asset the asset to close
+     * @throws IllegalStateException if asset has thrown exception from {@link AutoCloseable#close()}
+     */
+    static void close(Object asset) {
+        try {
+            if (asset instanceof AutoCloseable) {
+                ((AutoCloseable) asset).close();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Implementation of {@link ReadableAssets} which delegates resolution to configured delegates. Method resolve
+ * iterates over delegates until first {@code non-null} {@link ReadableAsset} is returned and throws
+ * {@link ResourceException} if there is no such delegate, while {@link #tryResolve(String, Class)} returns {@code null}
+ * in that case.
+ * <p>
+ * Delegate which succeeded is remembered for the pair of asset class and resource extension, so next time the same
+ * kind of asset is resolved by that delegate straight away (falling back to full scan if it returns {@code null}).
+ * Remembered delegates are looked up by class and then by extension compared in place, so resolution of already seen
+ * kind of asset allocates nothing.
+ * This assumes that delegates choose {@link ReadableAsset} by class and extension only, call {@link #invalidate()}
+ * if behaviour of delegates has changed.
+ * <p>
+ * Number of delegates consulted by each resolution is reported to {@link AssetsListener} (if supplied).
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class CompositeReadableAssets implements ReadableAssets {
+
+    private final ReadableAssets[] delegates;
+
+    private final ConcurrentMap<Class<?>, Route[]> resolved = new ConcurrentHashMap<>();
+
+    /**
+     * Routes of resources requested without class.
+     */
+    private volatile Route[] untyped;
+
+    private final AssetsListener listener;
+
+    public CompositeReadableAssets(AssetsListener listener, ReadableAssets... delegates) {
+        Objects.requireNonNull(delegates);
+        if (delegates.length == 0) {
+            throw new IllegalArgumentException("At least one delegate should be supplied!");
+        }
+        this.delegates = delegates.clone();
+        this.listener = Objects.requireNonNull(listener);
+    }
+
+    public CompositeReadableAssets(ReadableAssets... delegates) {
+        this(AssetsListener.NO_OP, delegates);
+    }
+
+    @Override
+    public <T> ReadableAsset<T> resolve(String resource, Class<T> clazz) throws ResourceException {
+        final ReadableAsset<T> result = tryResolve(resource, clazz);
+        if (result == null) {
+            throw new ResourceException("Unable to resolve resource \"" + resource + "\" of class \"" + clazz + "\"");
+        }
+        return result;
+    }
+
+    @Override
+    public <T> ReadableAsset<T> tryResolve(String resource, Class<T> clazz) throws ResourceException {
+        final ReadableAssets cached = cached(clazz, resource);
+        int depth = 0;
+        if (cached != null) {
+            depth++;
+            final ReadableAsset<T> result = cached.tryResolve(resource, clazz);
+            if (result != null) {
+                listener.onResolve(resource, clazz, depth);
+                return result;
+            }
+        }
+        for (ReadableAssets delegate : delegates) {
+            if (delegate == cached) {
+                continue;
+            }
+            depth++;
+            final ReadableAsset<T> result = delegate.tryResolve(resource, clazz);
+            if (result != null) {
+                remember(clazz, ResourceNames.extension(resource), delegate);
+                listener.onResolve(resource, clazz, depth);
+                return result;
+            }
+        }
+        listener.onResolve(resource, clazz, depth);
+        return null;
+    }
+
+    private ReadableAssets cached(Class<?> clazz, String resource) {
+        final Route[] routes = clazz != null ? resolved.get(clazz) : untyped;
+        if (routes == null) {
+            return null;
+        }
+        final int start = ResourceNames.extensionStart(resource);
+        for (Route route : routes) {
+            if (ResourceNames.hasExtension(resource, start, route.extension)) {
+                return route.delegate;
+            }
+        }
+        return null;
+    }
+
+    private void remember(Class<?> clazz, String extension, ReadableAssets delegate) {
+        final Route route = new Route(extension != null ? extension : "", delegate);
+        if (clazz != null) {
+            resolved.compute(clazz, (k, routes) -> with(routes, route));
+        } else {
+            synchronized (this) {
+                untyped = with(untyped, route);
+            }
+        }
+    }
+
+    private static Route[] with(Route[] routes, Route route) {
+        if (routes == null) {
+            return new Route[]{route};
+        }
+        for (int i = 0; i < routes.length; i++) {
+            if (routes[i].extension.equals(route.extension)) {
+                final Route[] result = routes.clone();
+                result[i] = route;
+                return result;
+            }
+        }
+        final Route[] result = Arrays.copyOf(routes, routes.length + 1);
+        result[routes.length] = route;
+        return result;
+    }
+
+    /**
+     * Forgets which delegates resolved which kinds of assets.
+     */
+    public void invalidate() {
+        resolved.clear();
+        untyped = null;
+    }
+
+    private static final class Route {
+
+        private final String extension;
+
+        private final ReadableAssets delegate;
+
+        Route(String extension, ReadableAssets delegate) {
+            this.extension = extension;
+            this.delegate = delegate;
+        }
+    }
+}
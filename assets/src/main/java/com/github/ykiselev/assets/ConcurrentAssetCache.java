@@ -0,0 +1,322 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unbounded thread-safe {@link AssetCache} specialized for string keys. Entries are split between lock-striped segments,
+ * each one is a hash table of immutable nodes holding key, its spread hash and raw value (no wrapper per entry).
+ * Writers copy affected chain under segment lock and publish it with volatile write, so lookups take no locks and
+ * never block. Keys are compared by reference first, so interned names (like string literals) are matched without
+ * calling {@link String#equals(Object)}.
+ * <p>
+ * Replaced and removed {@link AutoCloseable} values are closed, as are all values on {@link #close()}. Value pinned
+ * with {@link #pin(String)} is closed only when the last pin is released (reference counts are kept aside for pinned
+ * values only, so lookups are not affected).
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class ConcurrentAssetCache implements AssetCache {
+
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private final Segment[] segments;
+
+    private final int segmentShift;
+
+    private final int segmentMask;
+
+    private final Pins pins = new Pins();
+
+    /**
+     * @param initialCapacity  the expected number of entries
+     * @param concurrencyLevel the expected number of concurrently writing threads
+     */
+    public ConcurrentAssetCache(int initialCapacity, int concurrencyLevel) {
+        if (initialCapacity < 0 || concurrencyLevel <= 0) {
+            throw new IllegalArgumentException();
+        }
+        final int count = powerOfTwo(Math.min(concurrencyLevel, 1 << 16));
+        this.segments = new Segment[count];
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(count);
+        this.segmentMask = count - 1;
+        final int capacity = powerOfTwo(Math.max(2, (initialCapacity + count - 1) / count));
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(capacity);
+        }
+    }
+
+    /**
+     * Creates cache striped by number of available processors.
+     */
+    public ConcurrentAssetCache() {
+        this(64, Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public Object get(String resource) {
+        final int h = spread(resource.hashCode());
+        return segment(h).get(resource, h);
+    }
+
+    @Override
+    public void put(String resource, Object value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        final int h = spread(resource.hashCode());
+        final Object previous = segment(h).put(resource, h, value);
+        if (previous != null && previous != value) {
+            pins.drop(previous);
+        }
+    }
+
+    @Override
+    public boolean remove(String resource) {
+        final int h = spread(resource.hashCode());
+        final Object previous = segment(h).remove(resource, h);
+        if (previous == null) {
+            return false;
+        }
+        pins.drop(previous);
+        return true;
+    }
+
+    @Override
+    public boolean remove(String resource, Object value) {
+        final int h = spread(resource.hashCode());
+        if (!segment(h).remove(resource, h, value)) {
+            return false;
+        }
+        pins.drop(value);
+        return true;
+    }
+
+    @Override
+    public Pin pin(String resource) {
+        for (; ; ) {
+            final Object value = get(resource);
+            if (value == null) {
+                return null;
+            }
+            final Pin pin = pins.pin(value);
+            if (get(resource) == value) {
+                return pin;
+            }
+            // value was dropped (and closed) concurrently
+            pin.close();
+        }
+    }
+
+    @Override
+    public Pin detach(String resource) {
+        final int h = spread(resource.hashCode());
+        final Object previous = segment(h).remove(resource, h);
+        return previous != null ? pins.detached(previous) : null;
+    }
+
+    @Override
+    public void close() {
+        final List<Object> dropped = new ArrayList<>();
+        for (Segment segment : segments) {
+            segment.clear(dropped);
+        }
+        IllegalStateException failure = null;
+        for (Object value : dropped) {
+            try {
+                pins.drop(value);
+            } catch (IllegalStateException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size() {
+        int result = 0;
+        for (Segment segment : segments) {
+            result += segment.count;
+        }
+        return result;
+    }
+
+    private Segment segment(int hash) {
+        // high bits select segment, low bits select bucket
+        return segments[(hash >>> segmentShift) & segmentMask];
+    }
+
+    private static int spread(int h) {
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+
+    private static int powerOfTwo(int value) {
+        final int result = Integer.highestOneBit(value);
+        return Math.min(result == value ? value : result << 1, MAXIMUM_CAPACITY);
+    }
+
+    /**
+     * Immutable node of bucket chain.
+     */
+    private static final class Node {
+
+        final String key;
+
+        final int hash;
+
+        final Object value;
+
+        final Node next;
+
+        Node(String key, int hash, Object value, Node next) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Hash table guarded by its own monitor for writes. Nodes are immutable (final fields), so reader which sees a node
+     * (even through racy read of bucket) sees it fully initialized, while volatile write of table after each change
+     * makes changes visible to readers.
+     */
+    private static final class Segment {
+
+        private volatile Node[] table;
+
+        /**
+         * Number of entries (written under lock).
+         */
+        volatile int count;
+
+        Segment(int capacity) {
+            this.table = new Node[capacity];
+        }
+
+        Object get(String key, int hash) {
+            final Node[] t = table;
+            for (Node n = t[hash & (t.length - 1)]; n != null; n = n.next) {
+                if (n.hash == hash && (n.key == key || n.key.equals(key))) {
+                    return n.value;
+                }
+            }
+            return null;
+        }
+
+        synchronized Object put(String key, int hash, Object value) {
+            Node[] t = table;
+            if (count >= t.length - (t.length >>> 2) && t.length < MAXIMUM_CAPACITY) {
+                t = resize(t);
+            }
+            final int index = hash & (t.length - 1);
+            final Node head = t[index];
+            final Object previous = find(head, key, hash);
+            final Node rest = previous != null ? without(head, key, hash) : head;
+            t[index] = new Node(key, hash, value, rest);
+            if (previous == null) {
+                count++;
+            }
+            // publish
+            table = t;
+            return previous;
+        }
+
+        synchronized Object remove(String key, int hash) {
+            final Node[] t = table;
+            final int index = hash & (t.length - 1);
+            final Node head = t[index];
+            final Object previous = find(head, key, hash);
+            if (previous != null) {
+                t[index] = without(head, key, hash);
+                count--;
+                table = t;
+            }
+            return previous;
+        }
+
+        /**
+         * Removes entry only if it still holds supplied value.
+         */
+        synchronized boolean remove(String key, int hash, Object value) {
+            final Node[] t = table;
+            final int index = hash & (t.length - 1);
+            final Node head = t[index];
+            if (find(head, key, hash) != value) {
+                return false;
+            }
+            t[index] = without(head, key, hash);
+            count--;
+            table = t;
+            return true;
+        }
+
+        synchronized void clear(List<Object> dropped) {
+            final Node[] t = table;
+            for (Node head : t) {
+                for (Node n = head; n != null; n = n.next) {
+                    dropped.add(n.value);
+                }
+            }
+            count = 0;
+            table = new Node[t.length];
+        }
+
+        private static Object find(Node head, String key, int hash) {
+            for (Node n = head; n != null; n = n.next) {
+                if (n.hash == hash && (n.key == key || n.key.equals(key))) {
+                    return n.value;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Copies nodes preceding removed one, the tail is shared.
+         */
+        private static Node without(Node head, String key, int hash) {
+            if (head.hash == hash && head.key.equals(key)) {
+                return head.next;
+            }
+            return new Node(head.key, head.hash, head.value, without(head.next, key, hash));
+        }
+
+        private static Node[] resize(Node[] old) {
+            final Node[] t = new Node[old.length << 1];
+            final int mask = t.length - 1;
+            for (Node head : old) {
+                for (Node n = head; n != null; n = n.next) {
+                    final int index = n.hash & mask;
+                    t[index] = new Node(n.key, n.hash, n.value, t[index]);
+                }
+            }
+            return t;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Channel wrappers counting bytes read and reporting them to {@link AssetsListener} once: when end of stream is reached
+ * or when channel is closed (whatever happens first). Mapped content is reported right away.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+final class CountingChannels {
+
+    private CountingChannels() {
+    }
+
+    /**
+     * Wraps channel preserving {@link MappableChannel} and {@link SizedChannel} capabilities.
+     *
+     * @param channel  the channel to wrap
+     * @param resource the resource name
+     * @param listener the listener to report to
+     * @return the wrapped channel
+     */
+    static ReadableByteChannel wrap(ReadableByteChannel channel, String resource, AssetsListener listener) {
+        if (channel instanceof MappableChannel) {
+            return new CountingMappableChannel((MappableChannel) channel, resource, listener);
+        }
+        return new CountingChannel(channel, resource, listener);
+    }
+
+    private static class CountingChannel implements SizedChannel {
+
+        final ReadableByteChannel delegate;
+
+        private final String resource;
+
+        private final AssetsListener listener;
+
+        private long count;
+
+        private boolean reported;
+
+        CountingChannel(ReadableByteChannel delegate, String resource, AssetsListener listener) {
+            this.delegate = delegate;
+            this.resource = resource;
+            this.listener = listener;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            final int read = delegate.read(dst);
+            if (read > 0) {
+                count += read;
+            } else if (read < 0) {
+                report();
+            }
+            return read;
+        }
+
+        @Override
+        public long remaining() throws IOException {
+            return BufferPool.remaining(delegate);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            report();
+            delegate.close();
+        }
+
+        void report() {
+            if (!reported) {
+                reported = true;
+                listener.onBytesRead(resource, count);
+            }
+        }
+
+        void add(long bytes) {
+            count += bytes;
+        }
+    }
+
+    private static final class CountingMappableChannel extends CountingChannel implements MappableChannel {
+
+        CountingMappableChannel(MappableChannel delegate, String resource, AssetsListener listener) {
+            super(delegate, resource, listener);
+        }
+
+        @Override
+        public ByteBuffer map() throws ResourceException {
+            final ByteBuffer buffer = ((MappableChannel) delegate).map();
+            add(buffer.remaining());
+            report();
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe graph of dependencies between assets: edge "parent -&gt; child" means that parent asset has loaded child
+ * asset (sub-asset) while being read. Filled by {@link ManagedAssets}.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class DependencyGraph {
+
+    private final ConcurrentMap<String, Set<String>> dependencies = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Set<String>> dependents = new ConcurrentHashMap<>();
+
+    /**
+     * Records dependency.
+     *
+     * @param resource   the parent resource
+     * @param dependency the resource loaded by parent
+     */
+    public void add(String resource, String dependency) {
+        if (resource.equals(dependency)) {
+            return;
+        }
+        dependencies.computeIfAbsent(resource, k -> ConcurrentHashMap.newKeySet())
+                .add(dependency);
+        dependents.computeIfAbsent(dependency, k -> ConcurrentHashMap.newKeySet())
+                .add(resource);
+    }
+
+    /**
+     * @param resource the resource name
+     * @return the read-only view of resources loaded by supplied resource
+     */
+    public Set<String> dependencies(String resource) {
+        return view(dependencies.get(resource));
+    }
+
+    /**
+     * @param resource the resource name
+     * @return the read-only view of resources which have loaded supplied resource
+     */
+    public Set<String> dependents(String resource) {
+        return view(dependents.get(resource));
+    }
+
+    /**
+     * @param resource the resource name
+     * @return the resources which directly or indirectly depend on supplied resource (nearest first)
+     */
+    public Set<String> transitiveDependents(String resource) {
+        final Set<String> result = new LinkedHashSet<>();
+        final Deque<String> queue = new ArrayDeque<>();
+        queue.add(resource);
+        while (!queue.isEmpty()) {
+            for (String dependent : dependents(queue.poll())) {
+                if (!dependent.equals(resource) && result.add(dependent)) {
+                    queue.add(dependent);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Forgets dependencies of supplied resource (but not its dependents). Should be called when resource is dropped,
+     * its dependencies will be recorded again when it is re-loaded.
+     *
+     * @param resource the resource name
+     */
+    public void removeDependencies(String resource) {
+        final Set<String> removed = dependencies.remove(resource);
+        if (removed != null) {
+            for (String dependency : removed) {
+                final Set<String> set = dependents.get(dependency);
+                if (set != null) {
+                    set.remove(resource);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets everything.
+     */
+    public void clear() {
+        dependencies.clear();
+        dependents.clear();
+    }
+
+    private static Set<String> view(Set<String> set) {
+        return set != null ? Collections.unmodifiableSet(set) : Collections.emptySet();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * View of {@link Assets} passed by {@link ManagedAssets} to {@link ReadableAsset} of loaded resource, records every
+ * sub-asset requested by reader as dependency of that resource.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+final class DependentAssets implements Assets {
+
+    private final String resource;
+
+    private final Assets target;
+
+    private final DependencyGraph graph;
+
+    /**
+     * @param resource the parent resource
+     * @param target   the assets to load sub-assets with (if it is a view itself its target is used)
+     * @param graph    the graph to record dependencies to
+     */
+    DependentAssets(String resource, Assets target, DependencyGraph graph) {
+        this.resource = requireNonNull(resource);
+        this.target = target instanceof DependentAssets
+                ? ((DependentAssets) target).target
+                : requireNonNull(target);
+        this.graph = requireNonNull(graph);
+    }
+
+    /**
+     * @return the parent resource
+     */
+    String resource() {
+        return resource;
+    }
+
+    @Override
+    public <T> Optional<T> tryLoad(String resource, Class<T> clazz, Assets assets) throws ResourceException {
+        graph.add(this.resource, resource);
+        return target.tryLoad(resource, clazz, assets);
+    }
+
+    @Override
+    public <T> CompletableFuture<Optional<T>> tryLoadAsync(String resource, Class<T> clazz) {
+        graph.add(this.resource, resource);
+        if (target instanceof ManagedAssets) {
+            // lets target know who waits for sub-asset
+            return ((ManagedAssets) target).tryLoadAsync(resource, clazz, this.resource);
+        }
+        return target.tryLoadAsync(resource, clazz);
+    }
+
+    @Override
+    public <T> ReadableAsset<T> resolve(String resource, Class<T> clazz) throws ResourceException {
+        return target.resolve(resource, clazz);
+    }
+
+    @Override
+    public <T> ReadableAsset<T> tryResolve(String resource, Class<T> clazz) throws ResourceException {
+        return target.tryResolve(resource, clazz);
+    }
+}
@@ -0,0 +1,360 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Assets with second-level disk cache of decoded assets. Resources read by {@link CacheableAsset} are decoded once,
+ * then stored in binary form in cache folder and on next start (or next load) read back from memory-mapped cache file
+ * skipping expensive decoding. Other resources are read like {@link SimpleAssets} does.
+ * <p>
+ * Cache entry is keyed by resource name and requested class and is valid only while digest of resource content and
+ * {@link CacheableAsset#version()} are the same as they were when entry was written. Outdated or broken entries are
+ * silently replaced, failure to write cache entry does not fail the load.
+ * <p>
+ * If {@link Resources#attributes(String)} {@link ResourceAttributes#identifiesContent() identify content} and are the
+ * same as they were when entry was written, resource content is not read (and hashed) at all. Resources modified
+ * shortly before entry was written (when coarse resolution of file system timestamps may hide another change) are
+ * always checked by content digest.
+ * <p>
+ * Cache file layout (little-endian):
+ * <pre>
+ * int magic, int format, int reader version, byte[20] SHA-1 of resource content, byte[20] SHA-1 of resource
+ * attributes (zeroes if they do not identify content), long time of writing (milliseconds)
+ * data written by {@link CacheableAsset#write(Object, java.nio.channels.WritableByteChannel)}
+ * </pre>
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class DiskCachedAssets implements Assets {
+
+    private static final int MAGIC = 0x48434441;
+
+    private static final int FORMAT = 2;
+
+    private static final int DIGEST_LENGTH = 20;
+
+    private static final int ATTRIBUTES_DIGEST = 12 + DIGEST_LENGTH;
+
+    private static final int HEADER = ATTRIBUTES_DIGEST + DIGEST_LENGTH + 8;
+
+    private static final byte[] NO_DIGEST = new byte[DIGEST_LENGTH];
+
+    /**
+     * Resources modified within this interval before cache entry was written are not trusted by attributes.
+     */
+    private static final long RACY_INTERVAL = 2000;
+
+    private final Path folder;
+
+    private final Resources resources;
+
+    private final ReadableAssets readableAssets;
+
+    /**
+     * @param folder         the folder to store cache files in (created if missing)
+     * @param resources      the resources to load
+     * @param readableAssets the readable assets to decode resources with
+     * @throws ResourceException if cache folder can not be created
+     */
+    public DiskCachedAssets(Path folder, Resources resources, ReadableAssets readableAssets) throws ResourceException {
+        this.folder = folder.toAbsolutePath().normalize();
+        this.resources = requireNonNull(resources);
+        this.readableAssets = requireNonNull(readableAssets);
+        try {
+            Files.createDirectories(this.folder);
+        } catch (IOException e) {
+            throw new ResourceException("Unable to create " + folder, e);
+        }
+    }
+
+    @Override
+    public <T> Optional<T> tryLoad(String resource, Class<T> clazz, Assets assets) throws ResourceException {
+        final Optional<ReadableByteChannel> opened = resources.open(resource);
+        if (!opened.isPresent()) {
+            return Optional.empty();
+        }
+        final ReadableByteChannel channel = opened.get();
+        final ReadableAsset<T> reader;
+        try {
+            reader = readableAssets.resolve(resource, clazz);
+        } catch (RuntimeException e) {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                e.addSuppressed(ex);
+            }
+            throw e;
+        }
+        if (!(reader instanceof CacheableAsset)) {
+            try (ReadableByteChannel c = channel) {
+                return Optional.ofNullable(reader.read(c, assets));
+            } catch (IOException e) {
+                throw new ResourceException("Unable to close " + resource, e);
+            }
+        }
+        return Optional.ofNullable(load(resource, clazz, (CacheableAsset<T>) reader, channel, assets));
+    }
+
+    private <T> T load(String resource, Class<T> clazz, CacheableAsset<T> reader, ReadableByteChannel channel,
+                       Assets assets) throws ResourceException {
+        final Path file = folder.resolve(fileName(resource, clazz));
+        final Entry entry = readEntry(file, reader.version());
+        try (ReadableByteChannel c = channel) {
+            final ResourceAttributes attributes = resources.attributes(resource).orElse(null);
+            final byte[] stamp = stamp(attributes);
+            if (entry != null && stamp != NO_DIGEST && trusted(attributes, stamp, entry)) {
+                final T asset = readCached(reader, entry, assets);
+                if (asset != null) {
+                    return asset;
+                }
+            }
+            if (c instanceof MappableChannel) {
+                final ByteBuffer content = ((MappableChannel) c).map();
+                return decode(file, entry, attributes, stamp, reader, content, new ByteBufferChannel(content), assets);
+            }
+            try (BufferPool.Buffer buffer = BufferPool.shared().readFully(c)) {
+                return decode(file, entry, attributes, stamp, reader, buffer.buffer(), buffer.channel(), assets);
+            }
+        } catch (IOException e) {
+            throw new ResourceException("Unable to read " + resource, e);
+        }
+    }
+
+    /**
+     * Uses cache entry if digest of content matches, otherwise decodes content and stores new entry.
+     */
+    private <T> T decode(Path file, Entry entry, ResourceAttributes attributes, byte[] stamp,
+                         CacheableAsset<T> reader, ByteBuffer content, ReadableByteChannel channel, Assets assets) {
+        final byte[] digest = digest(content.duplicate());
+        if (entry != null && Arrays.equals(digest, entry.digest)) {
+            final T asset = readCached(reader, entry, assets);
+            if (asset != null) {
+                if (stamp != NO_DIGEST && !trusted(attributes, stamp, entry)) {
+                    // content was touched but not changed (or checked too soon), next time attributes will do
+                    updateStamp(file, stamp);
+                }
+                return asset;
+            }
+        }
+        final T asset = reader.read(channel, assets);
+        if (asset != null) {
+            writeEntry(file, reader, asset, digest, stamp);
+        }
+        return asset;
+    }
+
+    /**
+     * Checks if entry may be used without reading resource content.
+     */
+    private static boolean trusted(ResourceAttributes attributes, byte[] stamp, Entry entry) {
+        if (!Arrays.equals(stamp, entry.stamp)) {
+            return false;
+        }
+        return attributes.lastModified() == ResourceAttributes.UNKNOWN
+                || attributes.lastModified() < entry.written - RACY_INTERVAL;
+    }
+
+    /**
+     * @return the cached asset or {@code null} if entry is broken (like truncated file)
+     */
+    private static <T> T readCached(CacheableAsset<T> reader, Entry entry, Assets assets) {
+        try {
+            return reader.readCached(new ByteBufferChannel(entry.payload), assets);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public <T> ReadableAsset<T> resolve(String resource, Class<T> clazz) throws ResourceException {
+        return readableAssets.resolve(resource, clazz);
+    }
+
+    @Override
+    public <T> ReadableAsset<T> tryResolve(String resource, Class<T> clazz) throws ResourceException {
+        return readableAssets.tryResolve(resource, clazz);
+    }
+
+    /**
+     * @return the cache entry or {@code null} if there is no valid entry
+     */
+    private static Entry readEntry(Path file, int version) {
+        final ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < HEADER || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (IOException e) {
+            // missing or unreadable entry
+            return null;
+        }
+        final ByteBuffer header = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt() != MAGIC || header.getInt() != FORMAT || header.getInt() != version) {
+            return null;
+        }
+        final byte[] digest = new byte[DIGEST_LENGTH];
+        header.get(digest);
+        final byte[] stamp = new byte[DIGEST_LENGTH];
+        header.get(stamp);
+        final long written = header.getLong();
+        data.position(HEADER);
+        return new Entry(digest, stamp, written, data.slice());
+    }
+
+    /**
+     * Stores attributes digest in existing entry. Failures are ignored.
+     */
+    private static void updateStamp(Path file, byte[] stamp) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(DIGEST_LENGTH + 8)
+                    .order(ByteOrder.LITTLE_ENDIAN)
+                    .put(stamp)
+                    .putLong(System.currentTimeMillis());
+            buffer.flip();
+            long position = ATTRIBUTES_DIGEST;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        } catch (IOException e) {
+            // cache is optional
+        }
+    }
+
+    private <T> void writeEntry(Path file, CacheableAsset<T> reader, T asset, byte[] digest, byte[] stamp) {
+        Path tmp = null;
+        try {
+            tmp = Files.createTempFile(folder, file.getFileName().toString(), ".tmp");
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                final ByteBuffer header = ByteBuffer.allocate(HEADER)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .putInt(MAGIC)
+                        .putInt(FORMAT)
+                        .putInt(reader.version())
+                        .put(digest)
+                        .put(stamp)
+                        .putLong(System.currentTimeMillis());
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                reader.write(asset, channel);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+        } catch (IOException | ResourceException e) {
+            // cache is optional, resource will be decoded again next time
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private static String fileName(String resource, Class<?> clazz) {
+        final MessageDigest md = sha1();
+        md.update(resource.getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+        if (clazz != null) {
+            md.update(clazz.getName().getBytes(StandardCharsets.UTF_8));
+        }
+        final StringBuilder sb = new StringBuilder(DIGEST_LENGTH * 2 + 6);
+        for (byte b : md.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16))
+                    .append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.append(".cache").toString();
+    }
+
+    /**
+     * @return the digest of attributes or {@link #NO_DIGEST} if attributes do not identify content
+     */
+    private static byte[] stamp(ResourceAttributes attributes) {
+        if (attributes == null || !attributes.identifiesContent()) {
+            return NO_DIGEST;
+        }
+        final MessageDigest md = sha1();
+        md.update(
+                (ByteBuffer) ByteBuffer.allocate(16)
+                        .putLong(attributes.size())
+                        .putLong(attributes.lastModified())
+                        .flip()
+        );
+        if (attributes.hash() != null) {
+            md.update(attributes.hash().getBytes(StandardCharsets.UTF_8));
+        }
+        return md.digest();
+    }
+
+    private static byte[] digest(ByteBuffer content) {
+        final MessageDigest md = sha1();
+        md.update(content);
+        return md.digest();
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+
+        final byte[] digest;
+
+        final byte[] stamp;
+
+        /**
+         * Time when entry (or stamp) was written.
+         */
+        final long written;
+
+        final ByteBuffer payload;
+
+        Entry(byte[] digest, byte[] stamp, long written, ByteBuffer payload) {
+            this.digest = digest;
+            this.stamp = stamp;
+            this.written = written;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Resources stored in file system under the root folder. Resource name is treated as a path relative to the root (leading
+ * slash is ignored), names pointing outside of the root (or to folders) are not found. Missing files are detected
+ * without exceptions, so probing for optional resources is cheap.
+ * <p>
+ * Root may be located in any {@link java.nio.file.FileSystem} (like zip file system). Channels opened in default file
+ * system implement {@link MappableChannel} so readers may parse large binary assets in place, while plain reading is
+ * done through {@link FileChannel}. Channels also implement {@link SizedChannel}, channels of other file systems are
+ * {@link java.nio.channels.SeekableByteChannel}s.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class FileSystemResources implements ListableResources {
+
+    private final Path root;
+
+    public FileSystemResources(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public Optional<ReadableByteChannel> open(String resource) throws ResourceException {
+        final Path path = resolve(resource);
+        if (path == null || !isFile(path)) {
+            return Optional.empty();
+        }
+        try {
+            if (path.getFileSystem() != FileSystems.getDefault()) {
+                // other file systems (like zip) may not support mapping
+                return Optional.of(Files.newByteChannel(path, StandardOpenOption.READ));
+            }
+            return Optional.of(
+                    new MappableFileChannel(
+                            FileChannel.open(path, StandardOpenOption.READ)
+                    )
+            );
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new ResourceException("Unable to open " + resource, e);
+        }
+    }
+
+    /**
+     * Lists regular files under the root folder.
+     *
+     * @return the names of all resources
+     * @throws ResourceException if folder can not be listed
+     */
+    @Override
+    public Collection<String> names() throws ResourceException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile)
+                    .map(path -> root.relativize(path)
+                            .toString()
+                            .replace(root.getFileSystem().getSeparator(), "/"))
+                    .collect(Collectors.toList());
+        } catch (IOException | UncheckedIOException e) {
+            throw new ResourceException("Unable to list " + root, e);
+        }
+    }
+
+    @Override
+    public boolean exists(String resource) {
+        final Path path = resolve(resource);
+        return path != null && isFile(path);
+    }
+
+    /**
+     * Takes size and modification time of file (content hash is not known).
+     */
+    @Override
+    public Optional<ResourceAttributes> attributes(String resource) throws ResourceException {
+        final Path path = resolve(resource);
+        if (path == null) {
+            return Optional.empty();
+        }
+        if (path.getFileSystem() == FileSystems.getDefault()) {
+            final File file = path.toFile();
+            if (!file.isFile()) {
+                return Optional.empty();
+            }
+            return Optional.of(new ResourceAttributes(file.length(), file.lastModified(), null));
+        }
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return Optional.empty();
+            }
+            return Optional.of(
+                    new ResourceAttributes(attributes.size(), attributes.lastModifiedTime().toMillis(), null)
+            );
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new ResourceException("Unable to read attributes of " + resource, e);
+        }
+    }
+
+    private static boolean isFile(Path path) {
+        // java.io.File checks existence without throwing (and filling stack trace of) NoSuchFileException
+        return path.getFileSystem() == FileSystems.getDefault()
+                ? path.toFile().isFile()
+                : Files.isRegularFile(path);
+    }
+
+    /**
+     * Resolves resource name to file path.
+     *
+     * @param resource the resource name
+     * @return the path or {@code null} if resource name points outside of the root
+     */
+    Path resolve(String resource) {
+        final Path path = root.resolve(ResourceNames.relative(resource)).normalize();
+        if (!path.startsWith(root)) {
+            return null;
+        }
+        return path;
+    }
+
+    private static final class MappableFileChannel implements MappableChannel, SizedChannel {
+
+        private final FileChannel channel;
+
+        MappableFileChannel(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public ByteBuffer map() throws ResourceException {
+            try {
+                final long position = channel.position();
+                final long size = channel.size() - position;
+                if (size > Integer.MAX_VALUE) {
+                    throw new ResourceException("File is too large to be mapped: " + channel.size());
+                }
+                return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            } catch (IOException e) {
+                throw new ResourceException(e);
+            }
+        }
+
+        @Override
+        public long remaining() throws IOException {
+            return channel.size() - channel.position();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
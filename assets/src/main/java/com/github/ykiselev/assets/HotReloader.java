@@ -0,0 +1,213 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Watches folder used by {@link FileSystemResources} and re-loads changed resources (see {@link ManagedAssets#reload(String)}),
+ * so only changed assets and assets depending on them are dropped from cache. Resource name is a path of changed file
+ * relative to the root folder (both with and without leading slash).
+ * <p>
+ * Changes are detected by {@link WatchService} in daemon thread started by constructor. Events received within
+ * configured delay after the first one are coalesced, so file written in several steps is re-loaded once. If events
+ * are lost ({@link StandardWatchEventKinds#OVERFLOW}), all files under root folder are re-loaded (only cached assets are
+ * actually loaded again). Failed re-loads are reported to {@link AssetsListener#onReloadFailed(String, Throwable)}.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class HotReloader implements AutoCloseable {
+
+    private final Path root;
+
+    private final ManagedAssets assets;
+
+    private final long delay;
+
+    private final AssetsListener listener;
+
+    private final WatchService watcher;
+
+    /**
+     * @param root   the root folder of resources
+     * @param assets the assets to re-load changed resources with
+     * @param delay    the time to wait for more events after the first one
+     * @param unit     the unit of delay
+     * @param listener the listener to report failed re-loads to
+     * @throws ResourceException if folder can not be watched
+     */
+    public HotReloader(Path root, ManagedAssets assets, long delay, TimeUnit unit, AssetsListener listener)
+            throws ResourceException {
+        this.root = root.toAbsolutePath().normalize();
+        this.assets = requireNonNull(assets);
+        this.delay = unit.toMillis(delay);
+        this.listener = requireNonNull(listener);
+        try {
+            this.watcher = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            throw new ResourceException(e);
+        }
+        try {
+            register(this.root, null);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+        final Thread thread = new Thread(this::run, "hot-reloader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Creates instance which ignores failed re-loads (failed loads are still reported to listener of assets).
+     *
+     * @param root   the root folder of resources
+     * @param assets the assets to re-load changed resources with
+     * @param delay  the time to wait for more events after the first one
+     * @param unit   the unit of delay
+     * @throws ResourceException if folder can not be watched
+     */
+    public HotReloader(Path root, ManagedAssets assets, long delay, TimeUnit unit) throws ResourceException {
+        this(root, assets, delay, unit, AssetsListener.NO_OP);
+    }
+
+    /**
+     * Creates instance coalescing events received within 50 milliseconds.
+     *
+     * @param root   the root folder of resources
+     * @param assets the assets to re-load changed resources with
+     * @throws ResourceException if folder can not be watched
+     */
+    public HotReloader(Path root, ManagedAssets assets) throws ResourceException {
+        this(root, assets, 50, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops watching.
+     */
+    @Override
+    public void close() {
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            throw new ResourceException(e);
+        }
+    }
+
+    private void run() {
+        try {
+            for (; ; ) {
+                final Set<String> changed = new LinkedHashSet<>();
+                collect(watcher.take(), changed);
+                WatchKey key;
+                while ((key = watcher.poll(delay, TimeUnit.MILLISECONDS)) != null) {
+                    collect(key, changed);
+                }
+                for (String resource : changed) {
+                    reload(resource);
+                    reload("/" + resource);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // stopped
+        }
+    }
+
+    private void reload(String resource) {
+        try {
+            assets.reload(resource).whenComplete((v, e) -> {
+                if (e != null) {
+                    listener.onReloadFailed(resource, e instanceof CompletionException ? e.getCause() : e);
+                }
+            });
+        } catch (RuntimeException e) {
+            // failure should not stop watching
+            listener.onReloadFailed(resource, e);
+        }
+    }
+
+    private void collect(WatchKey key, Set<String> changed) {
+        final Path folder = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // events were lost, so every file (and folder created meanwhile) under root may have changed
+                try {
+                    register(root, changed);
+                } catch (ResourceException e) {
+                    // root is deleted, nothing to re-load
+                }
+                continue;
+            }
+            final Path path = folder.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                // files could be created before folder is registered
+                try {
+                    register(path, changed);
+                } catch (ResourceException e) {
+                    // folder is already deleted
+                }
+            } else {
+                changed.add(name(path));
+            }
+        }
+        key.reset();
+    }
+
+    private void register(Path folder, Set<String> files) throws ResourceException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            paths.forEach(path -> {
+                if (Files.isDirectory(path)) {
+                    try {
+                        path.register(
+                                watcher,
+                                StandardWatchEventKinds.ENTRY_CREATE,
+                                StandardWatchEventKinds.ENTRY_MODIFY,
+                                StandardWatchEventKinds.ENTRY_DELETE
+                        );
+                    } catch (IOException e) {
+                        throw new ResourceException("Unable to watch " + path, e);
+                    }
+                } else if (files != null) {
+                    files.add(name(path));
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            throw new ResourceException("Unable to watch " + folder, e);
+        }
+    }
+
+    private String name(Path path) {
+        return root.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+}
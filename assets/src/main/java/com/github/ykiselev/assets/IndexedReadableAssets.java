@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Registry of {@link ReadableAsset}'s indexed by asset class and by resource extension.
+ * <p>
+ * Reader registered for class is also found by any superclass (except {@link Object}) or interface of that class,
+ * exact registrations take precedence over inherited ones, otherwise the first registered reader wins. Indices are
+ * rebuilt on each registration so {@link #resolve(String, Class)} is a hash lookup no matter how many readers are
+ * registered. If both class and resource name are supplied, class index is consulted first.
+ * <p>
+ * Registration is expected to happen during application start-up, resolution is thread-safe.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class IndexedReadableAssets implements ReadableAssets {
+
+    private final Map<Class<?>, ReadableAsset<?>> byClass = new LinkedHashMap<>();
+
+    private final Map<String, ReadableAsset<?>> byExtension = new HashMap<>();
+
+    private volatile Map<Class<?>, ReadableAsset<?>> classIndex = Collections.emptyMap();
+
+    private volatile Map<String, ReadableAsset<?>> extensionIndex = Collections.emptyMap();
+
+    /**
+     * Registers reader for assets of supplied class (replacing previous registration for the same class).
+     *
+     * @param clazz the asset class
+     * @param asset the reader
+     * @param <T>   the type of asset
+     * @return this registry
+     */
+    public synchronized <T> IndexedReadableAssets register(Class<T> clazz, ReadableAsset<? extends T> asset) {
+        byClass.put(requireNonNull(clazz), requireNonNull(asset));
+        classIndex = buildClassIndex(byClass);
+        return this;
+    }
+
+    /**
+     * Registers reader for resources with supplied extension (replacing previous registration for the same extension).
+     *
+     * @param extension the extension with or without leading dot (case-sensitive)
+     * @param asset     the reader
+     * @return this registry
+     */
+    public synchronized IndexedReadableAssets register(String extension, ReadableAsset<?> asset) {
+        final String key = extension.startsWith(".") ? extension.substring(1) : extension;
+        byExtension.put(key, requireNonNull(asset));
+        extensionIndex = new HashMap<>(byExtension);
+        return this;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> ReadableAsset<T> resolve(String resource, Class<T> clazz) throws ResourceException {
+        if (clazz != null) {
+            final ReadableAsset<?> result = classIndex.get(clazz);
+            if (result != null) {
+                return (ReadableAsset<T>) result;
+            }
+        }
+        if (resource != null) {
+            return (ReadableAsset<T>) extensionIndex.get(ResourceNames.extension(resource));
+        }
+        return null;
+    }
+
+    private static Map<Class<?>, ReadableAsset<?>> buildClassIndex(Map<Class<?>, ReadableAsset<?>> registered) {
+        final Map<Class<?>, ReadableAsset<?>> result = new HashMap<>(registered);
+        for (Map.Entry<Class<?>, ReadableAsset<?>> entry : registered.entrySet()) {
+            final Deque<Class<?>> queue = new ArrayDeque<>();
+            queue.add(entry.getKey());
+            while (!queue.isEmpty()) {
+                final Class<?> clazz = queue.poll();
+                if (clazz != entry.getKey()) {
+                    result.putIfAbsent(clazz, entry.getValue());
+                }
+                final Class<?> superclass = clazz.getSuperclass();
+                if (superclass != null && superclass != Object.class) {
+                    queue.add(superclass);
+                }
+                Collections.addAll(queue, clazz.getInterfaces());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Resources which are able to enumerate their content, used by {@link OverlayResources} to build lookup index.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public interface ListableResources extends Resources {
+
+    /**
+     * @return the names of all resources (relative to the root, without leading slash, separated with '/')
+     * @throws ResourceException if something goes wrong
+     */
+    Collection<String> names() throws ResourceException;
+
+    /**
+     * Checks if resource exists. Default implementation opens and closes the channel, implementations are expected
+     * to provide cheaper check.
+     *
+     * @param resource the resource name
+     * @return {@code true} if resource exists
+     * @throws ResourceException if something goes wrong
+     */
+    default boolean exists(String resource) throws ResourceException {
+        final Optional<ReadableByteChannel> channel = open(resource);
+        if (!channel.isPresent()) {
+            return false;
+        }
+        try {
+            channel.get().close();
+        } catch (IOException e) {
+            throw new ResourceException(e);
+        }
+        return true;
+    }
+}
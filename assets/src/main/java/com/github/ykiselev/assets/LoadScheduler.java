@@ -0,0 +1,786 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Assets loaded in order of urgency. Each load passes two stages: reading of resource content into memory (I/O) and
+ * decoding it with {@link ReadableAsset}. Both stages have their own priority queue and their own limit of concurrent
+ * tasks, so slow storage does not hold decoding threads and heavy decoding does not delay reads. Tasks are run by
+ * supplied executors.
+ * <p>
+ * Content of resources is read into pooled buffers which are released right after decoding. Buffers are acquired by I/O
+ * threads and released by decoding ones, so scheduler has its own {@link BufferPool#concurrent(int, int)} pool.
+ * Resources which may be memory-mapped (see {@link MappableChannel}) are mapped and each page of mapping is touched by
+ * I/O stage, so storage is read under I/O limit rather than by page faults on decoding threads. Reading stage runs ahead
+ * of decoding only by limited number of requests and bytes (the backlog): when decoding is saturated, new reads are not
+ * started until backlog is drained.
+ * <p>
+ * Requests are submitted with priority (see {@link #submit(String, Class, int, long, TimeUnit)}). Requests of higher
+ * priority are started first, requests of the same priority are started in order of deadlines and then in order of
+ * submission. Pending request of the same resource (and class) is shared: its priority is raised to the highest
+ * one requested and deadline is extended to the latest one. Blocking {@link #load(String, Class)} (and
+ * {@link #tryLoad(String, Class, Assets)}) raises priority of pending request to {@link #URGENT}, while
+ * {@link #tryLoadAsync(String, Class)} uses {@link #NORMAL} priority.
+ * <p>
+ * Request which has not left the queue before its deadline is completed with {@link TimeoutException} (on time, even if
+ * queue is stalled) without being read or decoded. Cancelled request is removed from queue, cancelling request being read or decoded discards the result.
+ * Note that shared request is cancelled for everyone waiting for it, except for blocking loads which then submit new
+ * request.
+ * <p>
+ * Loads of sub-assets made by readers running on decoding stage are executed in the calling thread bypassing queues.
+ * This includes asynchronous loads (and {@link Assets#loadAll(java.util.Collection, Class)}) made through
+ * {@link Assets} passed to reader, even if they are routed through caching decorator like {@link ManagedAssets}, so
+ * readers waiting for sub-assets can not exhaust decoding limit and deadlock.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class LoadScheduler implements Assets, AutoCloseable {
+
+    /**
+     * Priority of speculative loads.
+     */
+    public static final int PREFETCH = 0;
+
+    /**
+     * Default priority, used by {@link #tryLoadAsync(String, Class)}.
+     */
+    public static final int NORMAL = 100;
+
+    /**
+     * Priority of blocking loads.
+     */
+    public static final int URGENT = Integer.MAX_VALUE;
+
+    /**
+     * Set while thread is decoding asset.
+     */
+    private static final ThreadLocal<LoadScheduler> DECODING = new ThreadLocal<>();
+
+    /**
+     * Completes requests which are still queued after their deadlines.
+     */
+    private static final ScheduledThreadPoolExecutor TIMER = timer();
+
+    /**
+     * Sink of {@link #prefault(ByteBuffer)}.
+     */
+    private static volatile byte touched;
+
+    /**
+     * Default limit of bytes read but not yet decoded.
+     */
+    private static final long DEFAULT_BACKLOG_BYTES = 64L * 1024 * 1024;
+
+    private static final int PAGE_SIZE = 4096;
+
+    /**
+     * Maximum capacity of pooled content buffer.
+     */
+    private static final int MAX_POOLED_CONTENT = 1024 * 1024;
+
+    private static final Comparator<Request<?>> ORDER = Comparator.<Request<?>>comparingInt(r -> r.priority)
+            .reversed()
+            .thenComparingLong(r -> r.deadline)
+            .thenComparingLong(r -> r.sequence);
+
+    private final Resources resources;
+
+    private final ReadableAssets readableAssets;
+
+    private final Executor ioExecutor;
+
+    private final int ioLimit;
+
+    private final Executor decodeExecutor;
+
+    private final int decodeLimit;
+
+    private final int backlogLimit;
+
+    private final long backlogBytesLimit;
+
+    /**
+     * Pool of buffers holding content between stages, buffers are acquired by I/O threads and released by decoding ones.
+     */
+    private final BufferPool contentPool;
+
+    private final Object lock = new Object();
+
+    // following fields are guarded by lock
+
+    private final PriorityQueue<Request<?>> ioQueue = new PriorityQueue<>(ORDER);
+
+    private final PriorityQueue<Request<?>> decodeQueue = new PriorityQueue<>(ORDER);
+
+    private final Map<String, Request<?>> requests = new HashMap<>();
+
+    private int reading;
+
+    private int decoding;
+
+    /**
+     * Total size of content waiting in decoding queue.
+     */
+    private long backlogBytes;
+
+    private long sequence;
+
+    /**
+     * @param resources         the resources to read
+     * @param readableAssets    the readable assets to decode resources with
+     * @param ioExecutor        the executor to read resources
+     * @param ioLimit           the maximum number of resources being read at the same time
+     * @param decodeExecutor    the executor to decode assets
+     * @param decodeLimit       the maximum number of assets being decoded at the same time
+     * @param backlogLimit      the maximum number of requests being read or waiting for decoding
+     * @param backlogBytesLimit the size of content waiting for decoding above which new reads are not started
+     */
+    public LoadScheduler(Resources resources, ReadableAssets readableAssets, Executor ioExecutor, int ioLimit,
+                         Executor decodeExecutor, int decodeLimit, int backlogLimit, long backlogBytesLimit) {
+        if (ioLimit < 1 || decodeLimit < 1 || backlogLimit < 1 || backlogBytesLimit < 1) {
+            throw new IllegalArgumentException("Limits should be positive!");
+        }
+        this.resources = requireNonNull(resources);
+        this.readableAssets = requireNonNull(readableAssets);
+        this.ioExecutor = requireNonNull(ioExecutor);
+        this.ioLimit = ioLimit;
+        this.decodeExecutor = requireNonNull(decodeExecutor);
+        this.decodeLimit = decodeLimit;
+        this.backlogLimit = backlogLimit;
+        this.backlogBytesLimit = backlogBytesLimit;
+        this.contentPool = BufferPool.concurrent(MAX_POOLED_CONTENT, backlogLimit);
+    }
+
+    /**
+     * Creates scheduler with backlog of twice the decoding limit (or I/O limit, whatever is larger) and 64 MB.
+     *
+     * @param resources      the resources to read
+     * @param readableAssets the readable assets to decode resources with
+     * @param ioExecutor     the executor to read resources
+     * @param ioLimit        the maximum number of resources being read at the same time
+     * @param decodeExecutor the executor to decode assets
+     * @param decodeLimit    the maximum number of assets being decoded at the same time
+     */
+    public LoadScheduler(Resources resources, ReadableAssets readableAssets, Executor ioExecutor, int ioLimit,
+                         Executor decodeExecutor, int decodeLimit) {
+        this(resources, readableAssets, ioExecutor, ioLimit, decodeExecutor, decodeLimit,
+                2 * Math.max(ioLimit, decodeLimit), DEFAULT_BACKLOG_BYTES);
+    }
+
+    /**
+     * @param resources      the resources to read
+     * @param readableAssets the readable assets to decode resources with
+     * @param executor       the executor to run both stages
+     * @param ioLimit        the maximum number of resources being read at the same time
+     * @param decodeLimit    the maximum number of assets being decoded at the same time
+     */
+    public LoadScheduler(Resources resources, ReadableAssets readableAssets, Executor executor, int ioLimit,
+                         int decodeLimit) {
+        this(resources, readableAssets, executor, ioLimit, executor, decodeLimit);
+    }
+
+    /**
+     * Creates scheduler running both stages in {@link ForkJoinPool#commonPool()} with up to 4 concurrent reads and
+     * decoding limited by number of available processors.
+     *
+     * @param resources      the resources to read
+     * @param readableAssets the readable assets to decode resources with
+     */
+    public LoadScheduler(Resources resources, ReadableAssets readableAssets) {
+        this(resources, readableAssets, ForkJoinPool.commonPool(), 4, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Submits request without deadline.
+     *
+     * @param resource the resource name
+     * @param clazz    the class of resource or {@code null} if not known
+     * @param priority the priority (higher is more urgent)
+     * @param <T>      the type of resource
+     * @return the request
+     */
+    public <T> Request<T> submit(String resource, Class<T> clazz, int priority) {
+        return submit(resource, clazz, priority, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Submits request (or updates pending request of the same resource).
+     *
+     * @param resource the resource name
+     * @param clazz    the class of resource or {@code null} if not known
+     * @param priority the priority (higher is more urgent)
+     * @param timeout  the time given to request to leave the queue ({@link Long#MAX_VALUE} means no deadline)
+     * @param unit     the unit of {@code timeout}
+     * @param <T>      the type of resource
+     * @return the request
+     */
+    public <T> Request<T> submit(String resource, Class<T> clazz, int priority, long timeout, TimeUnit unit) {
+        return submit(resource, clazz, priority, deadline(timeout, unit), this);
+    }
+
+    /**
+     * Waits for asset raising priority of pending request to {@link #URGENT}.
+     */
+    @Override
+    public <T> Optional<T> tryLoad(String resource, Class<T> clazz, Assets assets) throws ResourceException {
+        if (DECODING.get() == this) {
+            return loadInPlace(resource, clazz, assets);
+        }
+        for (; ; ) {
+            final Request<T> request = submit(resource, clazz, URGENT, Long.MAX_VALUE, assets);
+            try {
+                return request.join();
+            } catch (CancellationException e) {
+                // shared request was cancelled by someone else, submit new one
+            } catch (CompletionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new ResourceException("Unable to load " + resource, cause);
+            }
+        }
+    }
+
+    /**
+     * Submits request with {@link #NORMAL} priority.
+     */
+    @Override
+    public <T> CompletableFuture<Optional<T>> tryLoadAsync(String resource, Class<T> clazz) {
+        return submit(resource, clazz, NORMAL);
+    }
+
+    @Override
+    public <T> ReadableAsset<T> resolve(String resource, Class<T> clazz) throws ResourceException {
+        return readableAssets.resolve(resource, clazz);
+    }
+
+    @Override
+    public <T> ReadableAsset<T> tryResolve(String resource, Class<T> clazz) throws ResourceException {
+        return readableAssets.tryResolve(resource, clazz);
+    }
+
+    /**
+     * @return the number of requests waiting in both queues
+     */
+    public int queued() {
+        synchronized (lock) {
+            return ioQueue.size() + decodeQueue.size();
+        }
+    }
+
+    /**
+     * @return the total size of content read but not yet decoded
+     */
+    public long backlogBytes() {
+        synchronized (lock) {
+            return backlogBytes;
+        }
+    }
+
+    /**
+     * Cancels all pending requests.
+     */
+    @Override
+    public void close() {
+        final List<Request<?>> pending;
+        synchronized (lock) {
+            pending = new ArrayList<>(requests.values());
+        }
+        for (Request<?> request : pending) {
+            request.cancel(false);
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor timer() {
+        final ScheduledThreadPoolExecutor result = new ScheduledThreadPoolExecutor(1, r -> {
+            final Thread thread = new Thread(r, "load-scheduler-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        result.setRemoveOnCancelPolicy(true);
+        return result;
+    }
+
+    private static long deadline(long timeout, TimeUnit unit) {
+        if (timeout == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        final long nanos = unit.toNanos(timeout);
+        final long now = System.nanoTime();
+        // avoid overflow
+        return nanos >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + nanos;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Request<T> submit(String resource, Class<T> clazz, int priority, long deadline, Assets assets) {
+        requireNonNull(resource);
+        final String key = clazz != null ? resource + '\0' + clazz.getName() : resource;
+        final Request<T> request;
+        synchronized (lock) {
+            final Request<T> existing = (Request<T>) requests.get(key);
+            if (existing != null) {
+                existing.update(priority, deadline);
+                return existing;
+            }
+            request = new Request<>(key, resource, clazz, assets, priority, deadline, sequence++);
+            requests.put(key, request);
+            ioQueue.add(request);
+            if (deadline != Long.MAX_VALUE) {
+                request.timer = schedule(request, deadline - System.nanoTime());
+            }
+        }
+        dispatch();
+        return request;
+    }
+
+    /**
+     * Loads asset in calling thread.
+     */
+    private <T> Optional<T> loadInPlace(String resource, Class<T> clazz, Assets assets) {
+        final Optional<ReadableByteChannel> opened = resources.open(resource);
+        if (!opened.isPresent()) {
+            return Optional.empty();
+        }
+        try (ReadableByteChannel channel = opened.get()) {
+            return Optional.ofNullable(readableAssets.resolve(resource, clazz).read(channel, new InPlace(assets)));
+        } catch (IOException e) {
+            throw new ResourceException("Unable to load " + resource, e);
+        }
+    }
+
+    /**
+     * Starts as many queued requests as limits allow.
+     */
+    private void dispatch() {
+        for (; ; ) {
+            Request<?> read = null;
+            Request<?> decode = null;
+            final List<Request<?>> expired = new ArrayList<>(0);
+            synchronized (lock) {
+                if (reading < ioLimit && reading + decodeQueue.size() < backlogLimit
+                        && backlogBytes < backlogBytesLimit) {
+                    read = poll(ioQueue, expired);
+                    if (read != null) {
+                        read.state = Request.READING;
+                        reading++;
+                    }
+                }
+                if (decoding < decodeLimit) {
+                    decode = poll(decodeQueue, expired);
+                    if (decode != null) {
+                        backlogBytes -= decode.content.remaining();
+                        decode.state = Request.DECODING;
+                        decoding++;
+                    }
+                }
+            }
+            for (Request<?> request : expired) {
+                request.completeExceptionally(
+                        new TimeoutException("Deadline of " + request.resource + " is exceeded")
+                );
+            }
+            if (read == null && decode == null) {
+                return;
+            }
+            if (read != null) {
+                final Request<?> r = read;
+                execute(ioExecutor, r, () -> read(r));
+            }
+            if (decode != null) {
+                final Request<?> r = decode;
+                execute(decodeExecutor, r, () -> decode(r));
+            }
+        }
+    }
+
+    /**
+     * Called under lock.
+     */
+    private Request<?> poll(PriorityQueue<Request<?>> queue, List<Request<?>> expired) {
+        final long now = System.nanoTime();
+        for (; ; ) {
+            final Request<?> request = queue.poll();
+            if (request == null) {
+                return null;
+            }
+            if (request.deadline != Long.MAX_VALUE && request.deadline - now < 0) {
+                drop(request);
+                expired.add(request);
+                continue;
+            }
+            return request;
+        }
+    }
+
+    /**
+     * Forgets request which has been removed from its queue. Called under lock.
+     */
+    private void drop(Request<?> request) {
+        if (request.state == Request.QUEUED_DECODE) {
+            backlogBytes -= request.content.remaining();
+        }
+        request.state = Request.DONE;
+        request.release();
+    }
+
+    /**
+     * Called under lock.
+     */
+    private ScheduledFuture<?> schedule(Request<?> request, long delay) {
+        return TIMER.schedule(() -> expire(request), delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Completes request with {@link TimeoutException} if it is still queued after its deadline.
+     */
+    private void expire(Request<?> request) {
+        synchronized (lock) {
+            if (request.state != Request.QUEUED_IO && request.state != Request.QUEUED_DECODE
+                    || request.deadline == Long.MAX_VALUE) {
+                return;
+            }
+            final long delay = request.deadline - System.nanoTime();
+            if (delay > 0) {
+                // deadline was extended
+                request.timer = schedule(request, delay);
+                return;
+            }
+            (request.state == Request.QUEUED_IO ? ioQueue : decodeQueue).remove(request);
+            drop(request);
+        }
+        request.completeExceptionally(new TimeoutException("Deadline of " + request.resource + " is exceeded"));
+        // expired request may have held back reads
+        dispatch();
+    }
+
+    /**
+     * Touches each page of mapped content, so it is read from storage by I/O thread.
+     */
+    private static void prefault(ByteBuffer content) {
+        byte sum = 0;
+        for (int i = content.position(); i < content.limit(); i += PAGE_SIZE) {
+            sum += content.get(i);
+        }
+        // keeps loop from being optimized away
+        touched = sum;
+    }
+
+    private void execute(Executor executor, Request<?> request, Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            request.completeExceptionally(e);
+            finished(request);
+        }
+    }
+
+    private <T> void read(Request<T> request) {
+        try {
+            if (!request.isDone()) {
+                final Optional<ReadableByteChannel> opened = resources.open(request.resource);
+                if (!opened.isPresent()) {
+                    request.complete(Optional.empty());
+                } else {
+                    try (ReadableByteChannel channel = opened.get()) {
+                        request.reader = readableAssets.resolve(request.resource, request.clazz);
+                        if (channel instanceof MappableChannel) {
+                            final ByteBuffer content = ((MappableChannel) channel).map();
+                            prefault(content);
+                            request.content = content;
+                        } else {
+                            final BufferPool.Buffer buffer = contentPool.readFully(channel);
+                            request.pooled = buffer;
+                            request.content = buffer.buffer();
+                        }
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            request.completeExceptionally(e);
+        } catch (Error e) {
+            request.completeExceptionally(e);
+            throw e;
+        } finally {
+            finished(request);
+        }
+    }
+
+    private <T> void decode(Request<T> request) {
+        final LoadScheduler previous = DECODING.get();
+        DECODING.set(this);
+        try {
+            if (!request.isDone()) {
+                final ReadableByteChannel channel = request.pooled != null
+                        ? request.pooled.channel()
+                        : new ByteBufferChannel(request.content);
+                request.complete(
+                        Optional.ofNullable(request.reader.read(channel, new InPlace(request.assets)))
+                );
+            }
+        } catch (RuntimeException e) {
+            request.completeExceptionally(e);
+        } catch (Error e) {
+            request.completeExceptionally(e);
+            throw e;
+        } finally {
+            DECODING.set(previous);
+            finished(request);
+        }
+    }
+
+    /**
+     * Called when stage of request is finished (or has failed to start).
+     */
+    private void finished(Request<?> request) {
+        synchronized (lock) {
+            if (request.state == Request.READING) {
+                reading--;
+                if (!request.isDone()) {
+                    request.state = Request.QUEUED_DECODE;
+                    decodeQueue.add(request);
+                    backlogBytes += request.content.remaining();
+                }
+            } else if (request.state == Request.DECODING) {
+                decoding--;
+            }
+            if (request.state != Request.QUEUED_DECODE) {
+                request.state = Request.DONE;
+                request.release();
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * View of {@link Assets} passed to readers. Asynchronous loads requested on decoding thread are executed right away
+     * in that thread, otherwise reader waiting for them would hold decoding slot needed to decode them.
+     */
+    private final class InPlace implements Assets {
+
+        private final Assets target;
+
+        InPlace(Assets target) {
+            this.target = target instanceof InPlace
+                    ? ((InPlace) target).target
+                    : requireNonNull(target);
+        }
+
+        @Override
+        public <T> Optional<T> tryLoad(String resource, Class<T> clazz, Assets assets) throws ResourceException {
+            return target.tryLoad(resource, clazz, assets == this ? target : assets);
+        }
+
+        @Override
+        public <T> CompletableFuture<Optional<T>> tryLoadAsync(String resource, Class<T> clazz) {
+            if (DECODING.get() != LoadScheduler.this) {
+                // reader has passed us to another thread
+                return target.tryLoadAsync(resource, clazz);
+            }
+            final CompletableFuture<Optional<T>> result = new CompletableFuture<>();
+            try {
+                result.complete(tryLoad(resource, clazz));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+
+        @Override
+        public <T> ReadableAsset<T> resolve(String resource, Class<T> clazz) throws ResourceException {
+            return target.resolve(resource, clazz);
+        }
+
+        @Override
+        public <T> ReadableAsset<T> tryResolve(String resource, Class<T> clazz) throws ResourceException {
+            return target.tryResolve(resource, clazz);
+        }
+    }
+
+    /**
+     * Pending or running load. Completes with asset (or nothing if resource does not exist).
+     */
+    public final class Request<T> extends CompletableFuture<Optional<T>> {
+
+        static final int QUEUED_IO = 0;
+
+        static final int READING = 1;
+
+        static final int QUEUED_DECODE = 2;
+
+        static final int DECODING = 3;
+
+        static final int DONE = 4;
+
+        private final String key;
+
+        private final String resource;
+
+        private final Class<T> clazz;
+
+        private final Assets assets;
+
+        private final long sequence;
+
+        // following fields are guarded by lock
+
+        private int priority;
+
+        private long deadline;
+
+        private int state = QUEUED_IO;
+
+        // following fields are passed from reading to decoding stage
+
+        private ReadableAsset<T> reader;
+
+        private ByteBuffer content;
+
+        /**
+         * Pooled buffer holding content or {@code null} if content is mapped.
+         */
+        private BufferPool.Buffer pooled;
+
+        private ScheduledFuture<?> timer;
+
+        Request(String key, String resource, Class<T> clazz, Assets assets, int priority, long deadline,
+                long sequence) {
+            this.key = key;
+            this.resource = resource;
+            this.clazz = clazz;
+            this.assets = assets;
+            this.priority = priority;
+            this.deadline = deadline;
+            this.sequence = sequence;
+            whenComplete((v, e) -> forget());
+        }
+
+        /**
+         * @return the resource name
+         */
+        public String resource() {
+            return resource;
+        }
+
+        /**
+         * @return the current priority
+         */
+        public int priority() {
+            synchronized (lock) {
+                return priority;
+            }
+        }
+
+        /**
+         * Raises priority of request (lower priority is ignored).
+         *
+         * @param priority the new priority
+         */
+        public void raise(int priority) {
+            synchronized (lock) {
+                update(priority, deadline);
+            }
+        }
+
+        /**
+         * Removes request from queue (if it is still there) and completes it with {@link CancellationException}.
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            final boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                synchronized (lock) {
+                    if (state == QUEUED_IO) {
+                        ioQueue.remove(this);
+                        drop(this);
+                    } else if (state == QUEUED_DECODE) {
+                        decodeQueue.remove(this);
+                        drop(this);
+                    }
+                }
+            }
+            return cancelled;
+        }
+
+        /**
+         * Called under lock.
+         */
+        void update(int priority, long deadline) {
+            if (priority <= this.priority && deadline <= this.deadline) {
+                return;
+            }
+            final PriorityQueue<Request<?>> queue = state == QUEUED_IO ? ioQueue
+                    : state == QUEUED_DECODE ? decodeQueue : null;
+            if (queue != null) {
+                queue.remove(this);
+            }
+            this.priority = Math.max(priority, this.priority);
+            this.deadline = Math.max(deadline, this.deadline);
+            if (queue != null) {
+                queue.add(this);
+            }
+        }
+
+        /**
+         * Releases content. Called under lock.
+         */
+        void release() {
+            if (pooled != null) {
+                pooled.close();
+                pooled = null;
+            }
+            content = null;
+            reader = null;
+        }
+
+        private void forget() {
+            synchronized (lock) {
+                requests.remove(key, this);
+                if (timer != null) {
+                    timer.cancel(false);
+                    timer = null;
+                }
+            }
+        }
+    }
+}
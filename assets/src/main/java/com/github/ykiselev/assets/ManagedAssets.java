@@ -0,0 +1,903 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Caching decorator for {@link Assets}. Only one thread loads each missing asset: other threads asking for the same
+ * resource at the same time wait for that load and receive the same result (or the same failure). Failures are not
+ * cached, so next request will try to load asset again.
+ * <p>
+ * Asynchronous loads ({@link #tryLoadAsync(String, Class)}) are executed by configured executor and share in-flight
+ * state with synchronous ones, so asset is loaded once no matter how it was requested. Executor threads are only
+ * blocked by I/O of {@link Resources} and {@link ReadableAsset}, so executor creating thread per task (for example
+ * virtual thread executor) is a good fit. Readable assets may use {@link Assets#loadAsync(String, Class)} of supplied
+ * {@link Assets} to load sub-assets concurrently.
+ * <p>
+ * Loaded assets are kept in {@link AssetCache} (for example {@link BoundedAssetCache} to limit memory usage) or in
+ * supplied {@link Map}. Note that this class is only as thread-safe as supplied cache, use {@link #ManagedAssets(Assets)},
+ * thread-safe {@link AssetCache} (like {@link ConcurrentAssetCache}) or an instance of
+ * {@link java.util.concurrent.ConcurrentMap} if assets are accessed from more than one thread.
+ * <p>
+ * Assets may be reference counted with {@link #acquire(String, Class)}: asset acquired this way is pinned in cache (see
+ * {@link AssetCache#pin(String)}), so it is not evicted while there are handles, and is dropped from cache (and closed)
+ * as soon as the last {@link AssetHandle} is closed.
+ * <p>
+ * Missing resources are remembered too, so probing for optional resources is cheap ({@link #tryLoad(String, Class)} of
+ * remembered missing resource allocates nothing and throws nothing). By default they are remembered forever, use
+ * {@link #ManagedAssets(Assets, AssetCache, Executor, AssetsListener, long, TimeUnit)} to notice resources which appear
+ * later. Missing resources are kept apart from cache (up to 4096 names by default, see
+ * {@link #ManagedAssets(Assets, AssetCache, Executor, AssetsListener, long, TimeUnit, int)}), so probing for absent
+ * resources never evicts loaded assets.
+ * <p>
+ * Cache hits, misses and loads are reported to {@link AssetsListener} (if supplied).
+ * <p>
+ * Each sub-asset requested by {@link ReadableAsset} through supplied {@link Assets} is recorded as dependency of
+ * loaded asset, see {@link #dependencies()}. Sibling sub-assets may be loaded in parallel with
+ * {@link Assets#loadAll(java.util.Collection, Class)}. Circular dependency fails load with {@link ResourceException}
+ * instead of deadlock, even if assets of the cycle are loaded by different threads.
+ * <p>
+ * Changed resource may be re-loaded with {@link #reload(String)} (see also {@link HotReloader}): only that resource and
+ * cached assets depending on it are loaded again in background, subscribers (see
+ * {@link #subscribe(String, Class, Consumer)}) are notified with new instances before old ones are closed.
+ * <p>
+ * Created by Y.Kiselev on 16.05.2016.
+ */
+public final class ManagedAssets implements Assets, AutoCloseable {
+
+    /**
+     * Marker of resources which do not exist (never expires).
+     */
+    private static final Missing MISSING = new Missing(null, Long.MAX_VALUE);
+
+    /**
+     * Default maximum number of remembered missing resources.
+     */
+    private static final int DEFAULT_MAX_MISSING = 4096;
+
+    /**
+     * Number of attempts to load and pin acquired asset before handles take ownership of unpinned one.
+     */
+    private static final int MAX_PIN_ATTEMPTS = 3;
+
+    private final Assets delegate;
+
+    private final AssetCache cache;
+
+    private final Executor executor;
+
+    private final AssetsListener listener;
+
+    /**
+     * Time to keep missing resources in cache (in nanoseconds), {@link Long#MAX_VALUE} means forever.
+     */
+    private final long missingTtl;
+
+    private final int maxMissing;
+
+    private final ConcurrentMap<String, Loading> loading = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Missing> missing = new ConcurrentHashMap<>();
+
+    /**
+     * Markers of missing resources in order they were remembered (guarded by itself). Markers which are not in
+     * {@link #missing} anymore are skipped.
+     */
+    private final ArrayDeque<Missing> missingOrder = new ArrayDeque<>();
+
+    private final DependencyGraph graph = new DependencyGraph();
+
+    /**
+     * Classes requested for loaded resources, used to re-load them.
+     */
+    private final ConcurrentMap<String, Optional<Class<?>>> types = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Set<Consumer<Object>>> subscribers = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Reference> references = new ConcurrentHashMap<>();
+
+    /**
+     * @param delegate   the delegate to load assets with
+     * @param cache      the cache to store loaded assets
+     * @param executor   the executor to run asynchronous loads
+     * @param listener   the listener to report cache hits, misses and loads to
+     * @param missingTtl the time to remember that resource does not exist ({@code 0} to not remember at all,
+     *                   {@link Long#MAX_VALUE} to remember forever)
+     * @param unit       the unit of {@code missingTtl}
+     * @param maxMissing the maximum number of remembered missing resources, expired and then the oldest ones are
+     *                   forgotten first ({@code 0} to not remember at all)
+     */
+    public ManagedAssets(Assets delegate, AssetCache cache, Executor executor, AssetsListener listener,
+                         long missingTtl, TimeUnit unit, int maxMissing) {
+        if (missingTtl < 0) {
+            throw new IllegalArgumentException("TTL should be non-negative!");
+        }
+        if (maxMissing < 0) {
+            throw new IllegalArgumentException("Number of missing resources should be non-negative!");
+        }
+        this.delegate = requireNonNull(delegate);
+        this.cache = requireNonNull(cache);
+        this.executor = requireNonNull(executor);
+        this.listener = requireNonNull(listener);
+        this.missingTtl = missingTtl == Long.MAX_VALUE ? Long.MAX_VALUE : unit.toNanos(missingTtl);
+        this.maxMissing = maxMissing;
+    }
+
+    /**
+     * Creates instance which remembers up to 4096 missing resources.
+     *
+     * @param delegate   the delegate to load assets with
+     * @param cache      the cache to store loaded assets
+     * @param executor   the executor to run asynchronous loads
+     * @param listener   the listener to report cache hits, misses and loads to
+     * @param missingTtl the time to remember that resource does not exist ({@code 0} to not remember at all,
+     *                   {@link Long#MAX_VALUE} to remember forever)
+     * @param unit       the unit of {@code missingTtl}
+     */
+    public ManagedAssets(Assets delegate, AssetCache cache, Executor executor, AssetsListener listener,
+                         long missingTtl, TimeUnit unit) {
+        this(delegate, cache, executor, listener, missingTtl, unit, DEFAULT_MAX_MISSING);
+    }
+
+    /**
+     * Creates instance which remembers missing resources forever.
+     *
+     * @param delegate the delegate to load assets with
+     * @param cache    the cache to store loaded assets
+     * @param executor the executor to run asynchronous loads
+     * @param listener the listener to report cache hits, misses and loads to
+     */
+    public ManagedAssets(Assets delegate, AssetCache cache, Executor executor, AssetsListener listener) {
+        this(delegate, cache, executor, listener, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param delegate the delegate to load assets with
+     * @param cache    the cache to store loaded assets
+     * @param executor the executor to run asynchronous loads
+     */
+    public ManagedAssets(Assets delegate, AssetCache cache, Executor executor) {
+        this(delegate, cache, executor, AssetsListener.NO_OP);
+    }
+
+    /**
+     * Creates instance which runs asynchronous loads in {@link ForkJoinPool#commonPool()}.
+     *
+     * @param delegate the delegate to load assets with
+     * @param cache    the cache to store loaded assets
+     */
+    public ManagedAssets(Assets delegate, AssetCache cache) {
+        this(delegate, cache, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param delegate the delegate to load assets with
+     * @param cache    the cache to store loaded assets
+     * @param executor the executor to run asynchronous loads
+     */
+    public ManagedAssets(Assets delegate, Map<String, Optional<?>> cache, Executor executor) {
+        this(delegate, new MapCache(cache), executor);
+    }
+
+    /**
+     * Creates instance which runs asynchronous loads in {@link ForkJoinPool#commonPool()}.
+     *
+     * @param delegate the delegate to load assets with
+     * @param cache    the cache to store loaded assets
+     */
+    public ManagedAssets(Assets delegate, Map<String, Optional<?>> cache) {
+        this(delegate, cache, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates thread-safe instance backed by {@link ConcurrentAssetCache}.
+     *
+     * @param delegate the delegate to load assets with
+     */
+    public ManagedAssets(Assets delegate) {
+        this(delegate, new ConcurrentAssetCache());
+    }
+
+    /**
+     * Cache hit takes single cache lookup and allocates nothing.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T load(String resource, Class<T> clazz) throws ResourceException {
+        final Object value = cache.get(resource);
+        if (value != null && !(value instanceof Missing)) {
+            listener.onCacheHit(resource);
+            return (T) value;
+        }
+        final Optional<T> result = tryLoad(resource, clazz, this);
+        if (result.isPresent()) {
+            return result.get();
+        }
+        throw new ResourceException("Unable to load " + resource);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Optional<T> tryLoad(String resource, Class<T> clazz, Assets assets) throws ResourceException {
+        final Object value = lookup(resource);
+        if (value != null) {
+            listener.onCacheHit(resource);
+            return (Optional<T>) wrap(value);
+        }
+        listener.onCacheMiss(resource);
+        final Loading requester = assets instanceof DependentAssets
+                ? loading.get(((DependentAssets) assets).resource())
+                : null;
+        final Loading ticket = new Loading(requester);
+        final Loading existing = loading.putIfAbsent(resource, ticket);
+        if (existing != null) {
+            return (Optional<T>) existing.await(resource, requester);
+        }
+        return (Optional<T>) load(ticket, resource, clazz, assets);
+    }
+
+    @Override
+    public <T> CompletableFuture<Optional<T>> tryLoadAsync(String resource, Class<T> clazz) {
+        return tryLoadAsync(resource, clazz, null);
+    }
+
+    /**
+     * @param requester the resource whose reader has requested asset or {@code null} if not known
+     */
+    @SuppressWarnings("unchecked")
+    <T> CompletableFuture<Optional<T>> tryLoadAsync(String resource, Class<T> clazz, String requester) {
+        final Object value = lookup(resource);
+        if (value != null) {
+            listener.onCacheHit(resource);
+            return CompletableFuture.completedFuture((Optional<T>) wrap(value));
+        }
+        listener.onCacheMiss(resource);
+        final Loading parent = requester != null ? loading.get(requester) : null;
+        final Loading ticket = new Loading(parent);
+        final Loading existing = loading.putIfAbsent(resource, ticket);
+        if (existing != null) {
+            if (parent != null && existing.requestedBy(parent)) {
+                final CompletableFuture<Optional<T>> result = new CompletableFuture<>();
+                result.completeExceptionally(circular(resource));
+                return result;
+            }
+            return existing.thenApply(v -> (Optional<T>) v);
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    load(ticket, resource, clazz, this);
+                } catch (RuntimeException e) {
+                    // already delivered through ticket
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loading.remove(resource, ticket);
+            ticket.completeExceptionally(e);
+        }
+        // Callers should not be able to complete shared ticket, so they get dependent future
+        return ticket.thenApply(v -> (Optional<T>) v);
+    }
+
+    private Optional<?> load(Loading ticket, String resource, Class<?> clazz, Assets assets) throws ResourceException {
+        ticket.owner = Thread.currentThread();
+        try {
+            // Another thread may have finished loading between our cache check and ticket registration
+            final Object value = lookup(resource);
+            final Optional<?> result;
+            if (value == null) {
+                result = loadFromDelegate(resource, clazz, assets);
+                types.put(resource, Optional.ofNullable(clazz));
+                if (result.isPresent()) {
+                    cache.put(resource, result.get());
+                } else if (missingTtl > 0 && maxMissing > 0) {
+                    rememberMissing(resource);
+                }
+            } else {
+                result = wrap(value);
+            }
+            ticket.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            ticket.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(resource, ticket);
+        }
+    }
+
+    private Optional<?> loadFromDelegate(String resource, Class<?> clazz, Assets assets) throws ResourceException {
+        listener.onLoadStarted(resource);
+        final long started = System.nanoTime();
+        try {
+            // asset is (re)loaded, so its dependencies are recorded from scratch
+            graph.removeDependencies(resource);
+            final Optional<?> result = delegate.tryLoad(resource, clazz, new DependentAssets(resource, assets, graph));
+            final Class<?> type = clazz != null || !result.isPresent()
+                    ? clazz
+                    : result.get().getClass();
+            listener.onLoadFinished(resource, type, System.nanoTime() - started);
+            return result;
+        } catch (RuntimeException | Error e) {
+            listener.onLoadFailed(resource, clazz, System.nanoTime() - started, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> ReadableAsset<T> resolve(String resource, Class<T> clazz) throws ResourceException {
+        return delegate.resolve(resource, clazz);
+    }
+
+    @Override
+    public <T> ReadableAsset<T> tryResolve(String resource, Class<T> clazz) throws ResourceException {
+        return delegate.tryResolve(resource, clazz);
+    }
+
+    /**
+     * @return the graph of dependencies between loaded assets
+     */
+    public DependencyGraph dependencies() {
+        return graph;
+    }
+
+    /**
+     * Loads asset (if not yet loaded) and acquires reference to it. Cache entry of asset is pinned (see
+     * {@link AssetCache#pin(String)}) while there are handles, so it is neither evicted nor closed (even if it is
+     * invalidated or re-loaded). When the last handle of resource is closed, asset is dropped from cache (unless cache
+     * already holds re-loaded instance) and closed. Resources acquired through handles should not be also loaded with
+     * plain {@link #load(String, Class)} as such usage is not counted.
+     *
+     * @param resource the resource name
+     * @param clazz    the class of resource or {@code null} if not known
+     * @param <T>      the type of resource
+     * @return the handle of asset
+     * @throws ResourceException             if resource not found or something goes wrong during the resource loading
+     *                                       process.
+     * @throws UnsupportedOperationException if cache can not pin entries
+     */
+    public <T> AssetHandle<T> acquire(String resource, Class<T> clazz) throws ResourceException {
+        for (; ; ) {
+            Reference reference = references.get(resource);
+            if (reference == null) {
+                final Reference created = new Reference(resource);
+                reference = references.putIfAbsent(resource, created);
+                if (reference == null) {
+                    return handle(created, resource, clazz);
+                }
+            }
+            if (reference.retain()) {
+                return handle(reference, resource, clazz);
+            }
+            // last handle was just closed, wait until asset is dropped
+            Thread.yield();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> AssetHandle<T> handle(Reference reference, String resource, Class<T> clazz) throws ResourceException {
+        final Object value;
+        try {
+            value = reference.pin(clazz);
+        } catch (RuntimeException | Error e) {
+            reference.release();
+            throw e;
+        }
+        return new AssetHandle<>((T) value, reference);
+    }
+
+    /**
+     * Drops supplied resource and all cached assets which directly or indirectly depend on it. Other cached assets are
+     * not touched.
+     *
+     * @param resource the resource name
+     * @return the names of dropped cache entries
+     */
+    public Set<String> invalidate(String resource) {
+        final Set<String> affected = new LinkedHashSet<>();
+        affected.add(resource);
+        affected.addAll(graph.transitiveDependents(resource));
+        final Set<String> result = new LinkedHashSet<>();
+        for (String name : affected) {
+            final boolean removed = cache.remove(name);
+            if (missing.remove(name) != null || removed) {
+                result.add(name);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Loads supplied resource and all cached assets which directly or indirectly depend on it again using configured
+     * executor. Assets are re-loaded one by one, each after assets it depends on, so new instance of asset is built
+     * from new instances of its dependencies. Cache entry of each asset is detached (see {@link AssetCache#detach(String)})
+     * and its new instance is loaded and cached, then subscribers are notified with new instance. Old instances are
+     * closed (unless pinned by {@link AssetHandle}) only after all affected assets are re-loaded, so they should not be
+     * used after notification. Asset which failed to re-load is dropped from cache.
+     *
+     * @param resource the resource name
+     * @return the future completed when all affected assets are re-loaded and subscribers are notified
+     */
+    public CompletableFuture<Void> reload(String resource) {
+        final List<String> order = reloadOrder(resource);
+        return CompletableFuture.runAsync(() -> reload(order), executor);
+    }
+
+    private void reload(List<String> order) {
+        final List<AssetCache.Pin> detached = new ArrayList<>();
+        RuntimeException failure = null;
+        try {
+            for (String name : order) {
+                final Optional<Class<?>> type = types.get(name);
+                if (type == null) {
+                    // entry was not loaded by us
+                    continue;
+                }
+                final boolean wasMissing = missing.remove(name) != null;
+                try {
+                    final AssetCache.Pin previous = cache.detach(name);
+                    if (previous != null) {
+                        detached.add(previous);
+                    } else if (!wasMissing) {
+                        // not cached, will be loaded on demand
+                        continue;
+                    }
+                    tryLoad(name, type.orElse(null), this)
+                            .ifPresent(value -> notify(name, value));
+                } catch (RuntimeException e) {
+                    failure = suppress(failure, e);
+                }
+            }
+        } finally {
+            // old dependents refer to old dependencies, so nothing is closed until all assets are replaced
+            for (AssetCache.Pin previous : detached) {
+                try {
+                    previous.close();
+                } catch (RuntimeException e) {
+                    failure = suppress(failure, e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static RuntimeException suppress(RuntimeException failure, RuntimeException e) {
+        if (failure == null) {
+            return e;
+        }
+        failure.addSuppressed(e);
+        return failure;
+    }
+
+    /**
+     * @return the resource and its transitive dependents, each one after all its dependencies
+     */
+    private List<String> reloadOrder(String resource) {
+        final Set<String> pending = new LinkedHashSet<>();
+        pending.add(resource);
+        pending.addAll(graph.transitiveDependents(resource));
+        final List<String> result = new ArrayList<>(pending.size());
+        while (!pending.isEmpty()) {
+            boolean progress = false;
+            for (Iterator<String> it = pending.iterator(); it.hasNext(); ) {
+                final String name = it.next();
+                if (Collections.disjoint(graph.dependencies(name), pending)) {
+                    result.add(name);
+                    it.remove();
+                    progress = true;
+                }
+            }
+            if (!progress) {
+                // graph is changed concurrently
+                result.addAll(pending);
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Subscribes to re-loads of resource.
+     *
+     * @param resource   the resource name
+     * @param clazz      the expected class of resource
+     * @param subscriber the subscriber to notify with new instances of resource
+     * @param <T>        the type of resource
+     * @return the subscription, closing it unsubscribes
+     */
+    public <T> Subscription subscribe(String resource, Class<T> clazz, Consumer<? super T> subscriber) {
+        requireNonNull(clazz);
+        requireNonNull(subscriber);
+        final Consumer<Object> consumer = value -> {
+            if (clazz.isInstance(value)) {
+                subscriber.accept(clazz.cast(value));
+            }
+        };
+        subscribers.computeIfAbsent(resource, k -> new CopyOnWriteArraySet<>())
+                .add(consumer);
+        return () -> {
+            final Set<Consumer<Object>> set = subscribers.get(resource);
+            if (set != null) {
+                set.remove(consumer);
+            }
+        };
+    }
+
+    private void notify(String resource, Object value) {
+        final Set<Consumer<Object>> set = subscribers.get(resource);
+        if (set != null) {
+            for (Consumer<Object> consumer : set) {
+                consumer.accept(value);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        cache.close();
+        synchronized (missingOrder) {
+            missing.clear();
+            missingOrder.clear();
+        }
+        graph.clear();
+        types.clear();
+    }
+
+    /**
+     * @return the cached value, marker of missing resource or {@code null} if there is no such entry or resource was
+     * missing and TTL is expired
+     */
+    private Object lookup(String resource) {
+        final Object value = cache.get(resource);
+        if (value != null) {
+            return value;
+        }
+        final Missing marker = missing.get(resource);
+        if (marker != null && marker.isExpired()) {
+            missing.remove(resource, marker);
+            return null;
+        }
+        return marker;
+    }
+
+    /**
+     * Remembers missing resource. All markers have the same TTL, so the oldest marker expires first and forgetting
+     * markers from the head of {@link #missingOrder} drops expired markers before live ones.
+     */
+    private void rememberMissing(String resource) {
+        final Missing marker = new Missing(
+                resource,
+                missingTtl == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + missingTtl
+        );
+        synchronized (missingOrder) {
+            missing.put(resource, marker);
+            missingOrder.addLast(marker);
+            Missing oldest;
+            while ((oldest = missingOrder.peekFirst()) != null) {
+                if (missing.get(oldest.resource) != oldest) {
+                    // already forgotten or replaced
+                    missingOrder.pollFirst();
+                } else if (missing.size() > maxMissing || oldest.isExpired()) {
+                    // markers are only hints, forgetting them costs another probe of delegate
+                    missingOrder.pollFirst();
+                    missing.remove(oldest.resource, oldest);
+                } else {
+                    break;
+                }
+            }
+            if (missingOrder.size() > 2 * maxMissing) {
+                // markers forgotten by lookups and invalidation may be stuck behind live ones
+                missingOrder.removeIf(m -> missing.get(m.resource) != m);
+            }
+        }
+    }
+
+    private static Optional<?> wrap(Object value) {
+        return value instanceof Missing ? Optional.empty() : Optional.of(value);
+    }
+
+    /**
+     * Marker of resource which does not exist.
+     */
+    private static final class Missing {
+
+        private final String resource;
+
+        /**
+         * Expiration time (in terms of {@link System#nanoTime()}), {@link Long#MAX_VALUE} means never.
+         */
+        private final long deadline;
+
+        Missing(String resource, long deadline) {
+            this.resource = resource;
+            this.deadline = deadline;
+        }
+
+        boolean isExpired() {
+            return deadline != Long.MAX_VALUE && deadline - System.nanoTime() <= 0;
+        }
+    }
+
+    /**
+     * Adapter for caches supplied as {@link Map}.
+     */
+    private static final class MapCache implements AssetCache {
+
+        private final Map<String, Optional<?>> map;
+
+        private final Pins pins = new Pins();
+
+        MapCache(Map<String, Optional<?>> map) {
+            this.map = requireNonNull(map);
+        }
+
+        @Override
+        public Object get(String resource) {
+            final Optional<?> opt = map.get(resource);
+            if (opt == null) {
+                return null;
+            }
+            return opt.isPresent() ? opt.get() : MISSING;
+        }
+
+        @Override
+        public void put(String resource, Object value) {
+            final Optional<?> previous = map.put(resource, wrap(value));
+            if (previous != null && previous.isPresent() && previous.get() != value) {
+                pins.drop(previous.get());
+            }
+        }
+
+        @Override
+        public boolean remove(String resource) {
+            final Optional<?> previous = map.remove(resource);
+            if (previous == null) {
+                return false;
+            }
+            previous.ifPresent(pins::drop);
+            return true;
+        }
+
+        @Override
+        public boolean remove(String resource, Object value) {
+            final Optional<?> current = map.get(resource);
+            if (current == null || current.orElse(null) != value || !map.remove(resource, current)) {
+                return false;
+            }
+            pins.drop(value);
+            return true;
+        }
+
+        @Override
+        public Pin pin(String resource) {
+            for (; ; ) {
+                final Object value = get(resource);
+                if (value == null) {
+                    return null;
+                }
+                final Pin pin = pins.pin(value);
+                if (get(resource) == value) {
+                    return pin;
+                }
+                // value was dropped (and closed) concurrently
+                pin.close();
+            }
+        }
+
+        @Override
+        public Pin detach(String resource) {
+            final Optional<?> previous = map.remove(resource);
+            return previous != null ? pins.detached(previous.isPresent() ? previous.get() : MISSING) : null;
+        }
+
+        @Override
+        public void close() {
+            map.forEach((key, value) -> value.ifPresent(pins::drop));
+            map.clear();
+        }
+    }
+
+    /**
+     * Counter of handles of single resource.
+     */
+    private final class Reference extends AssetHandle.Counter {
+
+        private final String resource;
+
+        /**
+         * Pin of cache entry taken by the first handle (guarded by this).
+         */
+        private AssetCache.Pin pin;
+
+        /**
+         * Asset which could not be pinned as cache does not keep it, handles own it then (guarded by this).
+         */
+        private Object owned;
+
+        Reference(String resource) {
+            this.resource = resource;
+        }
+
+        /**
+         * Loads asset (if not yet loaded) and pins its cache entry once for all handles.
+         *
+         * @return the pinned asset
+         */
+        synchronized Object pin(Class<?> clazz) throws ResourceException {
+            for (int attempt = 1; pin == null && owned == null; attempt++) {
+                final Object value = load(resource, clazz);
+                final AssetCache.Pin p = cache.pin(resource);
+                if (p == null) {
+                    if (attempt < MAX_PIN_ATTEMPTS) {
+                        // evicted right after load (and possibly closed by cache), load again
+                        continue;
+                    }
+                    // cache does not keep asset, so it is closed with the last handle
+                    owned = value;
+                } else if (p.value() == value) {
+                    pin = p;
+                } else {
+                    // asset was re-loaded concurrently, pin the new one
+                    p.close();
+                }
+            }
+            return pin != null ? pin.value() : owned;
+        }
+
+        @Override
+        void onReleased() {
+            final AssetCache.Pin p;
+            final Object o;
+            synchronized (this) {
+                p = pin;
+                o = owned;
+                pin = null;
+                owned = null;
+            }
+            try {
+                if (p != null) {
+                    try {
+                        // entry may already hold re-loaded asset which is not ours to drop
+                        cache.remove(resource, p.value());
+                    } finally {
+                        p.close();
+                    }
+                } else if (o != null) {
+                    Closeables.close(o);
+                }
+            } finally {
+                // counter is dead now, let next acquire create new one
+                references.remove(resource, this);
+            }
+        }
+    }
+
+    /**
+     * Subscription to re-loads of resource.
+     */
+    @FunctionalInterface
+    public interface Subscription extends AutoCloseable {
+
+        /**
+         * Unsubscribes.
+         */
+        @Override
+        void close();
+    }
+
+    private static ResourceException circular(String resource) {
+        return new ResourceException("Circular dependency detected while loading \"" + resource + "\"");
+    }
+
+    /**
+     * In-flight load shared by all threads requesting the same resource. Each ticket knows in-flight loads whose readers
+     * have requested it (and so may be waiting for it), so chain of waiting loads may be walked before blocking to detect
+     * circular dependency even if loads of that chain run in different threads.
+     */
+    private static final class Loading extends CompletableFuture<Optional<?>> {
+
+        /**
+         * The thread which actually loads asset or {@code null} if asynchronous load is not started yet.
+         */
+        private volatile Thread owner;
+
+        /**
+         * Tickets of loads whose readers have requested this one.
+         */
+        private final Set<Loading> requesters = ConcurrentHashMap.newKeySet();
+
+        /**
+         * @param requester the ticket of load whose reader requests this one or {@code null} if not known
+         */
+        Loading(Loading requester) {
+            if (requester != null) {
+                requesters.add(requester);
+            }
+        }
+
+        /**
+         * Records that load of {@code requester} waits for this one. Edge is recorded before the chain is walked, so
+         * of two threads closing the same cycle at the same time at least one sees it.
+         *
+         * @param requester the ticket of load whose reader requests this one
+         * @return {@code true} if {@code requester} (transitively) has been requested by this load, so waiting for this
+         * load would never end
+         */
+        boolean requestedBy(Loading requester) {
+            requesters.add(requester);
+            final Set<Loading> visited = new HashSet<>();
+            final Deque<Loading> pending = new ArrayDeque<>();
+            pending.push(requester);
+            while (!pending.isEmpty()) {
+                final Loading ticket = pending.pop();
+                if (ticket == this) {
+                    return true;
+                }
+                if (!ticket.isDone() && visited.add(ticket)) {
+                    pending.addAll(ticket.requesters);
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @param requester the ticket of load whose reader requests this one or {@code null} if not known
+         */
+        Optional<?> await(String resource, Loading requester) throws ResourceException {
+            if (owner == Thread.currentThread() || requester != null && requestedBy(requester)) {
+                throw circular(resource);
+            }
+            try {
+                return join();
+            } catch (CompletionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new ResourceException(cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Optional extension of {@link ReadableByteChannel} for resources which content may be accessed directly as a
+ * {@link ByteBuffer} (memory-mapped file or part of it) without copying. Implementations of {@link ReadableAsset} may
+ * check if supplied channel implements this interface and parse buffer in place, falling back to reading channel
+ * otherwise:
+ * <pre>
+ * if (channel instanceof MappableChannel) {
+ *     buffer = ((MappableChannel) channel).map();
+ * } else {
+ *     // read channel
+ * }
+ * </pre>
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public interface MappableChannel extends ReadableByteChannel {
+
+    /**
+     * Maps content of resource from current position to the end. Position of channel is not changed. Returned buffer
+     * stays valid after channel is closed.
+     *
+     * @return the read-only buffer
+     * @throws ResourceException if content can not be mapped
+     */
+    ByteBuffer map() throws ResourceException;
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stack of resource layers (for example user overrides, mods, DLC and base content) where resource of the first layer
+ * containing it hides resources with the same name in other layers. Names of all layers are merged into single index
+ * once, so {@link #open(String)} takes single hash lookup (and single call of owning layer) instead of probing layers in
+ * order, and missing resources are detected without touching any layer.
+ * <p>
+ * Index is not refreshed automatically. When content of layer changes call {@link #update(String)} for each changed
+ * resource (for example from file watcher), {@link #refresh(ListableResources)} to re-list whole layer or
+ * {@link #rebuild()} to re-list all of them. Lookups are never blocked by updates.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class OverlayResources implements ListableResources {
+
+    private final ListableResources[] layers;
+
+    private volatile Map<String, ListableResources> index;
+
+    /**
+     * @param layers the layers in order of priority (the first one wins)
+     * @throws ResourceException if any layer can not be listed
+     */
+    public OverlayResources(ListableResources... layers) throws ResourceException {
+        Objects.requireNonNull(layers);
+        if (layers.length == 0) {
+            throw new IllegalArgumentException("At least one layer should be supplied!");
+        }
+        this.layers = layers.clone();
+        rebuild();
+    }
+
+    @Override
+    public Optional<ReadableByteChannel> open(String resource) throws ResourceException {
+        final ListableResources layer = index.get(ResourceNames.relative(resource));
+        if (layer == null) {
+            return Optional.empty();
+        }
+        return layer.open(resource);
+    }
+
+    @Override
+    public Optional<ResourceAttributes> attributes(String resource) throws ResourceException {
+        final ListableResources layer = index.get(ResourceNames.relative(resource));
+        if (layer == null) {
+            return Optional.empty();
+        }
+        return layer.attributes(resource);
+    }
+
+    @Override
+    public Collection<String> names() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    @Override
+    public boolean exists(String resource) {
+        return index.containsKey(ResourceNames.relative(resource));
+    }
+
+    /**
+     * @param resource the resource name
+     * @return the layer providing resource or {@code null} if there is no such resource
+     */
+    public ListableResources layerOf(String resource) {
+        return index.get(ResourceNames.relative(resource));
+    }
+
+    /**
+     * Re-lists all layers and replaces index.
+     *
+     * @throws ResourceException if any layer can not be listed
+     */
+    public synchronized void rebuild() throws ResourceException {
+        final Map<String, ListableResources> result = new ConcurrentHashMap<>();
+        // lowest priority first so higher layers overwrite entries
+        for (int i = layers.length - 1; i >= 0; i--) {
+            for (String name : layers[i].names()) {
+                result.put(name, layers[i]);
+            }
+        }
+        index = result;
+    }
+
+    /**
+     * Updates index entry of resource which was added to, changed in or removed from any layer.
+     *
+     * @param resource the resource name
+     * @throws ResourceException if layer fails to check if resource exists
+     */
+    public synchronized void update(String resource) throws ResourceException {
+        final String name = ResourceNames.relative(resource);
+        for (ListableResources layer : layers) {
+            if (layer.exists(name)) {
+                index.put(name, layer);
+                return;
+            }
+        }
+        index.remove(name);
+    }
+
+    /**
+     * Re-lists single layer and updates entries of resources added to or removed from it.
+     *
+     * @param layer the layer which content has changed
+     * @throws ResourceException if layer can not be listed
+     */
+    public synchronized void refresh(ListableResources layer) throws ResourceException {
+        final List<String> affected = new ArrayList<>(layer.names());
+        for (Map.Entry<String, ListableResources> entry : index.entrySet()) {
+            if (entry.getValue() == layer) {
+                affected.add(entry.getKey());
+            }
+        }
+        for (String name : affected) {
+            update(name);
+        }
+    }
+}
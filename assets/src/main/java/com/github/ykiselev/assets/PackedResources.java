@@ -0,0 +1,269 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Resources packed into single archive file. Archive is opened and memory-mapped once, the index stored in archive
+ * header is loaded into hash table so lookup does not touch file system and reading is done straight from mapped
+ * memory (opened channels implement {@link MappableChannel}).
+ * <p>
+ * Archive layout (little-endian):
+ * <pre>
+ * int magic, int version, int count
+ * count * (int name hash, int name length, byte[] UTF-8 name, long offset, long length)
+ * data (each entry is aligned on 8 bytes boundary)
+ * </pre>
+ * Name hash is {@link String#hashCode()} of entry name, it is checked while index is loaded to detect corrupted
+ * header.
+ * Archives are created with {@link #pack(Path, Path)}. Archives larger than 2 GB are not supported.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class PackedResources implements ListableResources {
+
+    private static final int MAGIC = 0x4B505341;
+
+    private static final int VERSION = 1;
+
+    private static final int ALIGNMENT = 8;
+
+    /**
+     * Size of index entry with empty name.
+     */
+    private static final int MIN_ENTRY_SIZE = 4 + 4 + 8 + 8;
+
+    private final ByteBuffer data;
+
+    private final Map<String, Entry> index;
+
+    /**
+     * Modification time of archive, used as modification time of each entry.
+     */
+    private final long lastModified;
+
+    /**
+     * @param archive the archive file
+     * @throws ResourceException if archive can not be read
+     */
+    public PackedResources(Path archive) throws ResourceException {
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new ResourceException("Archive is too large: " + archive);
+            }
+            this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            this.lastModified = Files.getLastModifiedTime(archive).toMillis();
+        } catch (IOException e) {
+            throw new ResourceException("Unable to open " + archive, e);
+        }
+        this.index = readIndex(data.duplicate().order(ByteOrder.LITTLE_ENDIAN), archive);
+    }
+
+    private static Map<String, Entry> readIndex(ByteBuffer header, Path archive) throws ResourceException {
+        try {
+            if (header.getInt() != MAGIC) {
+                throw new ResourceException("Not a packed archive: " + archive);
+            }
+            final int version = header.getInt();
+            if (version != VERSION) {
+                throw new ResourceException("Unsupported version of " + archive + ": " + version);
+            }
+            final int count = header.getInt();
+            if (count < 0 || count > header.remaining() / MIN_ENTRY_SIZE) {
+                throw new ResourceException("Corrupted entry count in " + archive + ": " + count);
+            }
+            final Map<String, Entry> result = new HashMap<>(count * 4 / 3 + 1);
+            final byte[] nameBytes = new byte[1024];
+            for (int i = 0; i < count; i++) {
+                final int hash = header.getInt();
+                final int length = header.getInt();
+                if (length < 0 || length > header.remaining()) {
+                    throw new ResourceException("Corrupted entry #" + i + " in " + archive);
+                }
+                final byte[] bytes = length <= nameBytes.length ? nameBytes : new byte[length];
+                header.get(bytes, 0, length);
+                final String name = new String(bytes, 0, length, StandardCharsets.UTF_8);
+                final long offset = header.getLong();
+                final long size = header.getLong();
+                if (hash != name.hashCode() || offset < 0 || size < 0 || offset + size > header.capacity()) {
+                    throw new ResourceException("Corrupted entry \"" + name + "\" in " + archive);
+                }
+                result.put(name, new Entry((int) offset, (int) size));
+            }
+            return result;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new ResourceException("Corrupted archive: " + archive, e);
+        }
+    }
+
+    @Override
+    public Optional<ReadableByteChannel> open(String resource) throws ResourceException {
+        final Entry entry = index.get(ResourceNames.relative(resource));
+        if (entry == null) {
+            return Optional.empty();
+        }
+        final ByteBuffer slice = data.duplicate();
+        slice.limit(entry.offset + entry.length)
+                .position(entry.offset);
+        return Optional.of(new ByteBufferChannel(slice));
+    }
+
+    /**
+     * Takes size of entry and modification time of archive (content hash is not known).
+     */
+    @Override
+    public Optional<ResourceAttributes> attributes(String resource) {
+        final Entry entry = index.get(ResourceNames.relative(resource));
+        if (entry == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new ResourceAttributes(entry.length, lastModified, null));
+    }
+
+    @Override
+    public Collection<String> names() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    @Override
+    public boolean exists(String resource) {
+        return index.containsKey(ResourceNames.relative(resource));
+    }
+
+    /**
+     * @return the number of resources in archive
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Packs all regular files found in {@code folder} (including sub-folders) into archive. Resource names are paths
+     * relative to {@code folder} with forward slashes as separators.
+     *
+     * @param folder  the folder to pack
+     * @param archive the archive file to create (existing file is overwritten)
+     * @throws ResourceException if something goes wrong
+     */
+    public static void pack(Path folder, Path archive) throws ResourceException {
+        final List<Path> files;
+        try (Stream<Path> stream = Files.walk(folder)) {
+            files = stream.filter(Files::isRegularFile)
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new ResourceException("Unable to list " + folder, e);
+        }
+        try (FileChannel out = FileChannel.open(archive, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final List<byte[]> names = new ArrayList<>(files.size());
+            final long[] sizes = new long[files.size()];
+            int headerSize = 12;
+            for (int i = 0; i < files.size(); i++) {
+                final Path file = files.get(i);
+                final byte[] name = folder.relativize(file)
+                        .toString()
+                        .replace(folder.getFileSystem().getSeparator(), "/")
+                        .getBytes(StandardCharsets.UTF_8);
+                names.add(name);
+                sizes[i] = Files.size(file);
+                headerSize += 4 + 4 + name.length + 8 + 8;
+            }
+            final ByteBuffer header = ByteBuffer.allocate(headerSize)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(files.size());
+            final long[] offsets = new long[files.size()];
+            long offset = align(headerSize);
+            for (int i = 0; i < files.size(); i++) {
+                final byte[] name = names.get(i);
+                offsets[i] = offset;
+                header.putInt(new String(name, StandardCharsets.UTF_8).hashCode())
+                        .putInt(name.length)
+                        .put(name)
+                        .putLong(offset)
+                        .putLong(sizes[i]);
+                offset = align(offset + sizes[i]);
+            }
+            if (offset > Integer.MAX_VALUE) {
+                throw new ResourceException("Archive is too large: " + offset);
+            }
+            header.flip();
+            long position = 0;
+            while (header.hasRemaining()) {
+                position += out.write(header, position);
+            }
+            for (int i = 0; i < files.size(); i++) {
+                try (FileChannel in = FileChannel.open(files.get(i), StandardOpenOption.READ)) {
+                    long transferred = 0;
+                    out.position(offsets[i]);
+                    while (transferred < sizes[i]) {
+                        final long count = in.transferTo(transferred, sizes[i] - transferred, out);
+                        if (count <= 0) {
+                            throw new IOException("File " + files.get(i) + " was truncated while packing");
+                        }
+                        transferred += count;
+                    }
+                }
+            }
+            // pad to the end of last entry so empty trailing entries are still within the file
+            final ByteBuffer padding = ByteBuffer.allocate((int) (offset - out.size()));
+            position = out.size();
+            while (padding.hasRemaining()) {
+                position += out.write(padding, position);
+            }
+        } catch (IOException e) {
+            throw new ResourceException("Unable to write " + archive, e);
+        }
+    }
+
+    private static long align(long value) {
+        return (value + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    private static final class Entry {
+
+        final int offset;
+
+        final int length;
+
+        Entry(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
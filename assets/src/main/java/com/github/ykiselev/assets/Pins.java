@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reference counts of values pinned in cache which stores values without wrappers (see {@link AssetCache#pin(String)}).
+ * Value dropped from cache is closed at once if it is not pinned, otherwise it is closed when the last pin is released.
+ * Counts are kept only for pinned values, so lookups of cache are not affected.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+final class Pins {
+
+    /**
+     * Pinned values by identity (guarded by this).
+     */
+    private final Map<Object, Count> counts = new IdentityHashMap<>();
+
+    /**
+     * Pins value. Caller should check that value is still cached after that (and release pin if it is not), as value
+     * dropped before this call is already closed.
+     *
+     * @param value the cached value
+     * @return the pin
+     */
+    AssetCache.Pin pin(Object value) {
+        synchronized (this) {
+            counts.computeIfAbsent(value, k -> new Count()).references++;
+        }
+        return new Pin(value);
+    }
+
+    /**
+     * Pins value which is dropped from cache, so it is closed when returned pin (and all other pins) are released.
+     *
+     * @param value the dropped value
+     * @return the pin
+     */
+    AssetCache.Pin detached(Object value) {
+        synchronized (this) {
+            final Count count = counts.computeIfAbsent(value, k -> new Count());
+            count.references++;
+            count.dropped = true;
+        }
+        return new Pin(value);
+    }
+
+    /**
+     * Closes value dropped from cache unless it is pinned.
+     *
+     * @param value the dropped value
+     * @throws IllegalStateException if value has thrown exception from {@link AutoCloseable#close()}
+     */
+    void drop(Object value) {
+        synchronized (this) {
+            final Count count = counts.get(value);
+            if (count != null) {
+                count.dropped = true;
+                return;
+            }
+        }
+        Closeables.close(value);
+    }
+
+    private void release(Object value) {
+        final boolean close;
+        synchronized (this) {
+            final Count count = counts.get(value);
+            if (--count.references > 0) {
+                return;
+            }
+            counts.remove(value);
+            close = count.dropped;
+        }
+        if (close) {
+            Closeables.close(value);
+        }
+    }
+
+    private static final class Count {
+
+        int references;
+
+        /**
+         * Whether value was dropped from cache while pinned.
+         */
+        boolean dropped;
+    }
+
+    private final class Pin implements AssetCache.Pin {
+
+        private final Object value;
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Pin(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object value() {
+            return value;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Batch load of resources started by {@link Assets#preload(Map, int, Progress)}. At most configured number of resources
+ * are loaded at the same time, next load is started as soon as one of them is finished. With {@link ManagedAssets} loads
+ * are executed by its executor so I/O of one resource overlaps with decoding of another one and loaded assets are kept
+ * in cache.
+ * <p>
+ * Completes normally when all resources are loaded (missing resources are not failures). If some of resources have
+ * failed to load, other resources are still loaded and then this future completes with {@link ResourceException}
+ * having each failure {@link Throwable#addSuppressed(Throwable) suppressed}. Cancelling this future stops starting new
+ * loads (loads already started are finished).
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class Preload extends CompletableFuture<Void> {
+
+    private final Assets assets;
+
+    private final String[] resources;
+
+    private final Class<?>[] types;
+
+    private final int parallelism;
+
+    private final Progress progress;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final AtomicInteger completed = new AtomicInteger();
+
+    private final Queue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+    Preload(Assets assets, Map<String, Class<?>> manifest, int parallelism, Progress progress) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism should be positive!");
+        }
+        this.assets = requireNonNull(assets);
+        this.parallelism = parallelism;
+        this.progress = requireNonNull(progress);
+        this.resources = new String[manifest.size()];
+        this.types = new Class<?>[manifest.size()];
+        int i = 0;
+        for (Map.Entry<String, Class<?>> entry : manifest.entrySet()) {
+            resources[i] = requireNonNull(entry.getKey());
+            types[i] = entry.getValue();
+            i++;
+        }
+    }
+
+    /**
+     * @return the total number of resources
+     */
+    public int total() {
+        return resources.length;
+    }
+
+    /**
+     * @return the number of finished loads (either successful or failed)
+     */
+    public int completed() {
+        return completed.get();
+    }
+
+    Preload start() {
+        if (resources.length == 0) {
+            complete(null);
+            return this;
+        }
+        for (int i = 0; i < parallelism && !isDone(); i++) {
+            startNext();
+        }
+        return this;
+    }
+
+    private void startNext() {
+        // loads completed synchronously are handled in loop rather than recursively to keep stack shallow
+        for (; ; ) {
+            if (isDone()) {
+                return;
+            }
+            final int index = next.getAndIncrement();
+            if (index >= resources.length) {
+                return;
+            }
+            final String resource = resources[index];
+            final CompletableFuture<? extends Optional<?>> future;
+            try {
+                future = assets.tryLoadAsync(resource, types[index]);
+            } catch (RuntimeException e) {
+                finished(resource, e);
+                continue;
+            }
+            if (!future.isDone()) {
+                future.whenComplete((value, e) -> {
+                    finished(resource, unwrap(e));
+                    startNext();
+                });
+                return;
+            }
+            try {
+                future.join();
+                finished(resource, null);
+            } catch (CompletionException | CancellationException e) {
+                finished(resource, unwrap(e));
+            }
+        }
+    }
+
+    private void finished(String resource, Throwable failure) {
+        if (failure != null) {
+            failures.add(failure);
+        }
+        final int done = completed.incrementAndGet();
+        progress.update(resource, done, resources.length);
+        if (done < resources.length) {
+            return;
+        }
+        if (failures.isEmpty()) {
+            complete(null);
+        } else {
+            final List<Throwable> list = new ArrayList<>(failures);
+            final ResourceException e = new ResourceException(
+                    "Unable to preload " + list.size() + " of " + resources.length + " resources"
+            );
+            list.forEach(e::addSuppressed);
+            completeExceptionally(e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null
+                ? e.getCause()
+                : e;
+    }
+
+    /**
+     * Receives progress of {@link Preload}.
+     */
+    @FunctionalInterface
+    public interface Progress {
+
+        /**
+         * No-op instance.
+         */
+        Progress NONE = (resource, completed, total) -> {
+        };
+
+        /**
+         * Called (from loading threads) each time load of resource is finished.
+         *
+         * @param resource  the name of finished resource
+         * @param completed the number of finished resources
+         * @param total     the total number of resources
+         */
+        void update(String resource, int completed, int total);
+    }
+}
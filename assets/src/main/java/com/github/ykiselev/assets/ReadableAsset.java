@@ -28,7 +28,8 @@ public interface ReadableAsset<T> {
     /**
      * Reads resource from channel.
      *
-     * @param channel  the binary stream to read resource from.
+     * @param channel  the binary stream to read resource from. Channel is owned (and closed) by the caller and should
+     *                 not be used after this method returns.
      * @param assets   the instance of asset manager. At first glance {@link Resources} would suffice but {@link Assets}
      *                 may be required in the case when compound asset consisting of different assets is read.
      * @return de-serialized resource.
@@ -33,6 +33,21 @@ public interface ReadableAssets {
      */
     <T> ReadableAsset<T> resolve(String resource, Class<T> clazz) throws ResourceException;
 
+    /**
+     * Resolves instance of {@link ReadableAsset} without throwing exception if it is not found, so probing is cheap.
+     * Default implementation simply calls {@link #resolve(String, Class)}, implementations which throw from that
+     * method when nothing is found (like {@link CompositeReadableAssets}) should override this one.
+     *
+     * @param <T>      the type of resource
+     * @param resource the resource name.
+     * @param clazz    the resource class.
+     * @return the readable resource or {@code null} if not found.
+     * @throws ResourceException if something goes wrong
+     */
+    default <T> ReadableAsset<T> tryResolve(String resource, Class<T> clazz) throws ResourceException {
+        return resolve(resource, clazz);
+    }
+
     /**
      * Convenient method to resolve {@link ReadableAsset} by asset class.
      *
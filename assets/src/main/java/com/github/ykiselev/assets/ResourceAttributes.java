@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.util.Objects;
+
+/**
+ * Metadata of resource obtained without reading its content, see {@link Resources#attributes(String)}. Any attribute
+ * may be unknown for particular implementation of {@link Resources}.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class ResourceAttributes {
+
+    /**
+     * Value of unknown size or modification time.
+     */
+    public static final long UNKNOWN = -1;
+
+    private final long size;
+
+    private final long lastModified;
+
+    private final String hash;
+
+    /**
+     * @param size         the length of content in bytes or {@link #UNKNOWN}
+     * @param lastModified the modification time in milliseconds since the epoch or {@link #UNKNOWN}
+     * @param hash         the hash of content prefixed with algorithm name (like {@code "crc32:3610a686"}) or
+     *                     {@code null} if not known
+     */
+    public ResourceAttributes(long size, long lastModified, String hash) {
+        this.size = size < 0 ? UNKNOWN : size;
+        this.lastModified = lastModified < 0 ? UNKNOWN : lastModified;
+        this.hash = hash;
+    }
+
+    /**
+     * @return the length of content in bytes or {@link #UNKNOWN}
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the modification time in milliseconds since the epoch or {@link #UNKNOWN}
+     */
+    public long lastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return the hash of content prefixed with algorithm name or {@code null} if not known
+     */
+    public String hash() {
+        return hash;
+    }
+
+    /**
+     * Tells if these attributes are enough to detect that content was changed without reading it: size should be known
+     * along with modification time or hash.
+     *
+     * @return {@code true} if equal attributes of resource read at different times mean the same content
+     */
+    public boolean identifiesContent() {
+        return size != UNKNOWN && (lastModified != UNKNOWN || hash != null);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final ResourceAttributes that = (ResourceAttributes) o;
+        return size == that.size
+                && lastModified == that.lastModified
+                && Objects.equals(hash, that.hash);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, lastModified, hash);
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceAttributes{size=" + size + ", lastModified=" + lastModified + ", hash=" + hash + "}";
+    }
+}
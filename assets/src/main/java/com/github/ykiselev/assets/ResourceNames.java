@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+final class ResourceNames {
+
+    private ResourceNames() {
+    }
+
+    /**
+     * Extracts extension (part of the last path element after the last dot) from resource name.
+     *
+     * @param resource the resource name or {@code null}
+     * @return the extension without dot, empty string if there is no extension or {@code null} if resource is {@code null}
+     */
+    static String extension(String resource) {
+        if (resource == null) {
+            return null;
+        }
+        final int start = extensionStart(resource);
+        if (start < 0) {
+            return "";
+        }
+        return resource.substring(start);
+    }
+
+    /**
+     * Finds extension without allocating substring.
+     *
+     * @param resource the resource name or {@code null}
+     * @return the index of first character of extension or {@code -1} if there is no extension
+     */
+    static int extensionStart(String resource) {
+        if (resource == null) {
+            return -1;
+        }
+        final int dot = resource.lastIndexOf('.');
+        if (dot < 0 || dot < resource.lastIndexOf('/')) {
+            return -1;
+        }
+        return dot + 1;
+    }
+
+    /**
+     * @param resource  the resource name or {@code null}
+     * @param start     the result of {@link #extensionStart(String)} for resource
+     * @param extension the extension without dot
+     * @return {@code true} if resource has supplied extension (empty extension matches names without extension)
+     */
+    static boolean hasExtension(String resource, int start, String extension) {
+        if (start < 0) {
+            return extension.isEmpty();
+        }
+        final int length = resource.length() - start;
+        return length == extension.length() && resource.regionMatches(start, extension, 0, length);
+    }
+
+    /**
+     * Strips leading slash, so {@code "/a/b.txt"} and {@code "a/b.txt"} name the same resource.
+     *
+     * @param resource the resource name
+     * @return the name relative to the root
+     */
+    static String relative(String resource) {
+        return resource.startsWith("/") ? resource.substring(1) : resource;
+    }
+}
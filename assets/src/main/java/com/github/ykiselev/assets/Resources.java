@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Optional;
+
+/**
+ * Low-level resource access api.
+ * <p>
+ * Created by Y.Kiselev on 15.05.2016.
+ */
+public interface Resources {
+
+    /**
+     * Opens new read-only channel for requested resource.
+     * Caller is expected to close channel after use.
+     *
+     * @param resource the resource name
+     * @return the readable byte channel
+     * @throws ResourceException if {@code resource} does not exists or something goes wrong during channel opening
+     */
+    Optional<ReadableByteChannel> open(String resource) throws ResourceException;
+
+    /**
+     * Returns metadata of resource without reading its content, so callers may size buffers or skip re-reading of
+     * unchanged content. Default implementation opens (and closes) channel to check if resource exists and takes size
+     * from {@link SizedChannel}, implementations are expected to override it with cheaper lookup.
+     *
+     * @param resource the resource name
+     * @return the attributes or nothing if there is no such resource
+     * @throws ResourceException if something goes wrong during lookup
+     */
+    default Optional<ResourceAttributes> attributes(String resource) throws ResourceException {
+        final Optional<ReadableByteChannel> opened = open(resource);
+        if (!opened.isPresent()) {
+            return Optional.empty();
+        }
+        try (ReadableByteChannel channel = opened.get()) {
+            return Optional.of(
+                    new ResourceAttributes(BufferPool.remaining(channel), ResourceAttributes.UNKNOWN, null)
+            );
+        } catch (IOException e) {
+            throw new ResourceException("Unable to read attributes of " + resource, e);
+        }
+    }
+}
@@ -16,12 +16,16 @@
 
 package com.github.ykiselev.assets;
 
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
 import java.util.Optional;
 
 import static java.util.Objects.requireNonNull;
 
 /**
  * This implementation uses supplied instance of {@link ReadableAssets} to resolve {@link ReadableAsset}.
+ * If {@link AssetsListener} is supplied, number of bytes read from each resource is reported to it. Channel of resource
+ * is closed as soon as {@link ReadableAsset} returns (readers should not close it themselves).
  * <p>
  * Created by Y.Kiselev on 15.05.2016.
  */
@@ -31,22 +35,48 @@ public final class SimpleAssets implements Assets {
 
     private final ReadableAssets readableAssets;
 
-    public SimpleAssets(Resources resources, ReadableAssets readableAssets) {
+    private final AssetsListener listener;
+
+    public SimpleAssets(Resources resources, ReadableAssets readableAssets, AssetsListener listener) {
         this.resources = requireNonNull(resources);
         this.readableAssets = requireNonNull(readableAssets);
+        this.listener = requireNonNull(listener);
+    }
+
+    public SimpleAssets(Resources resources, ReadableAssets readableAssets) {
+        this(resources, readableAssets, AssetsListener.NO_OP);
     }
 
     @Override
     public <T> Optional<T> tryLoad(String resource, Class<T> clazz, Assets assets) throws ResourceException {
-        return resources.open(resource)
-                .map(channel ->
-                        readableAssets.resolve(resource, clazz)
-                                .read(channel, assets)
-                );
+        final Optional<ReadableByteChannel> opened = resources.open(resource);
+        if (!opened.isPresent()) {
+            return Optional.empty();
+        }
+        try (ReadableByteChannel channel = wrap(opened.get(), resource)) {
+            return Optional.ofNullable(
+                    readableAssets.resolve(resource, clazz)
+                            .read(channel, assets)
+            );
+        } catch (IOException e) {
+            throw new ResourceException("Unable to close " + resource, e);
+        }
+    }
+
+    private ReadableByteChannel wrap(ReadableByteChannel channel, String resource) {
+        if (listener == AssetsListener.NO_OP) {
+            return channel;
+        }
+        return CountingChannels.wrap(channel, resource, listener);
     }
 
     @Override
     public <T> ReadableAsset<T> resolve(String resource, Class<T> clazz) throws ResourceException {
         return readableAssets.resolve(resource, clazz);
     }
+
+    @Override
+    public <T> ReadableAsset<T> tryResolve(String resource, Class<T> clazz) throws ResourceException {
+        return readableAssets.tryResolve(resource, clazz);
+    }
 }
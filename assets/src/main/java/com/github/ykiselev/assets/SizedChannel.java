@@ -16,23 +16,20 @@
 
 package com.github.ykiselev.assets;
 
+import java.io.IOException;
 import java.nio.channels.ReadableByteChannel;
-import java.util.Optional;
 
 /**
- * Low-level resource access api.
- * <p>
- * Created by Y.Kiselev on 15.05.2016.
+ * Optional extension of {@link ReadableByteChannel} for resources which length is known before reading, so readers
+ * (and {@link BufferPool#readFully(ReadableByteChannel)}) may size buffers once instead of growing them.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
  */
-public interface Resources {
+public interface SizedChannel extends ReadableByteChannel {
 
     /**
-     * Opens new read-only channel for requested resource.
-     * Caller is expected to close channel after use.
-     *
-     * @param resource the resource name
-     * @return the readable byte channel
-     * @throws ResourceException if {@code resource} does not exists or something goes wrong during channel opening
+     * @return the number of bytes left to read or {@code -1} if not known
+     * @throws IOException if an I/O error occurs
      */
-    Optional<ReadableByteChannel> open(String resource) throws ResourceException;
+    long remaining() throws IOException;
 }
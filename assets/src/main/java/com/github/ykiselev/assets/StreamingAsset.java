@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.nio.channels.ReadableByteChannel;
+import java.util.function.Consumer;
+
+/**
+ * Reader of assets which are too large to be built as a whole (terrain, audio streams, large tables). Instead of
+ * returning fully built object implementation emits asset chunk by chunk (pages, tiles, blocks of samples, etc.) as
+ * soon as each of them is read, see {@link AssetStream}.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+@FunctionalInterface
+public interface StreamingAsset<C> {
+
+    /**
+     * Reads resource from channel passing each chunk to sink. Sink may block (this is how consumer which can not keep up
+     * slows reader down) and may throw unchecked exception if consumer is not interested in the rest of asset anymore,
+     * implementations should let such exception propagate.
+     *
+     * @param channel the binary stream to read resource from
+     * @param assets  the instance of asset manager to load sub-assets
+     * @param sink    the consumer of chunks
+     * @throws ResourceException if something goes wrong during de-serialization of resource.
+     */
+    void read(ReadableByteChannel channel, Assets assets, Consumer<? super C> sink) throws ResourceException;
+}
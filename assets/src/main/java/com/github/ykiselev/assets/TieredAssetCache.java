@@ -0,0 +1,568 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Two-tier {@link AssetCache}. Hot tier is {@link BoundedAssetCache} holding decoded assets, cold tier holds raw content
+ * of resources in fixed off-heap arena (split into pages, so there is no fragmentation). Arena larger than 2 GB is
+ * allocated in several chunks. When asset evicted from hot
+ * tier is requested again its content is taken from cold tier and only decoding is repeated, {@link Resources#open(String)}
+ * of underlying resources is not called.
+ * <p>
+ * Cold tier is filled through {@link #resources()} which should be used by delegate of {@link ManagedAssets}:
+ * <pre>
+ * TieredAssetCache cache = new TieredAssetCache(resources, 256, Weigher.unit(), 64 * 1024 * 1024);
+ * ManagedAssets assets = new ManagedAssets(new SimpleAssets(cache.resources(), readableAssets), cache);
+ * </pre>
+ * Content of each resource opened through it (if its length is known, see {@link SizedChannel}) is copied into arena.
+ * Cold tier evicts least recently used content. Resources of assets residing in hot tier are not read, so their content
+ * naturally becomes the first candidate for eviction, while content of asset evicted from hot tier (demoted) is marked
+ * as recently used. Content being read is never overwritten or evicted: pages are reused only after all channels reading
+ * them are closed or have reached end of stream (so readers which do not close channel pin pages only while reading).
+ * Content of new resource is cached only if there are enough pages which are free or may be freed.
+ * <p>
+ * {@link #remove(String)} and {@link #detach(String)} drop entry from both tiers (so re-loaded asset is read from
+ * underlying resources).
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class TieredAssetCache implements AssetCache {
+
+    private static final int DEFAULT_PAGE_SIZE = 64 * 1024;
+
+    /**
+     * Maximum size of single direct buffer arena is allocated with.
+     */
+    private static final int MAX_CHUNK_SIZE = Integer.MAX_VALUE;
+
+    private final BoundedAssetCache hot;
+
+    private final Resources delegate;
+
+    private final AssetsListener listener;
+
+    private final int pageSize;
+
+    private final ByteBuffer[] pages;
+
+    private final Object lock = new Object();
+
+    /**
+     * Content of resources in access order (guarded by lock).
+     */
+    private final Map<String, ColdEntry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Stack of free page indices (guarded by lock).
+     */
+    private final int[] free;
+
+    private int freeCount;
+
+    private final Resources resources = new ColdResources();
+
+    private final LongAdder hotHits = new LongAdder();
+
+    private final LongAdder hotMisses = new LongAdder();
+
+    private final LongAdder promotions = new LongAdder();
+
+    private final LongAdder demotions = new LongAdder();
+
+    private final LongAdder coldMisses = new LongAdder();
+
+    private final LongAdder coldEvictions = new LongAdder();
+
+    /**
+     * @param resources    the underlying resources
+     * @param hotWeight    the maximum total weight of hot tier
+     * @param weigher      the weigher of decoded assets
+     * @param coldCapacity the size of cold tier arena in bytes
+     * @param pageSize     the size of arena page in bytes
+     * @param listener     the listener to notify about evictions from hot tier
+     */
+    public TieredAssetCache(Resources resources, long hotWeight, Weigher weigher, long coldCapacity, int pageSize,
+                            AssetsListener listener) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size should be positive!");
+        }
+        if (coldCapacity < 0) {
+            throw new IllegalArgumentException("Capacity should be non-negative!");
+        }
+        this.delegate = requireNonNull(resources);
+        this.listener = requireNonNull(listener);
+        this.hot = new BoundedAssetCache(hotWeight, weigher, new AssetsListener() {
+            @Override
+            public void onEviction(String resource) {
+                demoted(resource);
+            }
+        });
+        if (coldCapacity / pageSize > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many pages, use larger page size!");
+        }
+        this.pageSize = pageSize;
+        final int count = (int) (coldCapacity / pageSize);
+        this.pages = new ByteBuffer[count];
+        this.free = new int[count];
+        final int pagesPerChunk = MAX_CHUNK_SIZE / pageSize;
+        ByteBuffer chunk = null;
+        for (int i = 0; i < count; i++) {
+            final int offset = i % pagesPerChunk;
+            if (offset == 0) {
+                chunk = ByteBuffer.allocateDirect(Math.min(count - i, pagesPerChunk) * pageSize);
+            }
+            chunk.limit((offset + 1) * pageSize)
+                    .position(offset * pageSize);
+            pages[i] = chunk.slice();
+            free[i] = count - 1 - i;
+        }
+        this.freeCount = count;
+    }
+
+    /**
+     * Creates cache with arena split into 64 KB pages.
+     *
+     * @param resources    the underlying resources
+     * @param hotWeight    the maximum total weight of hot tier
+     * @param weigher      the weigher of decoded assets
+     * @param coldCapacity the size of cold tier arena in bytes
+     */
+    public TieredAssetCache(Resources resources, long hotWeight, Weigher weigher, long coldCapacity) {
+        this(resources, hotWeight, weigher, coldCapacity, DEFAULT_PAGE_SIZE, AssetsListener.NO_OP);
+    }
+
+    /**
+     * @return the resources backed by cold tier
+     */
+    public Resources resources() {
+        return resources;
+    }
+
+    @Override
+    public Object get(String resource) {
+        final Object value = hot.get(resource);
+        if (value != null) {
+            hotHits.increment();
+        } else {
+            hotMisses.increment();
+        }
+        return value;
+    }
+
+    @Override
+    public Pin pin(String resource) {
+        return hot.acquire(resource);
+    }
+
+    @Override
+    public void put(String resource, Object value) {
+        hot.put(resource, value);
+    }
+
+    @Override
+    public boolean remove(String resource) {
+        final boolean removed = hot.remove(resource);
+        return dropCold(resource) || removed;
+    }
+
+    @Override
+    public boolean remove(String resource, Object value) {
+        if (!hot.remove(resource, value)) {
+            return false;
+        }
+        dropCold(resource);
+        return true;
+    }
+
+    /**
+     * Drops entry from both tiers like {@link #remove(String)}, but decoded asset is not closed until returned pin is
+     * closed.
+     */
+    @Override
+    public Pin detach(String resource) {
+        final Pin pin = hot.detach(resource);
+        dropCold(resource);
+        return pin;
+    }
+
+    private boolean dropCold(String resource) {
+        synchronized (lock) {
+            final ColdEntry entry = entries.remove(resource);
+            if (entry == null) {
+                return false;
+            }
+            entry.release();
+            return true;
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            hot.close();
+        } finally {
+            synchronized (lock) {
+                for (ColdEntry entry : entries.values()) {
+                    entry.release();
+                }
+                entries.clear();
+            }
+        }
+    }
+
+    /**
+     * @return the number of lookups served by hot tier
+     */
+    public long hotHits() {
+        return hotHits.sum();
+    }
+
+    /**
+     * @return the number of lookups missed by hot tier
+     */
+    public long hotMisses() {
+        return hotMisses.sum();
+    }
+
+    /**
+     * @return the number of resources served from cold tier (to be decoded and promoted to hot tier)
+     */
+    public long promotions() {
+        return promotions.sum();
+    }
+
+    /**
+     * @return the number of assets evicted from hot tier while their content was kept in cold tier
+     */
+    public long demotions() {
+        return demotions.sum();
+    }
+
+    /**
+     * @return the number of resources opened through {@link #resources()} but not found in cold tier
+     */
+    public long coldMisses() {
+        return coldMisses.sum();
+    }
+
+    /**
+     * @return the number of resources evicted from cold tier to free space
+     */
+    public long coldEvictions() {
+        return coldEvictions.sum();
+    }
+
+    /**
+     * @return the number of bytes of arena in use
+     */
+    public long coldSize() {
+        synchronized (lock) {
+            return (long) (pages.length - freeCount) * pageSize;
+        }
+    }
+
+    /**
+     * @return the hot tier
+     */
+    public BoundedAssetCache hot() {
+        return hot;
+    }
+
+    private void demoted(String resource) {
+        synchronized (lock) {
+            // lookup marks content as recently used
+            if (entries.get(resource) != null) {
+                demotions.increment();
+            }
+        }
+        listener.onEviction(resource);
+    }
+
+    /**
+     * @return the retained entry for resource or {@code null} if not found
+     */
+    private ColdEntry lookup(String resource) {
+        synchronized (lock) {
+            final ColdEntry entry = entries.get(resource);
+            if (entry != null) {
+                entry.retain();
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Allocates pages evicting least recently used entries if necessary. Entries being read are skipped, as evicting them
+     * frees nothing, and nothing is evicted if there is not enough pages to free.
+     *
+     * @return the new entry (with no content yet) or {@code null} if there is not enough free pages
+     */
+    private ColdEntry allocate(int length) {
+        final long required = ((long) length + pageSize - 1) / pageSize;
+        if (required > pages.length) {
+            return null;
+        }
+        final int count = (int) required;
+        synchronized (lock) {
+            if (freeCount + reclaimable(count - freeCount) < count) {
+                // remaining pages are being read
+                return null;
+            }
+            final Iterator<ColdEntry> it = entries.values().iterator();
+            while (freeCount < count) {
+                final ColdEntry victim = it.next();
+                if (victim.isRead()) {
+                    continue;
+                }
+                it.remove();
+                victim.release();
+                coldEvictions.increment();
+            }
+            final int[] indices = new int[count];
+            for (int i = 0; i < count; i++) {
+                indices[i] = free[--freeCount];
+            }
+            return new ColdEntry(indices, length);
+        }
+    }
+
+    /**
+     * Counts pages of least recently used entries which are not being read. Called under lock.
+     *
+     * @param needed the number of pages to stop counting at
+     * @return the number of pages which would be freed by evicting those entries
+     */
+    private int reclaimable(int needed) {
+        int result = 0;
+        for (ColdEntry entry : entries.values()) {
+            if (result >= needed) {
+                break;
+            }
+            if (!entry.isRead()) {
+                result += entry.indices.length;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Called under lock when the last reference to entry is released.
+     */
+    private void freePages(int[] indices) {
+        for (int index : indices) {
+            free[freeCount++] = index;
+        }
+    }
+
+    private final class ColdResources implements Resources {
+
+        @Override
+        public Optional<ReadableByteChannel> open(String resource) throws ResourceException {
+            final ColdEntry cached = lookup(resource);
+            if (cached != null) {
+                promotions.increment();
+                return Optional.of(new PagedChannel(cached));
+            }
+            coldMisses.increment();
+            final Optional<ReadableByteChannel> opened = delegate.open(resource);
+            if (!opened.isPresent()) {
+                return opened;
+            }
+            final ReadableByteChannel channel = opened.get();
+            final long length;
+            try {
+                length = BufferPool.remaining(channel);
+            } catch (IOException e) {
+                close(channel, e);
+                throw new ResourceException("Unable to open " + resource, e);
+            }
+            if (length < 0 || length > Integer.MAX_VALUE) {
+                return opened;
+            }
+            final ColdEntry entry = allocate((int) length);
+            if (entry == null) {
+                return opened;
+            }
+            boolean filled = false;
+            try (ReadableByteChannel c = channel) {
+                entry.fill(c);
+                filled = true;
+            } catch (IOException e) {
+                throw new ResourceException("Unable to read " + resource, e);
+            } finally {
+                if (!filled) {
+                    entry.release();
+                }
+            }
+            synchronized (lock) {
+                final ColdEntry previous = entries.put(resource, entry);
+                if (previous != null) {
+                    previous.release();
+                }
+                entry.retain();
+            }
+            return Optional.of(new PagedChannel(entry));
+        }
+
+        @Override
+        public Optional<ResourceAttributes> attributes(String resource) throws ResourceException {
+            return delegate.attributes(resource);
+        }
+
+        private void close(ReadableByteChannel channel, Exception failure) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                failure.addSuppressed(e);
+            }
+        }
+    }
+
+    /**
+     * Content of resource stored in arena pages. Cold tier holds one reference, each channel reading content holds
+     * another one.
+     */
+    private final class ColdEntry {
+
+        final int[] indices;
+
+        final int length;
+
+        final AtomicInteger references = new AtomicInteger(1);
+
+        ColdEntry(int[] indices, int length) {
+            this.indices = indices;
+            this.length = length;
+        }
+
+        ByteBuffer page(int i) {
+            final ByteBuffer page = pages[indices[i]].duplicate();
+            page.limit(Math.min(pageSize, length - i * pageSize));
+            return page;
+        }
+
+        void fill(ReadableByteChannel channel) throws IOException {
+            for (int i = 0; i < indices.length; i++) {
+                final ByteBuffer page = page(i);
+                if (BufferPool.readFully(channel, page) < page.limit()) {
+                    throw new IOException("Unexpected end of stream");
+                }
+            }
+        }
+
+        void retain() {
+            references.incrementAndGet();
+        }
+
+        /**
+         * References are only added under lock, so entry which is not read stays that way while lock is held.
+         *
+         * @return {@code true} if there are channels reading content
+         */
+        boolean isRead() {
+            return references.get() > 1;
+        }
+
+        void release() {
+            if (references.decrementAndGet() == 0) {
+                synchronized (lock) {
+                    freePages(indices);
+                }
+            }
+        }
+    }
+
+    private final class PagedChannel implements SizedChannel {
+
+        private final ColdEntry entry;
+
+        private int position;
+
+        private boolean open = true;
+
+        private boolean released;
+
+        PagedChannel(ColdEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            if (position >= entry.length) {
+                release();
+                return -1;
+            }
+            int total = 0;
+            while (dst.hasRemaining() && position < entry.length) {
+                final ByteBuffer page = entry.page(position / pageSize);
+                page.position(position % pageSize);
+                final int count = Math.min(page.remaining(), dst.remaining());
+                page.limit(page.position() + count);
+                dst.put(page);
+                position += count;
+                total += count;
+            }
+            if (position >= entry.length) {
+                // content is not needed anymore even if channel is never closed
+                release();
+            }
+            return total;
+        }
+
+        @Override
+        public long remaining() throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            return entry.length - position;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+            release();
+        }
+
+        private void release() {
+            if (!released) {
+                released = true;
+                entry.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.util.function.ToLongFunction;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Calculates weight of cached asset, used by {@link BoundedAssetCache} to limit the total size of cache.
+ * Per-type weighers are composed like this:
+ * <pre>
+ * Weigher weigher = Weigher.unit()
+ *      .with(ByteBuffer.class, ByteBuffer::capacity)
+ *      .with(Texture.class, t -&gt; t.width() * t.height() * 4);
+ * </pre>
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+@FunctionalInterface
+public interface Weigher {
+
+    /**
+     * Calculates weight of value.
+     *
+     * @param value the cached value
+     * @return the non-negative weight of value
+     */
+    long weigh(Object value);
+
+    /**
+     * Creates weigher which uses supplied function for instances of {@code clazz} and this weigher for everything else.
+     *
+     * @param clazz   the asset class
+     * @param weigher the weigher for instances of {@code clazz}
+     * @param <T>     the type of asset
+     * @return the composite weigher
+     */
+    default <T> Weigher with(Class<T> clazz, ToLongFunction<? super T> weigher) {
+        requireNonNull(clazz);
+        requireNonNull(weigher);
+        return value -> clazz.isInstance(value)
+                ? weigher.applyAsLong(clazz.cast(value))
+                : weigh(value);
+    }
+
+    /**
+     * @return the weigher assigning weight of 1 to each value, so maximum weight of cache is a maximum number of entries.
+     */
+    static Weigher unit() {
+        return value -> 1;
+    }
+}
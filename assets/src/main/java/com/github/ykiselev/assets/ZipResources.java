@@ -0,0 +1,465 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Resources stored in zip archive. Archive is memory-mapped once and its central directory is loaded into hash table,
+ * so lookup does not touch file system. Entries stored without compression are read straight from mapped memory
+ * (opened channels implement {@link MappableChannel}), deflated entries are decompressed on the fly while channel is
+ * read. Uncompressed size of entry is known in both cases (see {@link SizedChannel}).
+ * <p>
+ * Each opened channel has its own {@link Inflater} and shares nothing else but read-only mapping, so entries are
+ * decompressed in parallel when loaded from several threads (for example by {@link Assets#preload(Map, int)} of
+ * {@link ManagedAssets}), unlike streams of {@link java.util.zip.ZipFile} which are synchronized on archive.
+ * <p>
+ * Archives are created with {@link #pack(Path, Path, Predicate)}, which allows to store already compressed media
+ * as is. Archives larger than 2 GB, zip64 extensions and encrypted entries are not supported.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class ZipResources implements ListableResources {
+
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+    private static final int CENTRAL_DIRECTORY_ENTRY = 0x02014b50;
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+
+    private static final int LOCAL_HEADER_SIZE = 30;
+
+    private static final int MAX_COMMENT_LENGTH = 0xffff;
+
+    private final ByteBuffer data;
+
+    private final Map<String, Entry> index;
+
+    /**
+     * @param archive the archive file
+     * @throws ResourceException if archive can not be read
+     */
+    public ZipResources(Path archive) throws ResourceException {
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new ResourceException("Archive is too large: " + archive);
+            }
+            this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new ResourceException("Unable to open " + archive, e);
+        }
+        try {
+            this.index = readCentralDirectory(data.duplicate().order(ByteOrder.LITTLE_ENDIAN), archive);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new ResourceException("Corrupted archive: " + archive, e);
+        }
+    }
+
+    private static Map<String, Entry> readCentralDirectory(ByteBuffer buffer, Path archive) throws ResourceException {
+        final int end = findEndOfCentralDirectory(buffer);
+        if (end < 0) {
+            throw new ResourceException("Not a zip archive: " + archive);
+        }
+        final int count = buffer.getShort(end + 10) & 0xffff;
+        final long offset = buffer.getInt(end + 16) & 0xffffffffL;
+        if (count == 0xffff || offset == 0xffffffffL) {
+            throw new ResourceException("Zip64 archives are not supported: " + archive);
+        }
+        final Map<String, Entry> result = new HashMap<>(count * 4 / 3 + 1);
+        int position = (int) offset;
+        for (int i = 0; i < count; i++) {
+            if (buffer.getInt(position) != CENTRAL_DIRECTORY_ENTRY) {
+                throw new ResourceException("Corrupted central directory: " + archive);
+            }
+            final int flags = buffer.getShort(position + 8) & 0xffff;
+            final int method = buffer.getShort(position + 10) & 0xffff;
+            final int time = buffer.getInt(position + 12);
+            final int crc = buffer.getInt(position + 16);
+            final long compressed = buffer.getInt(position + 20) & 0xffffffffL;
+            final long size = buffer.getInt(position + 24) & 0xffffffffL;
+            final int nameLength = buffer.getShort(position + 28) & 0xffff;
+            final int extraLength = buffer.getShort(position + 30) & 0xffff;
+            final int commentLength = buffer.getShort(position + 32) & 0xffff;
+            final long header = buffer.getInt(position + 42) & 0xffffffffL;
+            final byte[] bytes = new byte[nameLength];
+            ((ByteBuffer) buffer.duplicate().position(position + 46)).get(bytes);
+            final String name = new String(bytes, StandardCharsets.UTF_8);
+            position += 46 + nameLength + extraLength + commentLength;
+            if (name.endsWith("/")) {
+                // folder
+                continue;
+            }
+            if (compressed == 0xffffffffL || size == 0xffffffffL || header == 0xffffffffL) {
+                throw new ResourceException("Zip64 entries are not supported: " + name);
+            }
+            if (buffer.getInt((int) header) != LOCAL_HEADER) {
+                throw new ResourceException("Corrupted entry " + name);
+            }
+            // name and extra field in local header may differ from central directory
+            final int start = (int) header + LOCAL_HEADER_SIZE
+                    + (buffer.getShort((int) header + 26) & 0xffff)
+                    + (buffer.getShort((int) header + 28) & 0xffff);
+            if (start + compressed > buffer.limit()
+                    || (method == ZipEntry.STORED && compressed != size)) {
+                throw new ResourceException("Corrupted entry " + name);
+            }
+            result.put(name, new Entry(flags, method, start, (int) compressed, size, time, crc));
+        }
+        return result;
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer buffer) {
+        final int last = buffer.limit() - END_OF_CENTRAL_DIRECTORY_SIZE;
+        final int first = Math.max(0, last - MAX_COMMENT_LENGTH);
+        for (int i = last; i >= first; i--) {
+            if (buffer.getInt(i) == END_OF_CENTRAL_DIRECTORY) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Optional<ReadableByteChannel> open(String resource) throws ResourceException {
+        final Entry entry = index.get(ResourceNames.relative(resource));
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if ((entry.flags & 1) != 0) {
+            throw new ResourceException("Encrypted entries are not supported: " + resource);
+        }
+        final ByteBuffer slice = data.duplicate();
+        slice.limit(entry.offset + entry.length)
+                .position(entry.offset);
+        switch (entry.method) {
+            case ZipEntry.STORED:
+                return Optional.of(new ByteBufferChannel(slice));
+
+            case ZipEntry.DEFLATED:
+                return Optional.of(new InflatingChannel(slice.slice(), entry.size, entry.crc));
+
+            default:
+                throw new ResourceException("Unsupported compression method " + entry.method + " of " + resource);
+        }
+    }
+
+    @Override
+    public Collection<String> names() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    @Override
+    public boolean exists(String resource) {
+        return index.containsKey(ResourceNames.relative(resource));
+    }
+
+    /**
+     * Takes uncompressed size, modification time and CRC-32 of entry from central directory.
+     */
+    @Override
+    public Optional<ResourceAttributes> attributes(String resource) {
+        final Entry entry = index.get(ResourceNames.relative(resource));
+        if (entry == null) {
+            return Optional.empty();
+        }
+        return Optional.of(
+                new ResourceAttributes(entry.size, entry.lastModified(), String.format("crc32:%08x", entry.crc))
+        );
+    }
+
+    /**
+     * @param resource the resource name
+     * @return the uncompressed size of resource or {@code -1} if there is no such resource
+     */
+    public long size(String resource) {
+        final Entry entry = index.get(ResourceNames.relative(resource));
+        return entry != null ? entry.size : -1;
+    }
+
+    /**
+     * Packs all regular files found in {@code folder} (including sub-folders) into zip archive. Resource names are
+     * paths relative to {@code folder} with '/' as separator.
+     *
+     * @param folder  the folder to pack
+     * @param archive the archive file to create (existing file is overwritten)
+     * @param stored  the predicate telling which resources should be stored without compression (like already
+     *                compressed images or audio, which then may be read without copying)
+     * @throws ResourceException if something goes wrong
+     */
+    public static void pack(Path folder, Path archive, Predicate<String> stored) throws ResourceException {
+        final List<Path> files;
+        try (Stream<Path> stream = Files.walk(folder)) {
+            files = stream.filter(Files::isRegularFile)
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException | UncheckedIOException e) {
+            throw new ResourceException("Unable to list " + folder, e);
+        }
+        try (OutputStream os = Files.newOutputStream(archive);
+             ZipOutputStream zip = new ZipOutputStream(os, StandardCharsets.UTF_8)) {
+            for (Path file : files) {
+                final String name = folder.relativize(file)
+                        .toString()
+                        .replace(folder.getFileSystem().getSeparator(), "/");
+                final ZipEntry entry = new ZipEntry(name);
+                entry.setTime(Files.getLastModifiedTime(file).toMillis());
+                final byte[] bytes = Files.readAllBytes(file);
+                if (stored.test(name)) {
+                    final CRC32 crc = new CRC32();
+                    crc.update(bytes);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(bytes.length);
+                    entry.setCompressedSize(bytes.length);
+                    entry.setCrc(crc.getValue());
+                }
+                zip.putNextEntry(entry);
+                zip.write(bytes);
+                zip.closeEntry();
+            }
+        } catch (IOException e) {
+            throw new ResourceException("Unable to write " + archive, e);
+        }
+    }
+
+    /**
+     * Packs all regular files found in {@code folder} into zip archive compressing each of them.
+     *
+     * @param folder  the folder to pack
+     * @param archive the archive file to create (existing file is overwritten)
+     * @throws ResourceException if something goes wrong
+     * @see #pack(Path, Path, Predicate)
+     */
+    public static void pack(Path folder, Path archive) throws ResourceException {
+        pack(folder, archive, name -> false);
+    }
+
+    private static final class Entry {
+
+        final int flags;
+
+        final int method;
+
+        final int offset;
+
+        final int length;
+
+        final long size;
+
+        /**
+         * MS-DOS time (low 16 bits) and date (high 16 bits).
+         */
+        final int time;
+
+        final int crc;
+
+        Entry(int flags, int method, int offset, int length, long size, int time, int crc) {
+            this.flags = flags;
+            this.method = method;
+            this.offset = offset;
+            this.length = length;
+            this.size = size;
+            this.time = time;
+            this.crc = crc;
+        }
+
+        /**
+         * @return the modification time in milliseconds (MS-DOS time is local and has 2 seconds resolution)
+         */
+        long lastModified() {
+            try {
+                return LocalDateTime.of(
+                        ((time >> 25) & 0x7f) + 1980,
+                        (time >> 21) & 0x0f,
+                        (time >> 16) & 0x1f,
+                        (time >> 11) & 0x1f,
+                        (time >> 5) & 0x3f,
+                        (time << 1) & 0x3e
+                ).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            } catch (DateTimeException e) {
+                return ResourceAttributes.UNKNOWN;
+            }
+        }
+    }
+
+    /**
+     * Streams decompressed content of deflated entry. Length and CRC-32 of decompressed content are checked against
+     * central directory when end of compressed data is reached, so corrupted entry fails with {@link IOException}
+     * instead of silently returning wrong content. Inflater is released as soon as end of data is reached (or channel
+     * is closed, whatever happens first).
+     */
+    private static final class InflatingChannel implements SizedChannel {
+
+        private static final int CHUNK = 16 * 1024;
+
+        private final ByteBuffer source;
+
+        private final Inflater inflater = new Inflater(true);
+
+        private final CRC32 checksum = new CRC32();
+
+        private final long size;
+
+        private final int crc;
+
+        private final byte[] input;
+
+        private byte[] output;
+
+        private long written;
+
+        private boolean open = true;
+
+        private boolean finished;
+
+        private boolean padded;
+
+        InflatingChannel(ByteBuffer source, long size, int crc) {
+            this.source = source;
+            this.size = size;
+            this.crc = crc;
+            this.input = new byte[Math.min(CHUNK, Math.max(1, source.remaining()))];
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            if (finished) {
+                return -1;
+            }
+            if (!dst.hasRemaining()) {
+                return 0;
+            }
+            try {
+                for (; ; ) {
+                    final int n;
+                    if (dst.hasArray()) {
+                        final int offset = dst.arrayOffset() + dst.position();
+                        n = inflater.inflate(dst.array(), offset, dst.remaining());
+                        checksum.update(dst.array(), offset, n);
+                        dst.position(dst.position() + n);
+                    } else {
+                        if (output == null) {
+                            output = new byte[CHUNK];
+                        }
+                        n = inflater.inflate(output, 0, Math.min(output.length, dst.remaining()));
+                        checksum.update(output, 0, n);
+                        dst.put(output, 0, n);
+                    }
+                    written += n;
+                    if (written > size) {
+                        throw new IOException("Entry is longer than " + size + " bytes");
+                    }
+                    if (inflater.finished()) {
+                        finish();
+                        return n > 0 ? n : -1;
+                    }
+                    if (n > 0) {
+                        return n;
+                    }
+                    if (inflater.needsDictionary()) {
+                        throw new IOException("Dictionary is required");
+                    }
+                    if (inflater.needsInput()) {
+                        if (source.hasRemaining()) {
+                            final int length = Math.min(input.length, source.remaining());
+                            source.get(input, 0, length);
+                            inflater.setInput(input, 0, length);
+                        } else if (!padded) {
+                            // inflater in "nowrap" mode needs extra dummy byte after compressed data
+                            padded = true;
+                            input[0] = 0;
+                            inflater.setInput(input, 0, 1);
+                        } else {
+                            throw new IOException("Unexpected end of compressed data");
+                        }
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new IOException(e);
+            }
+        }
+
+        private void finish() throws IOException {
+            finished = true;
+            inflater.end();
+            if (written != size) {
+                throw new IOException("Expected " + size + " bytes but got " + written);
+            }
+            if ((int) checksum.getValue() != crc) {
+                throw new IOException(
+                        String.format("CRC-32 mismatch: expected %08x but got %08x", crc, (int) checksum.getValue())
+                );
+            }
+        }
+
+        @Override
+        public long remaining() throws IOException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+            return size - written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            if (open) {
+                open = false;
+                if (!finished) {
+                    inflater.end();
+                }
+            }
+        }
+    }
+}
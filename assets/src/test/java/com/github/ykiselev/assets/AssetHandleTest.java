@@ -0,0 +1,162 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class AssetHandleTest {
+
+    private final Assets delegate = mock(Assets.class);
+
+    private final ManagedAssets assets = new ManagedAssets(delegate);
+
+    private final Queue<Native> created = new ConcurrentLinkedQueue<>();
+
+    private void stub() {
+        when(delegate.tryLoad(eq("n"), eq(Native.class), any(Assets.class)))
+                .thenAnswer(inv -> {
+                    final Native n = new Native();
+                    created.add(n);
+                    return Optional.of(n);
+                });
+    }
+
+    @Test
+    public void shouldFreeWhenLastHandleIsClosed() {
+        stub();
+        final AssetHandle<Native> h1 = assets.acquire("n", Native.class);
+        final AssetHandle<Native> h2 = assets.acquire("n", Native.class);
+        assertSame(h1.get(), h2.get());
+        assertEquals(2, h1.references());
+        h1.close();
+        h1.close();
+        assertFalse(h2.get().isClosed());
+        assertEquals(1, h2.references());
+        final Native n = h2.get();
+        h2.close();
+        assertTrue(n.isClosed());
+        final AssetHandle<Native> h3 = assets.acquire("n", Native.class);
+        assertNotSame(n, h3.get());
+        verify(delegate, times(2)).tryLoad(eq("n"), eq(Native.class), any(Assets.class));
+    }
+
+    @Test
+    public void shouldRetain() {
+        stub();
+        final AssetHandle<Native> h1 = assets.acquire("n", Native.class);
+        final AssetHandle<Native> h2 = h1.retain();
+        h1.close();
+        assertFalse(h2.get().isClosed());
+        h2.close();
+        assertTrue(created.peek().isClosed());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotGetAfterClose() {
+        stub();
+        final AssetHandle<Native> h = assets.acquire("n", Native.class);
+        h.close();
+        h.get();
+    }
+
+    @Test
+    public void shouldNotCountFailedLoads() {
+        when(delegate.tryLoad(eq("m"), eq(Native.class), any(Assets.class)))
+                .thenReturn(Optional.empty());
+        try {
+            assets.acquire("m", Native.class);
+        } catch (ResourceException e) {
+            // expected
+        }
+        stub();
+        final AssetHandle<Native> h = assets.acquire("n", Native.class);
+        assertEquals(1, h.references());
+    }
+
+    @Test
+    public void shouldNeverHandOutClosedAsset() throws Exception {
+        stub();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final AtomicInteger closedSeen = new AtomicInteger();
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        try (AssetHandle<Native> h = assets.acquire("n", Native.class)) {
+                            if (h.get().isClosed()) {
+                                closedSeen.incrementAndGet();
+                            }
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, closedSeen.get());
+        for (Native n : created) {
+            assertTrue(n.isClosed());
+        }
+    }
+
+    private static final class Native implements AutoCloseable {
+
+        private volatile boolean closed;
+
+        boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                throw new IllegalStateException("Already closed!");
+            }
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class AssetStreamTest {
+
+    private final Resources resources = mock(Resources.class);
+
+    private final Assets assets = mock(Assets.class);
+
+    private final ReadableByteChannel channel = mock(ReadableByteChannel.class);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static final StreamingAsset<Integer> INTS = AssetStreamTest::readInts;
+
+    /**
+     * Reads channel in chunks of 4 bytes.
+     */
+    private static void readInts(ReadableByteChannel channel, Assets assets, Consumer<? super Integer> sink) {
+        final ByteBuffer buffer = ByteBuffer.allocate(4);
+        try {
+            while (channel.read(buffer) >= 0) {
+                if (!buffer.hasRemaining()) {
+                    buffer.flip();
+                    sink.accept(buffer.getInt());
+                    buffer.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new ResourceException(e);
+        }
+    }
+
+    private static ReadableByteChannel ints(int count) {
+        final ByteBuffer buffer = ByteBuffer.allocate(count * 4);
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(i);
+        }
+        buffer.flip();
+        return new ByteBufferChannel(buffer);
+    }
+
+    @Test
+    public void shouldStreamChunksInOrder() {
+        when(resources.open("a")).thenReturn(Optional.of(ints(100)));
+        final List<Integer> result = new ArrayList<>();
+        try (AssetStream<Integer> stream = AssetStream.open(resources, "a", INTS, assets, executor, 3).get()) {
+            stream.forEachRemaining(result::add);
+            assertFalse(stream.hasNext());
+        }
+        assertEquals(100, result.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, result.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void shouldReturnNothingIfNotFound() {
+        when(resources.open(anyString())).thenReturn(Optional.empty());
+        assertFalse(AssetStream.open(resources, "a", INTS, assets, executor, 3).isPresent());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void shouldThrowAfterEnd() {
+        when(resources.open("a")).thenReturn(Optional.of(ints(0)));
+        AssetStream.open(resources, "a", INTS, assets, executor, 3).get().next();
+    }
+
+    @Test
+    public void shouldBlockReaderUntilConsumerCatchesUp() throws Exception {
+        when(resources.open("a")).thenReturn(Optional.of(channel));
+        final AtomicInteger produced = new AtomicInteger();
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final StreamingAsset<Integer> reader = (ch, a, sink) -> {
+            for (int i = 0; i < 100; i++) {
+                if (i == 2) {
+                    blocked.countDown();
+                }
+                sink.accept(i);
+                produced.incrementAndGet();
+            }
+        };
+        try (AssetStream<Integer> stream = AssetStream.open(resources, "a", reader, assets, executor, 2).get()) {
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+            Thread.sleep(100);
+            // two chunks in queue, third is waiting for free space
+            assertEquals(2, produced.get());
+            assertEquals(0, stream.next().intValue());
+            int count = 1;
+            while (stream.hasNext()) {
+                assertEquals(count++, stream.next().intValue());
+            }
+            assertEquals(100, count);
+        }
+    }
+
+    @Test
+    public void shouldPropagateFailureAfterChunks() {
+        when(resources.open("a")).thenReturn(Optional.of(channel));
+        final StreamingAsset<String> reader = (ch, a, sink) -> {
+            sink.accept("first");
+            throw new UnsupportedOperationException("oops");
+        };
+        try (AssetStream<String> stream = AssetStream.open(resources, "a", reader, assets, executor, 2).get()) {
+            assertEquals("first", stream.next());
+            try {
+                stream.hasNext();
+                fail();
+            } catch (ResourceException e) {
+                assertTrue(e.getCause() instanceof UnsupportedOperationException);
+            }
+        }
+    }
+
+    @Test
+    public void shouldStopReaderOnClose() throws Exception {
+        when(resources.open("a")).thenReturn(Optional.of(channel));
+        final CountDownLatch stopped = new CountDownLatch(1);
+        final AtomicInteger produced = new AtomicInteger();
+        final StreamingAsset<Integer> reader = (ch, a, sink) -> {
+            try {
+                for (int i = 0; i < 1_000_000; i++) {
+                    sink.accept(i);
+                    produced.incrementAndGet();
+                }
+            } finally {
+                stopped.countDown();
+            }
+        };
+        final AssetStream<Integer> stream = AssetStream.open(resources, "a", reader, assets, executor, 1).get();
+        assertEquals(asList(0, 1), asList(stream.next(), stream.next()));
+        stream.close();
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+        assertTrue(produced.get() < 10);
+        assertFalse(stream.hasNext());
+        verify(channel, timeout(5000)).close();
+    }
+}
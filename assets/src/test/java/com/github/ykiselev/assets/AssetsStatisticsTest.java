@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class AssetsStatisticsTest {
+
+    private final AssetsStatistics statistics = new AssetsStatistics();
+
+    private final Resources resources = resource -> resource.startsWith("/missing")
+            ? Optional.empty()
+            : Optional.of(new ByteBufferChannel(ByteBuffer.wrap(resource.getBytes(StandardCharsets.UTF_8))));
+
+    private final ReadableAssets readers = new CompositeReadableAssets(
+            statistics,
+            new IndexedReadableAssets().register("bin", (channel, assets) -> read(channel)),
+            new IndexedReadableAssets().register("txt", (channel, assets) -> read(channel))
+    );
+
+    private final ManagedAssets assets = new ManagedAssets(
+            new SimpleAssets(resources, readers, statistics),
+            new BoundedAssetCache(2, Weigher.unit(), statistics),
+            ForkJoinPool.commonPool(),
+            statistics
+    );
+
+    @Test
+    public void shouldCollect() {
+        assertEquals("/a.txt", assets.load("/a.txt", String.class));
+        assertEquals("/a.txt", assets.load("/a.txt", String.class));
+        assertEquals("/b.txt", assets.load("/b.txt", String.class));
+        assertEquals("/c.bin", assets.load("/c.bin", String.class));
+        assets.tryLoad("/missing.txt", String.class);
+        assertEquals(1, statistics.hits());
+        assertEquals(4, statistics.misses());
+        // missing resource is not cached, so only a.txt is evicted
+        assertEquals(1, statistics.evictions());
+        assertEquals(4, statistics.loads());
+        assertEquals(0, statistics.failures());
+        assertEquals(0, statistics.inFlight());
+        assertEquals(18, statistics.bytesRead());
+        assertEquals(4, statistics.latency().count());
+        assertEquals(1, statistics.latencyByResource().get("/a.txt").count());
+        assertEquals(4, statistics.latencyByType().get(String.class).count());
+        // a.txt: 2 delegates, b.txt: 1 (remembered), c.bin: 1
+        assertEquals(3, statistics.resolveDepth().count());
+        assertEquals(4, statistics.resolveDepth().sum());
+    }
+
+    @Test
+    public void shouldCountFailures() {
+        final ManagedAssets failing = new ManagedAssets(
+                new SimpleAssets(
+                        resources,
+                        new IndexedReadableAssets().register("txt", (channel, assets) -> {
+                            throw new ResourceException("Broken!");
+                        })
+                ),
+                new BoundedAssetCache(2),
+                ForkJoinPool.commonPool(),
+                statistics
+        );
+        try {
+            failing.load("/x.txt", String.class);
+        } catch (ResourceException e) {
+            // expected
+        }
+        assertEquals(1, statistics.failures());
+        assertEquals(0, statistics.inFlight());
+        assertNotNull(statistics.latencyByType().get(String.class));
+    }
+
+    @Test
+    public void shouldCalculatePercentiles() {
+        final AssetsStatistics.Histogram histogram = new AssetsStatistics.Histogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.count());
+        assertEquals(5050, histogram.sum());
+        assertEquals(50.5, histogram.mean(), 0.001);
+        assertEquals(63, histogram.percentile(50));
+        assertEquals(127, histogram.percentile(99));
+        assertEquals(1, histogram.percentile(0));
+        assertTrue(histogram.percentile(100) >= 100);
+    }
+
+    private static String read(ReadableByteChannel channel) {
+        final ByteBuffer buffer = ByteBuffer.allocate(64);
+        try {
+            while (channel.read(buffer) >= 0) {
+                // keep reading
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.flip();
+        return StandardCharsets.UTF_8.decode(buffer).toString();
+    }
+}
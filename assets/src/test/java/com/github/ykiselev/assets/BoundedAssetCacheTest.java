@@ -0,0 +1,217 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class BoundedAssetCacheTest {
+
+    @Test
+    public void shouldEvictWhenFull() {
+        final BoundedAssetCache cache = new BoundedAssetCache(2);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        assertEquals(2, cache.size());
+        assertNull(cache.get("a"));
+        assertEquals("B", cache.get("b"));
+        assertEquals("C", cache.get("c"));
+    }
+
+    @Test
+    public void shouldRemove() throws Exception {
+        final BoundedAssetCache cache = new BoundedAssetCache(2);
+        final AutoCloseable a = mock(AutoCloseable.class);
+        cache.put("a", a);
+        cache.put("b", "B");
+        assertTrue(cache.remove("a"));
+        assertFalse(cache.remove("a"));
+        verify(a, times(1)).close();
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.weight());
+    }
+
+    @Test
+    public void shouldKeepRecentlyAccessed() {
+        final BoundedAssetCache cache = new BoundedAssetCache(2);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        // a was evicted, b and c had their second chance consumed
+        assertEquals("B", cache.get("b"));
+        cache.put("d", "D");
+        assertEquals("B", cache.get("b"));
+        assertNull(cache.get("c"));
+        assertEquals("D", cache.get("d"));
+    }
+
+    @Test
+    public void shouldWeighByType() {
+        final BoundedAssetCache cache = new BoundedAssetCache(
+                100,
+                Weigher.unit().with(ByteBuffer.class, ByteBuffer::capacity)
+        );
+        cache.put("small", ByteBuffer.allocate(10));
+        cache.put("large", ByteBuffer.allocate(80));
+        cache.put("x", "X");
+        assertEquals(91, cache.weight());
+        cache.put("medium", ByteBuffer.allocate(20));
+        assertNull(cache.get("small"));
+        assertNull(cache.get("large"));
+        assertEquals(21, cache.weight());
+    }
+
+    @Test
+    public void shouldKeepValueHeavierThanCacheUntilNextPut() throws Exception {
+        final BoundedAssetCache cache = new BoundedAssetCache(10, Weigher.unit().with(AutoCloseable.class, v -> 11));
+        final AutoCloseable value = mock(AutoCloseable.class);
+        cache.put("a", "A");
+        cache.put("huge", value);
+        assertNull(cache.get("a"));
+        assertSame(value, cache.get("huge"));
+        assertEquals(11, cache.weight());
+        verify(value, never()).close();
+        cache.put("b", "B");
+        assertNull(cache.get("huge"));
+        assertEquals("B", cache.get("b"));
+        assertEquals(1, cache.weight());
+        verify(value, times(1)).close();
+    }
+
+    @Test
+    public void shouldCloseHeavierThanCacheOnRemove() throws Exception {
+        final BoundedAssetCache cache = new BoundedAssetCache(10, Weigher.unit().with(AutoCloseable.class, v -> 11));
+        final AutoCloseable value = mock(AutoCloseable.class);
+        cache.put("huge", value);
+        assertTrue(cache.remove("huge"));
+        verify(value, times(1)).close();
+    }
+
+    @Test
+    public void shouldCloseEvicted() throws Exception {
+        final BoundedAssetCache cache = new BoundedAssetCache(1);
+        final AutoCloseable a = mock(AutoCloseable.class);
+        cache.put("a", a);
+        cache.put("b", "B");
+        assertNull(cache.get("a"));
+        verify(a, times(1)).close();
+    }
+
+    @Test
+    public void shouldNotCloseEvictedIfDisabled() throws Exception {
+        final BoundedAssetCache cache = new BoundedAssetCache(1, Weigher.unit(), AssetsListener.NO_OP, false);
+        final AutoCloseable a = mock(AutoCloseable.class);
+        final AutoCloseable b = mock(AutoCloseable.class);
+        cache.put("a", a);
+        cache.put("b", b);
+        assertNull(cache.get("a"));
+        cache.close();
+        verify(a, never()).close();
+        verify(b, times(1)).close();
+    }
+
+    @Test
+    public void shouldCloseReplaced() throws Exception {
+        final BoundedAssetCache cache = new BoundedAssetCache(10);
+        final AutoCloseable a = mock(AutoCloseable.class);
+        cache.put("a", a);
+        cache.put("a", "A");
+        verify(a, times(1)).close();
+        assertEquals("A", cache.get("a"));
+    }
+
+    @Test
+    public void shouldNotEvictLeased() throws Exception {
+        final BoundedAssetCache cache = new BoundedAssetCache(1);
+        final AutoCloseable a = mock(AutoCloseable.class);
+        cache.put("a", a);
+        final BoundedAssetCache.Lease lease = cache.acquire("a");
+        assertNotNull(lease);
+        assertSame(a, lease.value());
+        cache.put("b", "B");
+        cache.put("c", "C");
+        assertSame(a, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("C", cache.get("c"));
+        verify(a, never()).close();
+        lease.close();
+        cache.put("d", "D");
+        cache.put("e", "E");
+        assertNull(cache.get("a"));
+        verify(a, times(1)).close();
+    }
+
+    @Test
+    public void shouldNotCloseLeased() throws Exception {
+        final BoundedAssetCache cache = new BoundedAssetCache(1);
+        final AutoCloseable a = mock(AutoCloseable.class);
+        cache.put("a", a);
+        final BoundedAssetCache.Lease lease = cache.acquire("a");
+        assertNotNull(lease);
+        assertTrue(cache.remove("a"));
+        assertNull(cache.acquire("a"));
+        verify(a, never()).close();
+        lease.close();
+        lease.close();
+        verify(a, times(1)).close();
+    }
+
+    @Test
+    public void shouldCloseDetachedWhenLeaseIsClosed() throws Exception {
+        final BoundedAssetCache cache = new BoundedAssetCache(10);
+        final AutoCloseable a = mock(AutoCloseable.class);
+        cache.put("a", a);
+        final BoundedAssetCache.Lease lease = cache.detach("a");
+        assertSame(a, lease.value());
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.weight());
+        verify(a, never()).close();
+        lease.close();
+        verify(a, times(1)).close();
+    }
+
+    @Test
+    public void shouldCloseAll() throws Exception {
+        final BoundedAssetCache cache = new BoundedAssetCache(10);
+        final AutoCloseable a = mock(AutoCloseable.class);
+        final AutoCloseable b = mock(AutoCloseable.class);
+        cache.put("a", a);
+        cache.put("b", b);
+        cache.close();
+        verify(a, times(1)).close();
+        verify(b, times(1)).close();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weight());
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class BufferPoolTest {
+
+    private final BufferPool pool = new BufferPool(64 * 1024, 2);
+
+    private static byte[] bytes(int length) {
+        final byte[] result = new byte[length];
+        new Random(length).nextBytes(result);
+        return result;
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        final byte[] result = new byte[buffer.remaining()];
+        buffer.duplicate().get(result);
+        return result;
+    }
+
+    @Test
+    public void shouldReuseReleasedBuffer() {
+        final ByteBuffer first;
+        try (BufferPool.Buffer buffer = pool.acquire(100)) {
+            first = buffer.buffer();
+            assertTrue(first.isDirect());
+            assertEquals(0, first.position());
+            assertEquals(100, first.limit());
+            first.putInt(1);
+        }
+        try (BufferPool.Buffer buffer = pool.acquire(200)) {
+            assertSame(first, buffer.buffer());
+            assertEquals(0, buffer.buffer().position());
+            assertEquals(200, buffer.buffer().limit());
+        }
+    }
+
+    @Test
+    public void shouldNotReuseBufferReleasedByAnotherThread() throws Exception {
+        final BufferPool.Buffer buffer = pool.acquire(100);
+        final ByteBuffer first = buffer.buffer();
+        final Thread thread = new Thread(buffer::close);
+        thread.start();
+        thread.join();
+        try (BufferPool.Buffer other = pool.acquire(100)) {
+            assertNotSame(first, other.buffer());
+        }
+    }
+
+    @Test
+    public void shouldReuseBufferOfConcurrentPoolReleasedByAnotherThread() throws Exception {
+        final BufferPool concurrent = BufferPool.concurrent(64 * 1024, 2);
+        final BufferPool.Buffer buffer = concurrent.acquire(100);
+        final ByteBuffer first = buffer.buffer();
+        final Thread thread = new Thread(buffer::close);
+        thread.start();
+        thread.join();
+        try (BufferPool.Buffer other = concurrent.acquire(200)) {
+            assertSame(first, other.buffer());
+        }
+    }
+
+    @Test
+    public void shouldGiveDifferentBuffersToNestedAcquisitions() {
+        try (BufferPool.Buffer outer = pool.acquire(10);
+             BufferPool.Buffer inner = pool.acquire(10)) {
+            assertNotSame(outer.buffer(), inner.buffer());
+        }
+    }
+
+    @Test
+    public void shouldNotPoolLargeBuffers() {
+        try (BufferPool.Buffer buffer = pool.acquire(100 * 1024)) {
+            assertFalse(buffer.buffer().isDirect());
+            assertEquals(100 * 1024, buffer.buffer().limit());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotAllowUseAfterRelease() {
+        final BufferPool.Buffer buffer = pool.acquire(10);
+        buffer.close();
+        buffer.buffer();
+    }
+
+    @Test
+    public void shouldReadSizedChannel() {
+        final byte[] content = bytes(10_000);
+        final ByteBufferChannel channel = new ByteBufferChannel(ByteBuffer.wrap(content));
+        try (BufferPool.Buffer buffer = pool.readFully(channel)) {
+            assertArrayEquals(content, toArray(buffer.buffer()));
+        }
+    }
+
+    @Test
+    public void shouldReadChannelOfUnknownLength() {
+        final byte[] content = bytes(100_000);
+        final ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(content));
+        try (BufferPool.Buffer buffer = pool.readFully(channel)) {
+            assertArrayEquals(content, toArray(buffer.buffer()));
+        }
+    }
+
+    @Test
+    public void shouldReadEmptyChannel() {
+        final ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(new byte[0]));
+        try (BufferPool.Buffer buffer = pool.readFully(channel)) {
+            assertEquals(0, buffer.buffer().remaining());
+        }
+        try (BufferPool.Buffer buffer = pool.readFully(new ByteBufferChannel(ByteBuffer.allocate(0)))) {
+            assertEquals(0, buffer.buffer().remaining());
+        }
+    }
+
+    @Test
+    public void shouldReadFullyIntoBuffer() throws Exception {
+        final ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(bytes(10)));
+        final ByteBuffer buffer = ByteBuffer.allocate(8);
+        assertEquals(8, BufferPool.readFully(channel, buffer));
+        buffer.clear();
+        assertEquals(2, BufferPool.readFully(channel, buffer));
+        buffer.clear();
+        assertEquals(-1, BufferPool.readFully(channel, buffer));
+    }
+
+    @Test
+    public void shouldTellRemaining() throws Exception {
+        assertEquals(5, BufferPool.remaining(new ByteBufferChannel(ByteBuffer.allocate(5))));
+        assertEquals(-1, BufferPool.remaining(Channels.newChannel(new ByteArrayInputStream(bytes(5)))));
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class ClassPathResourcesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path dir;
+
+    private Path jar;
+
+    private Path lib;
+
+    private ClassPathResources resources;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = folder.newFolder("classes").toPath();
+        Files.createDirectories(dir.resolve("sub"));
+        Files.write(dir.resolve("sub/a.txt"), bytes("from dir"));
+        lib = folder.getRoot().toPath().resolve("lib.jar");
+        writeJar(lib, null, "c.txt", "from lib");
+        jar = folder.getRoot().toPath().resolve("app.jar");
+        writeJar(jar, "lib.jar", "sub/a.txt", "from jar", "sub/b.txt", "only in jar");
+        resources = new ClassPathResources(Arrays.asList(dir, jar));
+    }
+
+    @After
+    public void tearDown() {
+        resources.close();
+    }
+
+    @Test
+    public void shouldPreferFirstEntry() {
+        assertEquals("from dir", read("sub/a.txt"));
+    }
+
+    @Test
+    public void shouldReadFromJar() {
+        assertEquals("only in jar", read("/sub/b.txt"));
+    }
+
+    @Test
+    public void shouldFollowManifestClassPath() {
+        assertEquals("from lib", read("c.txt"));
+    }
+
+    @Test
+    public void shouldNotFindMissing() {
+        assertFalse(resources.open("sub/missing.txt").isPresent());
+        assertFalse(resources.exists("sub/missing.txt"));
+        assertFalse(resources.attributes("sub/missing.txt").isPresent());
+        assertTrue(resources.exists("sub/b.txt"));
+    }
+
+    @Test
+    public void shouldListNames() {
+        assertEquals(
+                new HashSet<>(Arrays.asList("sub/a.txt", "sub/b.txt", "c.txt", "META-INF/MANIFEST.MF")),
+                new HashSet<>(resources.names())
+        );
+    }
+
+    @Test
+    public void shouldReadAttributes() {
+        assertEquals(11, resources.attributes("sub/b.txt").get().size());
+        assertEquals(8, resources.attributes("sub/a.txt").get().size());
+    }
+
+    @Test
+    public void shouldSkipMissingEntries() {
+        try (ClassPathResources cp = new ClassPathResources(
+                Collections.singletonList(folder.getRoot().toPath().resolve("missing.jar")))) {
+            assertFalse(cp.open("sub/a.txt").isPresent());
+            assertTrue(cp.names().isEmpty());
+        }
+    }
+
+    @Test
+    public void shouldSkipFilesWhichAreNotJars() throws IOException {
+        final Path text = folder.newFile("notes.txt").toPath();
+        Files.write(text, bytes("not a jar"));
+        final Path empty = folder.newFile("empty.jar").toPath();
+        try (ClassPathResources cp = new ClassPathResources(Arrays.asList(text, empty, jar))) {
+            assertEquals("only in jar", read(cp, "sub/b.txt"));
+        }
+    }
+
+    @Test
+    public void shouldIndexClassLoaderClassPath() {
+        try (ClassPathResources cp = new ClassPathResources()) {
+            assertTrue(cp.exists("sample.txt"));
+            assertTrue(cp.exists("/com/github/ykiselev/assets/ClassPathResources.class"));
+        }
+    }
+
+    private String read(String resource) {
+        return read(resources, resource);
+    }
+
+    private static String read(Resources resources, String resource) {
+        try (ReadableByteChannel channel = resources.open(resource).get();
+             BufferPool.Buffer buffer = BufferPool.shared().readFully(channel)) {
+            return StandardCharsets.UTF_8.decode(buffer.buffer()).toString();
+        } catch (IOException e) {
+            throw new ResourceException(e);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void writeJar(Path path, String classPath, String... entries) throws IOException {
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (classPath != null) {
+            manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, classPath);
+        }
+        try (OutputStream os = Files.newOutputStream(path);
+             JarOutputStream jos = new JarOutputStream(os, manifest)) {
+            for (int i = 0; i < entries.length; i += 2) {
+                jos.putNextEntry(new ZipEntry(entries[i]));
+                jos.write(bytes(entries[i + 1]));
+                jos.closeEntry();
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class CompositeReadableAssetsTest {
+
+    @Test
+    public void shouldResolve() {
+        final ReadableAsset<String> rr = (stream, assets) -> null;
+        final ReadableAssets delegate1 = mock(ReadableAssets.class, CALLS_REAL_METHODS);
+        final ReadableAssets delegate2 = mock(ReadableAssets.class, CALLS_REAL_METHODS);
+        when(delegate1.resolve(eq("a"), eq(String.class)))
+                .thenReturn(null);
+        when(delegate2.resolve(eq("a"), eq(String.class)))
+                .thenReturn(rr);
+        final ReadableAssets readableAssets = new CompositeReadableAssets(
+                delegate1,
+                delegate2
+        );
+        assertEquals(
+                rr,
+                readableAssets.resolve("a", String.class)
+        );
+    }
+
+    @Test
+    public void shouldRememberDelegate() {
+        final ReadableAsset<String> rr = (stream, assets) -> null;
+        final ReadableAssets delegate1 = mock(ReadableAssets.class, CALLS_REAL_METHODS);
+        final ReadableAssets delegate2 = mock(ReadableAssets.class, CALLS_REAL_METHODS);
+        when(delegate2.resolve(any(String.class), eq(String.class)))
+                .thenReturn(rr);
+        final ReadableAssets readableAssets = new CompositeReadableAssets(
+                delegate1,
+                delegate2
+        );
+        assertEquals(rr, readableAssets.resolve("a.txt", String.class));
+        assertEquals(rr, readableAssets.resolve("b.txt", String.class));
+        assertEquals(rr, readableAssets.resolve("c/d.txt", String.class));
+        verify(delegate1, times(1)).resolve(any(), any());
+        verify(delegate2, times(3)).resolve(any(), any());
+    }
+
+    @Test
+    public void shouldRescanIfRememberedDelegateFails() {
+        final ReadableAsset<String> rr1 = (stream, assets) -> null;
+        final ReadableAsset<String> rr2 = (stream, assets) -> null;
+        final ReadableAssets delegate1 = mock(ReadableAssets.class, CALLS_REAL_METHODS);
+        final ReadableAssets delegate2 = mock(ReadableAssets.class, CALLS_REAL_METHODS);
+        when(delegate1.resolve(eq("a.txt"), eq(String.class)))
+                .thenReturn(rr1);
+        when(delegate2.resolve(eq("b.txt"), eq(String.class)))
+                .thenReturn(rr2);
+        final ReadableAssets readableAssets = new CompositeReadableAssets(
+                delegate1,
+                delegate2
+        );
+        assertEquals(rr1, readableAssets.resolve("a.txt", String.class));
+        assertEquals(rr2, readableAssets.resolve("b.txt", String.class));
+        assertEquals(rr2, readableAssets.resolve("b.txt", String.class));
+        verify(delegate1, times(2)).resolve(any(), any());
+    }
+
+    @Test
+    public void shouldRememberDelegatePerExtension() {
+        final ReadableAsset<String> rr = (stream, assets) -> null;
+        final ReadableAssets delegate1 = mock(ReadableAssets.class, CALLS_REAL_METHODS);
+        final ReadableAssets delegate2 = mock(ReadableAssets.class, CALLS_REAL_METHODS);
+        when(delegate2.resolve(any(String.class), eq(String.class)))
+                .thenReturn(rr);
+        final ReadableAssets readableAssets = new CompositeReadableAssets(
+                delegate1,
+                delegate2
+        );
+        assertEquals(rr, readableAssets.resolve("a.txt", String.class));
+        assertEquals(rr, readableAssets.resolve("a.tx", String.class));
+        assertEquals(rr, readableAssets.resolve("a.txt2", String.class));
+        assertEquals(rr, readableAssets.resolve("txt", String.class));
+        assertEquals(rr, readableAssets.resolve("b.txt", String.class));
+        assertEquals(rr, readableAssets.resolve("b", String.class));
+        // each new extension is scanned once
+        verify(delegate1, times(4)).resolve(any(), any());
+    }
+
+    @Test
+    public void shouldForgetDelegatesOnInvalidate() {
+        final ReadableAsset<String> rr = (stream, assets) -> null;
+        final ReadableAssets delegate1 = mock(ReadableAssets.class, CALLS_REAL_METHODS);
+        final ReadableAssets delegate2 = mock(ReadableAssets.class, CALLS_REAL_METHODS);
+        when(delegate2.resolve(any(String.class), eq(String.class)))
+                .thenReturn(rr);
+        final CompositeReadableAssets readableAssets = new CompositeReadableAssets(
+                delegate1,
+                delegate2
+        );
+        readableAssets.resolve("a.txt", String.class);
+        readableAssets.invalidate();
+        readableAssets.resolve("a.txt", String.class);
+        verify(delegate1, times(2)).resolve(any(), any());
+    }
+
+    @Test(expected = ResourceException.class)
+    public void shouldFailIfNotResolved() {
+        new CompositeReadableAssets(mock(ReadableAssets.class, CALLS_REAL_METHODS))
+                .resolve("a.txt", String.class);
+    }
+
+    @Test
+    public void shouldReturnNullIfNotResolved() {
+        final ReadableAssets nested = new CompositeReadableAssets(mock(ReadableAssets.class, CALLS_REAL_METHODS));
+        assertNull(new CompositeReadableAssets(nested).tryResolve("a.txt", String.class));
+    }
+}
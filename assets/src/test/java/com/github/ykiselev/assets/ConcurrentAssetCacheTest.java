@@ -0,0 +1,169 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class ConcurrentAssetCacheTest {
+
+    private final ConcurrentAssetCache cache = new ConcurrentAssetCache(4, 2);
+
+    @Test
+    public void shouldPutAndGet() {
+        for (int i = 0; i < 1000; i++) {
+            cache.put("r" + i, i);
+        }
+        assertEquals(1000, cache.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, cache.get("r" + i));
+        }
+        assertNull(cache.get("r1000"));
+    }
+
+    @Test
+    public void shouldReplaceAndCloseOld() throws Exception {
+        final AutoCloseable a = mock(AutoCloseable.class);
+        cache.put("a", a);
+        cache.put("a", a);
+        verify(a, never()).close();
+        cache.put("a", "A");
+        verify(a, times(1)).close();
+        assertEquals("A", cache.get("a"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void shouldRemove() throws Exception {
+        final AutoCloseable a = mock(AutoCloseable.class);
+        for (int i = 0; i < 100; i++) {
+            cache.put("r" + i, i);
+        }
+        cache.put("a", a);
+        assertTrue(cache.remove("a"));
+        assertFalse(cache.remove("a"));
+        verify(a, times(1)).close();
+        assertTrue(cache.remove("r50"));
+        assertNull(cache.get("r50"));
+        assertEquals(49, cache.get("r49"));
+        assertEquals(99, cache.size());
+    }
+
+    @Test
+    public void shouldCloseRemovedWhenLastPinIsClosed() throws Exception {
+        final ConcurrentAssetCache cache = new ConcurrentAssetCache();
+        final AutoCloseable a = mock(AutoCloseable.class);
+        cache.put("a", a);
+        final AssetCache.Pin p1 = cache.pin("a");
+        final AssetCache.Pin p2 = cache.pin("a");
+        assertNull(cache.pin("b"));
+        assertFalse(cache.remove("a", "other"));
+        assertTrue(cache.remove("a", a));
+        p1.close();
+        p1.close();
+        verify(a, never()).close();
+        p2.close();
+        verify(a, times(1)).close();
+    }
+
+    @Test
+    public void shouldNotCloseUnpinnedValueWhenPinIsClosed() throws Exception {
+        final ConcurrentAssetCache cache = new ConcurrentAssetCache();
+        final AutoCloseable a = mock(AutoCloseable.class);
+        cache.put("a", a);
+        cache.pin("a").close();
+        verify(a, never()).close();
+        cache.remove("a");
+        verify(a, times(1)).close();
+    }
+
+    @Test
+    public void shouldCloseDetachedWhenPinIsClosed() throws Exception {
+        final ConcurrentAssetCache cache = new ConcurrentAssetCache();
+        final AutoCloseable a = mock(AutoCloseable.class);
+        cache.put("a", a);
+        final AssetCache.Pin pin = cache.detach("a");
+        assertNull(cache.get("a"));
+        assertNull(cache.detach("a"));
+        verify(a, never()).close();
+        pin.close();
+        pin.close();
+        verify(a, times(1)).close();
+    }
+
+    @Test
+    public void shouldCloseAll() throws Exception {
+        final AutoCloseable a = mock(AutoCloseable.class);
+        final AutoCloseable b = mock(AutoCloseable.class);
+        cache.put("a", a);
+        cache.put("b", b);
+        cache.close();
+        verify(a, times(1)).close();
+        verify(b, times(1)).close();
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void shouldReadWhileWriting() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                final int writer = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        cache.put("w" + writer + "-" + i, i);
+                    }
+                }));
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        final Object value = cache.get("w" + writer + "-" + i);
+                        if (value != null && !value.equals(i)) {
+                            throw new AssertionError("Unexpected value " + value);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(40_000, cache.size());
+        assertEquals(19_999, cache.get("w1-19999"));
+    }
+}
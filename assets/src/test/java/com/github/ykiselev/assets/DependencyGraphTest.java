@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class DependencyGraphTest {
+
+    private final DependencyGraph graph = new DependencyGraph();
+
+    @Test
+    public void shouldCollectTransitiveDependents() {
+        graph.add("model", "material");
+        graph.add("material", "texture");
+        graph.add("model", "texture");
+        graph.add("scene", "model");
+        assertEquals(
+                new LinkedHashSet<>(Arrays.asList("material", "model", "scene")),
+                graph.transitiveDependents("texture")
+        );
+        assertEquals(Collections.emptySet(), graph.transitiveDependents("scene"));
+    }
+
+    @Test
+    public void shouldIgnoreSelfDependency() {
+        graph.add("a", "a");
+        assertEquals(Collections.emptySet(), graph.dependencies("a"));
+    }
+
+    @Test
+    public void shouldStopOnCycles() {
+        graph.add("a", "b");
+        graph.add("b", "a");
+        assertEquals(Collections.singleton("b"), graph.transitiveDependents("a"));
+    }
+
+    @Test
+    public void shouldRemoveDependencies() {
+        graph.add("model", "texture");
+        graph.add("scene", "model");
+        graph.removeDependencies("model");
+        assertEquals(Collections.emptySet(), graph.dependencies("model"));
+        assertEquals(Collections.emptySet(), graph.dependents("texture"));
+        assertEquals(Collections.singleton("scene"), graph.dependents("model"));
+    }
+}
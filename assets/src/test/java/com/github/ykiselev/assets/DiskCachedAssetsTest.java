@@ -0,0 +1,244 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class DiskCachedAssetsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+
+    private Path cache;
+
+    private final UpperCase reader = new UpperCase(1);
+
+    @Before
+    public void setUp() throws IOException {
+        root = folder.newFolder("root").toPath();
+        cache = folder.getRoot().toPath().resolve("cache");
+        Files.write(root.resolve("a.txt"), "hello".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Assets assets(UpperCase reader) {
+        return new DiskCachedAssets(
+                cache,
+                new FileSystemResources(root),
+                new IndexedReadableAssets()
+                        .register("txt", reader)
+                        .register("raw", (channel, assets) -> read(channel))
+        );
+    }
+
+    @Test
+    public void shouldSkipDecodingOnWarmStart() {
+        assertEquals("HELLO", assets(reader).load("a.txt", String.class));
+        assertEquals(1, reader.decoded);
+        final UpperCase warm = new UpperCase(1);
+        assertEquals("HELLO", assets(warm).load("a.txt", String.class));
+        assertEquals(0, warm.decoded);
+        assertEquals(1, warm.cached);
+    }
+
+    @Test
+    public void shouldDecodeChangedResource() throws IOException {
+        final Assets assets = assets(reader);
+        assertEquals("HELLO", assets.load("a.txt", String.class));
+        Files.write(root.resolve("a.txt"), "world".getBytes(StandardCharsets.UTF_8));
+        assertEquals("WORLD", assets.load("a.txt", String.class));
+        assertEquals(2, reader.decoded);
+        assertEquals("WORLD", assets.load("a.txt", String.class));
+        assertEquals(2, reader.decoded);
+    }
+
+    @Test
+    public void shouldNotReadUnchangedResource() throws IOException {
+        final Path file = root.resolve("a.txt");
+        final FileTime time = FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1));
+        Files.setLastModifiedTime(file, time);
+        assertEquals("HELLO", assets(reader).load("a.txt", String.class));
+        // same size and modification time, so content is trusted to be the same
+        Files.write(file, "world".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, time);
+        final UpperCase warm = new UpperCase(1);
+        assertEquals("HELLO", assets(warm).load("a.txt", String.class));
+        assertEquals(0, warm.decoded);
+        // touched resource is checked by content
+        Files.setLastModifiedTime(file, FileTime.fromMillis(time.toMillis() + 1000));
+        assertEquals("WORLD", assets(warm).load("a.txt", String.class));
+        assertEquals(1, warm.decoded);
+    }
+
+    @Test
+    public void shouldTrustAttributesOfTouchedResourceAfterContentCheck() throws IOException {
+        final Path file = root.resolve("a.txt");
+        final long hourAgo = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(1);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(hourAgo));
+        assertEquals("HELLO", assets(reader).load("a.txt", String.class));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(hourAgo + 1000));
+        final UpperCase warm = new UpperCase(1);
+        assertEquals("HELLO", assets(warm).load("a.txt", String.class));
+        assertEquals(0, warm.decoded);
+        // stamp was updated, so content change with the same attributes goes unnoticed
+        Files.write(file, "world".getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(hourAgo + 1000));
+        assertEquals("HELLO", assets(warm).load("a.txt", String.class));
+        assertEquals(0, warm.decoded);
+    }
+
+    @Test
+    public void shouldDecodeIfVersionChanged() {
+        assertEquals("HELLO", assets(reader).load("a.txt", String.class));
+        final UpperCase next = new UpperCase(2);
+        assertEquals("HELLO", assets(next).load("a.txt", String.class));
+        assertEquals(1, next.decoded);
+        assertEquals(0, next.cached);
+    }
+
+    @Test
+    public void shouldReplaceBrokenEntry() throws IOException {
+        assets(reader).load("a.txt", String.class);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cache)) {
+            for (Path file : files) {
+                final byte[] bytes = Files.readAllBytes(file);
+                Files.write(file, Arrays.copyOf(bytes, bytes.length - 2));
+            }
+        }
+        final UpperCase next = new UpperCase(1);
+        assertEquals("HELLO", assets(next).load("a.txt", String.class));
+        assertEquals(1, next.decoded);
+    }
+
+    @Test
+    public void shouldReadNotCacheable() throws IOException {
+        Files.write(root.resolve("b.raw"), "raw".getBytes(StandardCharsets.UTF_8));
+        assertEquals("raw", assets(reader).load("b.raw", String.class));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cache)) {
+            assertFalse(files.iterator().hasNext());
+        }
+    }
+
+    @Test
+    public void shouldReturnEmptyIfReaderReturnsNull() throws IOException {
+        final Assets assets = new DiskCachedAssets(
+                cache,
+                new FileSystemResources(root),
+                new IndexedReadableAssets().register("txt", new UpperCase(1) {
+                    @Override
+                    public String read(ReadableByteChannel channel, Assets assets) {
+                        return null;
+                    }
+                })
+        );
+        assertFalse(assets.tryLoad("a.txt", String.class).isPresent());
+        assertFalse(assets.tryLoad("a.txt", String.class).isPresent());
+    }
+
+    @Test
+    public void shouldNotFindMissing() {
+        assertFalse(assets(reader).tryLoad("c.txt", String.class).isPresent());
+    }
+
+    private static String read(ReadableByteChannel channel) {
+        try (ReadableByteChannel c = channel) {
+            final ByteBuffer buffer = ByteBuffer.allocate(100);
+            while (c.read(buffer) >= 0) {
+                // keep reading
+            }
+            buffer.flip();
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * "Expensive" reader which stores length-prefixed result.
+     */
+    private static class UpperCase implements CacheableAsset<String> {
+
+        private final int version;
+
+        int decoded;
+
+        int cached;
+
+        UpperCase(int version) {
+            this.version = version;
+        }
+
+        @Override
+        public int version() {
+            return version;
+        }
+
+        @Override
+        public String read(ReadableByteChannel channel, Assets assets) throws ResourceException {
+            decoded++;
+            return DiskCachedAssetsTest.read(channel).toUpperCase();
+        }
+
+        @Override
+        public void write(String asset, WritableByteChannel channel) throws ResourceException {
+            final byte[] bytes = asset.getBytes(StandardCharsets.UTF_8);
+            final ByteBuffer buffer = ByteBuffer.allocate(4 + bytes.length).putInt(bytes.length).put(bytes);
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new ResourceException(e);
+            }
+        }
+
+        @Override
+        public String readCached(ReadableByteChannel channel, Assets assets) throws ResourceException {
+            assertTrue(channel instanceof MappableChannel);
+            final ByteBuffer buffer = ((MappableChannel) channel).map();
+            final byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            cached++;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public final class Example {
+
+    public static void main(String[] args) {
+        // 1
+        try (ClassPathResources resources = new ClassPathResources()) {
+            // 2
+            ReadableAssets byClass = new ReadableAssets() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <T> ReadableAsset<T> resolve(String resource, Class<T> clazz) throws ResourceException {
+                    if (String.class.isAssignableFrom(clazz)) {
+                        return (stream, assets) -> (T) readText(stream);
+                    } else {
+                        throw new IllegalArgumentException("Unsupported resource class:" + clazz);
+                    }
+                }
+            };
+            // 3
+            ReadableAssets byExtension = new ReadableAssets() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <T> ReadableAsset<T> resolve(String resource, Class<T> clazz) throws ResourceException {
+                    if (resource.endsWith("text")) {
+                        return (stream, assets) -> (T) readText(stream);
+                    } else {
+                        throw new IllegalArgumentException("Unsupported extension:" + resource);
+                    }
+                }
+            };
+            // Create instance of ManagedAssets which will delegate real work to SimpleAssets
+            ManagedAssets managedAssets = new ManagedAssets(
+                    new SimpleAssets(
+                            resources,
+                            new CompositeReadableAssets(
+                                    byClass,
+                                    byExtension
+                            )
+                    ),
+                    new ConcurrentAssetCache()
+            );
+            // Now we can load assets
+            String AssetByClass = managedAssets.load("/sample.txt", String.class);
+            String AssetByExtension = managedAssets.load("/sample.txt", null);
+            assertEquals("Hello, World!", AssetByClass);
+            assertSame(
+                    AssetByClass,
+                    AssetByExtension
+            );
+        }
+    }
+
+    /**
+     * Reads whole resource into pooled buffer (sized once when channel knows length of resource) and decodes it.
+     */
+    private static String readText(ReadableByteChannel channel) {
+        try (BufferPool.Buffer buffer = BufferPool.shared().readFully(channel)) {
+            return StandardCharsets.UTF_8.decode(buffer.buffer()).toString();
+        }
+    }
+
+}
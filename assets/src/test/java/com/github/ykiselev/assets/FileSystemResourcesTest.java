@@ -0,0 +1,104 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class FileSystemResourcesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Resources resources;
+
+    @Before
+    public void setUp() throws IOException {
+        final Path root = folder.newFolder("root").toPath();
+        Files.createDirectories(root.resolve("sub"));
+        Files.write(root.resolve("sub/a.txt"), "Hello, World!".getBytes(StandardCharsets.UTF_8));
+        Files.write(folder.getRoot().toPath().resolve("secret.txt"), "secret".getBytes(StandardCharsets.UTF_8));
+        resources = new FileSystemResources(root);
+    }
+
+    @Test
+    public void shouldRead() throws IOException {
+        try (ReadableByteChannel channel = resources.open("/sub/a.txt").get()) {
+            final ByteBuffer buffer = ByteBuffer.allocate(100);
+            while (channel.read(buffer) >= 0) {
+                // keep reading
+            }
+            buffer.flip();
+            assertEquals("Hello, World!", StandardCharsets.UTF_8.decode(buffer).toString());
+        }
+    }
+
+    @Test
+    public void shouldMap() throws IOException {
+        try (ReadableByteChannel channel = resources.open("sub/a.txt").get()) {
+            assertTrue(channel instanceof MappableChannel);
+            final ByteBuffer buffer = ((MappableChannel) channel).map();
+            assertTrue(buffer.isReadOnly());
+            assertEquals("Hello, World!", StandardCharsets.UTF_8.decode(buffer).toString());
+        }
+    }
+
+    @Test
+    public void shouldReadAttributes() throws IOException {
+        final Path file = folder.getRoot().toPath().resolve("root/sub/a.txt");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(1_500_000_000_000L));
+        final ResourceAttributes attributes = resources.attributes("/sub/a.txt").get();
+        assertEquals(13, attributes.size());
+        assertEquals(1_500_000_000_000L, attributes.lastModified());
+        assertTrue(attributes.identifiesContent());
+        assertFalse(resources.attributes("sub/b.txt").isPresent());
+        assertFalse(resources.attributes("sub").isPresent());
+        assertFalse(resources.attributes("../secret.txt").isPresent());
+    }
+
+    @Test
+    public void shouldNotFindMissing() {
+        assertFalse(resources.open("sub/b.txt").isPresent());
+    }
+
+    @Test
+    public void shouldNotEscapeRoot() {
+        assertFalse(resources.open("../secret.txt").isPresent());
+    }
+
+    @Test
+    public void shouldNotOpenFolder() {
+        assertFalse(resources.open("sub").isPresent());
+    }
+}
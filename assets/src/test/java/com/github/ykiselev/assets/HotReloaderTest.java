@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class HotReloaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReloadChangedFile() throws Exception {
+        final Path root = folder.newFolder("root").toPath();
+        Files.createDirectories(root.resolve("sub"));
+        final Path file = root.resolve("sub/a.txt");
+        Files.write(file, "first".getBytes(StandardCharsets.UTF_8));
+        try (ManagedAssets assets = new ManagedAssets(
+                new SimpleAssets(
+                        new FileSystemResources(root),
+                        new IndexedReadableAssets().register("txt", (channel, a) -> read(channel))
+                )
+        )) {
+            assertEquals("first", assets.load("sub/a.txt", String.class));
+            final CompletableFuture<String> reloaded = new CompletableFuture<>();
+            // file may be seen half-written and re-loaded more than once
+            assets.subscribe("sub/a.txt", String.class, value -> {
+                if ("second".equals(value)) {
+                    reloaded.complete(value);
+                }
+            });
+            final HotReloader reloader = new HotReloader(root, assets);
+            try {
+                Files.write(file, "second".getBytes(StandardCharsets.UTF_8));
+                // some platforms poll file system, so give it enough time
+                assertEquals("second", reloaded.get(30, TimeUnit.SECONDS));
+            } finally {
+                reloader.close();
+            }
+            assertEquals("second", assets.load("sub/a.txt", String.class));
+        }
+    }
+
+    @Test
+    public void shouldReloadAllFilesIfEventsWereLost() throws Exception {
+        final Path root = folder.newFolder("root").toPath();
+        final Path a = root.resolve("a.txt");
+        final Path b = root.resolve("b.txt");
+        Files.write(a, "a1".getBytes(StandardCharsets.UTF_8));
+        Files.write(b, "b1".getBytes(StandardCharsets.UTF_8));
+        // re-loads are run (and subscribers are notified) by watching thread
+        try (ManagedAssets assets = new ManagedAssets(
+                new SimpleAssets(
+                        new FileSystemResources(root),
+                        new IndexedReadableAssets().register("txt", (channel, x) -> read(channel))
+                ),
+                new ConcurrentAssetCache(),
+                Runnable::run
+        )) {
+            assertEquals("a1", assets.load("a.txt", String.class));
+            assertEquals("b1", assets.load("b.txt", String.class));
+            final CountDownLatch entered = new CountDownLatch(1);
+            final CountDownLatch blocked = new CountDownLatch(1);
+            assets.subscribe("a.txt", String.class, value -> {
+                if ("a2".equals(value)) {
+                    entered.countDown();
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            final CompletableFuture<String> reloaded = new CompletableFuture<>();
+            assets.subscribe("b.txt", String.class, value -> {
+                if ("b2".equals(value)) {
+                    reloaded.complete(value);
+                }
+            });
+            final HotReloader reloader = new HotReloader(root, assets);
+            try {
+                Files.write(a, "a2".getBytes(StandardCharsets.UTF_8));
+                assertTrue(entered.await(30, TimeUnit.SECONDS));
+                // watch key overflows while watching thread is blocked, so change of b.txt is lost
+                for (int i = 0; i < 1000; i++) {
+                    Files.createFile(root.resolve("f" + i + ".txt"));
+                }
+                Files.write(b, "b2".getBytes(StandardCharsets.UTF_8));
+                blocked.countDown();
+                assertEquals("b2", reloaded.get(30, TimeUnit.SECONDS));
+            } finally {
+                reloader.close();
+            }
+        }
+    }
+
+    @Test
+    public void shouldReportFailedReloads() throws Exception {
+        final Path root = folder.newFolder("root").toPath();
+        final Path file = root.resolve("a.txt");
+        Files.write(file, "first".getBytes(StandardCharsets.UTF_8));
+        try (ManagedAssets assets = new ManagedAssets(
+                new SimpleAssets(
+                        new FileSystemResources(root),
+                        new IndexedReadableAssets().register("txt", (channel, a) -> read(channel))
+                )
+        )) {
+            assertEquals("first", assets.load("a.txt", String.class));
+            final IllegalStateException broken = new IllegalStateException("Broken subscriber");
+            assets.subscribe("a.txt", String.class, value -> {
+                throw broken;
+            });
+            final CompletableFuture<Throwable> failed = new CompletableFuture<>();
+            final HotReloader reloader = new HotReloader(root, assets, 50, TimeUnit.MILLISECONDS, new AssetsListener() {
+                @Override
+                public void onReloadFailed(String resource, Throwable error) {
+                    failed.complete(error);
+                }
+            });
+            try {
+                Files.write(file, "second".getBytes(StandardCharsets.UTF_8));
+                assertSame(broken, failed.get(30, TimeUnit.SECONDS));
+            } finally {
+                reloader.close();
+            }
+        }
+    }
+
+    private static String read(ReadableByteChannel channel) {
+        try (ReadableByteChannel c = channel) {
+            final ByteBuffer buffer = ByteBuffer.allocate(100);
+            while (c.read(buffer) >= 0) {
+                // keep reading
+            }
+            buffer.flip();
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class IndexedReadableAssetsTest {
+
+    private final ReadableAsset<ArrayList<?>> arrayLists = (channel, assets) -> new ArrayList<>();
+
+    private final ReadableAsset<String> strings = (channel, assets) -> "";
+
+    private final ReadableAsset<Collection<?>> collections = (channel, assets) -> new ArrayList<>();
+
+    private final ReadableAsset<String> texts = (channel, assets) -> "text";
+
+    @Test
+    public void shouldResolveByExactClass() {
+        final IndexedReadableAssets registry = new IndexedReadableAssets()
+                .register(String.class, strings);
+        assertSame(strings, registry.resolve(String.class));
+        assertNull(registry.resolve(Integer.class));
+    }
+
+    @Test
+    public void shouldResolveBySuperclassesAndInterfaces() {
+        final IndexedReadableAssets registry = new IndexedReadableAssets()
+                .register(ArrayList.class, arrayLists);
+        assertSame(arrayLists, registry.resolve(AbstractList.class));
+        assertSame(arrayLists, registry.resolve(List.class));
+        assertSame(arrayLists, registry.resolve(Collection.class));
+        assertSame(arrayLists, registry.resolve(RandomAccess.class));
+        assertSame(arrayLists, registry.resolve(Iterable.class));
+        assertNull(registry.resolve(Object.class));
+    }
+
+    @Test
+    public void shouldPreferExactRegistration() {
+        final IndexedReadableAssets registry = new IndexedReadableAssets()
+                .register(ArrayList.class, arrayLists)
+                .register(String.class, strings)
+                .register(Collection.class, collections);
+        assertSame(collections, registry.resolve(Collection.class));
+        assertSame(arrayLists, registry.resolve(List.class));
+        // both String and ArrayList are Serializable, the first registered wins
+        assertSame(arrayLists, registry.resolve(Serializable.class));
+    }
+
+    @Test
+    public void shouldResolveByExtension() {
+        final IndexedReadableAssets registry = new IndexedReadableAssets()
+                .register(".txt", texts);
+        assertSame(texts, registry.resolve("/a/b.txt"));
+        assertSame(texts, registry.resolve("/a/b.txt", Integer.class));
+        assertNull(registry.resolve("/a.txt/b"));
+        assertNull(registry.resolve("/a/b.bin"));
+    }
+
+    @Test
+    public void shouldPreferClass() {
+        final IndexedReadableAssets registry = new IndexedReadableAssets()
+                .register(String.class, strings)
+                .register("txt", texts);
+        assertSame(strings, registry.resolve("a.txt", String.class));
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class LoadSchedulerTest {
+
+    private final Resources resources = mock(Resources.class);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    /**
+     * Order in which resources were opened.
+     */
+    private final List<String> opened = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * Opening of resource "gate" waits for this latch.
+     */
+    private final CountDownLatch gate = new CountDownLatch(1);
+
+    private final CountDownLatch gateOpened = new CountDownLatch(1);
+
+    private final ReadableAssets text = new IndexedReadableAssets().register("txt", (channel, assets) -> {
+        try (BufferPool.Buffer buffer = BufferPool.shared().readFully(channel)) {
+            return StandardCharsets.UTF_8.decode(buffer.buffer()).toString();
+        }
+    });
+
+    /**
+     * Resource "root.txt" is decoded from two children loaded with {@link Assets#loadAll(java.util.Collection, Class)}.
+     */
+    private final ReadableAssets family = new IndexedReadableAssets().register("txt", (channel, assets) -> {
+        final String name;
+        try (BufferPool.Buffer buffer = BufferPool.shared().readFully(channel)) {
+            name = StandardCharsets.UTF_8.decode(buffer.buffer()).toString();
+        }
+        if (!name.equals("root.txt")) {
+            return name;
+        }
+        return String.join(",", assets.loadAll(asList("child1.txt", "child2.txt"), String.class));
+    });
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private void setUpResources() {
+        when(resources.open(anyString())).thenAnswer(inv -> {
+            final String resource = inv.getArgument(0);
+            if (resource.startsWith("missing")) {
+                return Optional.empty();
+            }
+            if (resource.equals("gate.txt")) {
+                gateOpened.countDown();
+                assertTrue(gate.await(5, TimeUnit.SECONDS));
+            }
+            opened.add(resource);
+            return Optional.of(new ByteBufferChannel(ByteBuffer.wrap(resource.getBytes(StandardCharsets.UTF_8))));
+        });
+    }
+
+    /**
+     * Creates scheduler with single I/O slot occupied by "gate.txt".
+     */
+    private LoadScheduler blocked(ReadableAssets readableAssets, int decodeLimit) throws InterruptedException {
+        setUpResources();
+        final LoadScheduler scheduler = new LoadScheduler(resources, readableAssets, executor, 1, decodeLimit);
+        scheduler.submit("gate.txt", String.class, LoadScheduler.NORMAL);
+        assertTrue(gateOpened.await(5, TimeUnit.SECONDS));
+        return scheduler;
+    }
+
+    @Test
+    public void shouldLoad() throws Exception {
+        setUpResources();
+        final LoadScheduler scheduler = new LoadScheduler(resources, text, executor, 2, 2);
+        assertEquals("a.txt", scheduler.load("a.txt", String.class));
+        assertEquals("b.txt", scheduler.loadAsync("b.txt", String.class).get(5, TimeUnit.SECONDS));
+        assertFalse(scheduler.tryLoad("missing.txt", String.class).isPresent());
+    }
+
+    @Test
+    public void shouldStartMoreUrgentFirst() throws Exception {
+        final LoadScheduler scheduler = blocked(text, 1);
+        final CompletableFuture<?> low = scheduler.submit("low.txt", String.class, LoadScheduler.PREFETCH);
+        final CompletableFuture<?> normal = scheduler.submit("normal.txt", String.class, LoadScheduler.NORMAL);
+        final CompletableFuture<?> high = scheduler.submit("high.txt", String.class, LoadScheduler.NORMAL + 1);
+        final CompletableFuture<?> lowest = scheduler.submit("lowest.txt", String.class, Integer.MIN_VALUE);
+        gate.countDown();
+        CompletableFuture.allOf(low, normal, high, lowest).get(5, TimeUnit.SECONDS);
+        assertEquals(asList("gate.txt", "high.txt", "normal.txt", "low.txt", "lowest.txt"), opened);
+    }
+
+    @Test
+    public void shouldRaisePriorityOfPendingRequestOnBlockingLoad() throws Exception {
+        final LoadScheduler scheduler = blocked(text, 1);
+        final LoadScheduler.Request<String> first = scheduler.submit("first.txt", String.class, LoadScheduler.PREFETCH);
+        final LoadScheduler.Request<String> second = scheduler.submit("second.txt", String.class, LoadScheduler.PREFETCH);
+        final CompletableFuture<String> blocking = CompletableFuture.supplyAsync(
+                () -> scheduler.load("second.txt", String.class), executor
+        );
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (second.priority() != LoadScheduler.URGENT) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+        gate.countDown();
+        assertEquals("second.txt", blocking.get(5, TimeUnit.SECONDS));
+        first.get(5, TimeUnit.SECONDS);
+        assertEquals(asList("gate.txt", "second.txt", "first.txt"), opened);
+    }
+
+    @Test
+    public void shouldShareRequestOfTheSameResource() throws Exception {
+        final LoadScheduler scheduler = blocked(text, 1);
+        final LoadScheduler.Request<String> a = scheduler.submit("a.txt", String.class, LoadScheduler.PREFETCH);
+        assertTrue(a == scheduler.submit("a.txt", String.class, LoadScheduler.NORMAL));
+        assertEquals(LoadScheduler.NORMAL, a.priority());
+        gate.countDown();
+        assertEquals("a.txt", a.get(5, TimeUnit.SECONDS).get());
+        assertEquals(asList("gate.txt", "a.txt"), opened);
+    }
+
+    @Test
+    public void shouldExpireRequestsPastDeadline() throws Exception {
+        final LoadScheduler scheduler = blocked(text, 1);
+        final LoadScheduler.Request<String> late = scheduler.submit("late.txt", String.class, LoadScheduler.NORMAL,
+                10, TimeUnit.MILLISECONDS);
+        Thread.sleep(50);
+        gate.countDown();
+        try {
+            late.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        verify(resources, never()).open("late.txt");
+    }
+
+    @Test
+    public void shouldExpireRequestsOfStalledQueue() throws Exception {
+        final LoadScheduler scheduler = blocked(text, 1);
+        final LoadScheduler.Request<String> late = scheduler.submit("late.txt", String.class, LoadScheduler.NORMAL,
+                10, TimeUnit.MILLISECONDS);
+        try {
+            // I/O slot is still occupied
+            late.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals(0, scheduler.queued());
+        gate.countDown();
+        verify(resources, never()).open("late.txt");
+    }
+
+    @Test
+    public void shouldCancelQueuedRequest() throws Exception {
+        final LoadScheduler scheduler = blocked(text, 1);
+        final LoadScheduler.Request<String> a = scheduler.submit("a.txt", String.class, LoadScheduler.NORMAL);
+        assertEquals(1, scheduler.queued());
+        assertTrue(a.cancel(false));
+        assertEquals(0, scheduler.queued());
+        gate.countDown();
+        assertEquals("b.txt", scheduler.load("b.txt", String.class));
+        verify(resources, never()).open("a.txt");
+        try {
+            a.join();
+            fail();
+        } catch (CancellationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void shouldReadWhileDecodingIsBusy() throws Exception {
+        setUpResources();
+        final CountDownLatch decoding = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ReadableAssets slow = new IndexedReadableAssets()
+                .register("slow", (channel, assets) -> {
+                    decoding.countDown();
+                    try {
+                        assertTrue(release.await(5, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        throw new ResourceException(e);
+                    }
+                    return "slow";
+                })
+                .register("txt", (channel, assets) -> "txt");
+        final LoadScheduler scheduler = new LoadScheduler(resources, slow, executor, 2, 1);
+        final LoadScheduler.Request<String> first = scheduler.submit("1.slow", String.class, LoadScheduler.NORMAL);
+        assertTrue(decoding.await(5, TimeUnit.SECONDS));
+        final List<LoadScheduler.Request<String>> others = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            others.add(scheduler.submit(i + ".txt", String.class, LoadScheduler.NORMAL));
+        }
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (opened.size() < 3) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+        // reads go on, decoding waits for the only decoding slot
+        assertFalse(others.get(0).isDone());
+        release.countDown();
+        assertEquals("slow", first.get(5, TimeUnit.SECONDS).get());
+        for (LoadScheduler.Request<String> other : others) {
+            assertEquals("txt", other.get(5, TimeUnit.SECONDS).get());
+        }
+    }
+
+    @Test
+    public void shouldNotReadAheadOfDecodingBeyondBacklog() throws Exception {
+        setUpResources();
+        final CountDownLatch decoding = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ReadableAssets slow = new IndexedReadableAssets()
+                .register("slow", (channel, assets) -> {
+                    decoding.countDown();
+                    try {
+                        assertTrue(release.await(5, TimeUnit.SECONDS));
+                    } catch (InterruptedException e) {
+                        throw new ResourceException(e);
+                    }
+                    return "slow";
+                })
+                .register("txt", (channel, assets) -> "txt");
+        final LoadScheduler scheduler = new LoadScheduler(resources, slow, executor, 1, executor, 1, 100, 10);
+        final LoadScheduler.Request<String> first = scheduler.submit("1.slow", String.class, LoadScheduler.NORMAL);
+        assertTrue(decoding.await(5, TimeUnit.SECONDS));
+        final List<LoadScheduler.Request<String>> others = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            others.add(scheduler.submit(i + ".txt", String.class, LoadScheduler.NORMAL));
+        }
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.backlogBytes() < 10) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(1);
+        }
+        Thread.sleep(50);
+        // "0.txt" and "1.txt" fill 10 bytes of backlog
+        assertEquals(asList("1.slow", "0.txt", "1.txt"), opened);
+        // 2 waiting for decoding and 3 for reading
+        assertEquals(5, scheduler.queued());
+        release.countDown();
+        assertEquals("slow", first.get(5, TimeUnit.SECONDS).get());
+        for (LoadScheduler.Request<String> other : others) {
+            assertEquals("txt", other.get(5, TimeUnit.SECONDS).get());
+        }
+        assertEquals(0, scheduler.backlogBytes());
+    }
+
+    @Test
+    public void shouldReadResourcesWhichAreNotMappable() {
+        when(resources.open(anyString())).thenAnswer(inv -> Optional.of(
+                Channels.newChannel(new ByteArrayInputStream(inv.<String>getArgument(0).getBytes(StandardCharsets.UTF_8)))
+        ));
+        final LoadScheduler scheduler = new LoadScheduler(resources, text, executor, 2, 2);
+        assertEquals("a.txt", scheduler.load("a.txt", String.class));
+        assertEquals("b.txt", scheduler.loadAsync("b.txt", String.class).join());
+    }
+
+    @Test
+    public void shouldReturnEmptyIfReaderReturnsNull() throws Exception {
+        setUpResources();
+        final ReadableAssets nothing = new IndexedReadableAssets().register("txt", (channel, assets) -> null);
+        final LoadScheduler scheduler = new LoadScheduler(resources, nothing, executor, 1, 1);
+        assertFalse(scheduler.tryLoadAsync("a.txt", String.class).get(5, TimeUnit.SECONDS).isPresent());
+        assertFalse(scheduler.tryLoad("b.txt", String.class).isPresent());
+    }
+
+    @Test
+    public void shouldLoadSubAssetsInPlace() throws Exception {
+        setUpResources();
+        final AtomicInteger depth = new AtomicInteger();
+        final ReadableAssets nested = new IndexedReadableAssets()
+                .register("txt", (channel, assets) -> {
+                    if (depth.incrementAndGet() < 3) {
+                        return "(" + assets.load("child" + depth.get() + ".txt", String.class) + ")";
+                    }
+                    return "leaf";
+                });
+        // single decoding slot would deadlock if sub-assets were queued
+        final LoadScheduler scheduler = new LoadScheduler(resources, nested, executor, 1, 1);
+        assertEquals("((leaf))", scheduler.loadAsync("root.txt", String.class).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldLoadAllSubAssetsInPlace() throws Exception {
+        setUpResources();
+        final LoadScheduler scheduler = new LoadScheduler(resources, family, executor, 2, 1);
+        assertEquals("child1.txt,child2.txt", scheduler.loadAsync("root.txt", String.class).get(5, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.queued());
+    }
+
+    @Test
+    public void shouldLoadAllSubAssetsThroughManagedAssetsInPlace() throws Exception {
+        setUpResources();
+        // asynchronous loads of managed assets are run by another executor and would be queued behind parent
+        final ManagedAssets managed = new ManagedAssets(new LoadScheduler(resources, family, executor, 2, 1));
+        assertEquals("child1.txt,child2.txt", managed.loadAsync("root.txt", String.class).get(5, TimeUnit.SECONDS));
+        assertEquals(
+                new HashSet<>(asList("child1.txt", "child2.txt")),
+                managed.dependencies().dependencies("root.txt")
+        );
+    }
+
+    @Test
+    public void shouldCancelPendingOnClose() throws Exception {
+        final LoadScheduler scheduler = blocked(text, 1);
+        final LoadScheduler.Request<String> a = scheduler.submit("a.txt", String.class, LoadScheduler.NORMAL);
+        scheduler.close();
+        assertTrue(a.isCancelled());
+        gate.countDown();
+    }
+}
@@ -0,0 +1,756 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class ManagedAssetsTest {
+
+    private Assets delegate = mock(Assets.class);
+
+    private final ManagedAssets assets = new ManagedAssets(
+            delegate,
+            new HashMap<>()
+    );
+
+    @Test
+    public void shouldLoadOnce() {
+        when(delegate.tryLoad(eq("a"), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.of("A"));
+        assertSame(
+                assets.load("a", String.class),
+                assets.load("a", String.class)
+        );
+    }
+
+    @Test
+    public void shouldCloseAutoCloseables() throws Exception {
+        final AutoCloseable a = mock(AutoCloseable.class);
+        when(delegate.tryLoad(eq("ac"), eq(AutoCloseable.class), any(Assets.class)))
+                .thenReturn(Optional.of(a));
+        assertSame(a, assets.load("ac", AutoCloseable.class));
+        assets.close();
+        verify(a, atLeast(1)).close();
+    }
+
+    @Test
+    public void shouldCloseCloseables() throws Exception {
+        final Closeable c = mock(Closeable.class);
+        when(delegate.tryLoad(eq("c"), eq(Closeable.class), any(Assets.class)))
+                .thenReturn(Optional.of(c));
+        assertSame(c, assets.load("c", Closeable.class));
+        assets.close();
+        verify(c, atLeast(1)).close();
+    }
+
+    @Test
+    public void shouldLoadOnceUnderContention() throws Exception {
+        final int threads = 8;
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+        final ManagedAssets concurrent = new ManagedAssets(delegate);
+        when(delegate.tryLoad(eq("x"), eq(Object.class), any(Assets.class)))
+                .thenAnswer(inv -> {
+                    loads.incrementAndGet();
+                    assertTrue(started.await(5, TimeUnit.SECONDS));
+                    Thread.sleep(50);
+                    return Optional.of(new Object());
+                });
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> concurrent.load("x", Object.class)));
+            }
+            started.countDown();
+            final Object first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<Object> result : results) {
+                assertSame(first, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void shouldPropagateFailureToAllWaiters() throws Exception {
+        final CountDownLatch inside = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ResourceException failure = new ResourceException("Broken!");
+        final ManagedAssets concurrent = new ManagedAssets(delegate);
+        when(delegate.tryLoad(eq("f"), eq(String.class), any(Assets.class)))
+                .thenAnswer(inv -> {
+                    inside.countDown();
+                    assertTrue(release.await(5, TimeUnit.SECONDS));
+                    throw failure;
+                });
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<String> loader = executor.submit(() -> concurrent.load("f", String.class));
+            assertTrue(inside.await(5, TimeUnit.SECONDS));
+            final Future<String> waiter = executor.submit(() -> concurrent.load("f", String.class));
+            // give waiter a chance to join in-flight load
+            Thread.sleep(50);
+            release.countDown();
+            for (Future<String> f : Arrays.asList(loader, waiter)) {
+                try {
+                    f.get(5, TimeUnit.SECONDS);
+                    fail("Exception expected!");
+                } catch (ExecutionException e) {
+                    assertSame(failure, e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldNotCacheFailures() {
+        when(delegate.tryLoad(eq("r"), eq(String.class), any(Assets.class)))
+                .thenThrow(new ResourceException("Oops!"))
+                .thenReturn(Optional.of("R"));
+        try {
+            assets.load("r", String.class);
+            fail("Exception expected!");
+        } catch (ResourceException e) {
+            // expected
+        }
+        assertEquals("R", assets.load("r", String.class));
+        verify(delegate, times(2)).tryLoad(eq("r"), eq(String.class), any(Assets.class));
+    }
+
+    @Test(expected = ResourceException.class)
+    public void shouldDetectCircularDependency() {
+        when(delegate.tryLoad(eq("loop"), eq(String.class), any(Assets.class)))
+                .thenAnswer(inv -> assets.tryLoad("loop", String.class));
+        assets.load("loop", String.class);
+    }
+
+    @Test
+    public void shouldDetectCircularDependencyOfAsynchronousLoads() throws Exception {
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final ManagedAssets async = new ManagedAssets(delegate, new ConcurrentAssetCache(), executor);
+            when(delegate.tryLoad(eq("a"), eq(String.class), any(Assets.class)))
+                    .thenAnswer(inv -> {
+                        final Assets a = inv.getArgument(2);
+                        return Optional.of(String.join(",", a.loadAll(Collections.singletonList("b"), String.class)));
+                    });
+            when(delegate.tryLoad(eq("b"), eq(String.class), any(Assets.class)))
+                    .thenAnswer(inv -> {
+                        final Assets a = inv.getArgument(2);
+                        return Optional.of(a.load("a", String.class));
+                    });
+            final CompletableFuture<String> loaded = CompletableFuture.supplyAsync(
+                    () -> async.load("a", String.class),
+                    executor
+            );
+            try {
+                loaded.get(5, TimeUnit.SECONDS);
+                fail("Circular dependency should be detected");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof ResourceException);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldDetectCircularDependencyOfAsynchronousLoadsBothWays() throws Exception {
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final ManagedAssets async = new ManagedAssets(delegate, new ConcurrentAssetCache(), executor);
+            when(delegate.tryLoad(eq("a"), eq(String.class), any(Assets.class)))
+                    .thenAnswer(inv -> {
+                        final Assets a = inv.getArgument(2);
+                        return Optional.of(a.loadAsync("b", String.class).join());
+                    });
+            when(delegate.tryLoad(eq("b"), eq(String.class), any(Assets.class)))
+                    .thenAnswer(inv -> {
+                        final Assets a = inv.getArgument(2);
+                        return Optional.of(a.loadAsync("a", String.class).join());
+                    });
+            try {
+                async.loadAsync("a", String.class).get(5, TimeUnit.SECONDS);
+                fail("Circular dependency should be detected");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof ResourceException);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldLoadAsync() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final ManagedAssets async = new ManagedAssets(delegate, new ConcurrentHashMap<>(), executor);
+            when(delegate.tryLoad(eq("a"), eq(String.class), any(Assets.class)))
+                    .thenReturn(Optional.of("A"));
+            assertEquals("A", async.loadAsync("a", String.class).get(5, TimeUnit.SECONDS));
+            assertSame(
+                    async.load("a", String.class),
+                    async.loadAsync("a", String.class).get(5, TimeUnit.SECONDS)
+            );
+            verify(delegate, times(1)).tryLoad(eq("a"), eq(String.class), any(Assets.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldShareInFlightLoad() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final ManagedAssets async = new ManagedAssets(delegate, new ConcurrentHashMap<>(), executor);
+            when(delegate.tryLoad(eq("s"), eq(Object.class), any(Assets.class)))
+                    .thenAnswer(inv -> {
+                        assertTrue(release.await(5, TimeUnit.SECONDS));
+                        return Optional.of(new Object());
+                    });
+            final CompletableFuture<Object> f1 = async.loadAsync("s", Object.class);
+            final CompletableFuture<Object> f2 = async.loadAsync("s", Object.class);
+            release.countDown();
+            assertSame(f1.get(5, TimeUnit.SECONDS), f2.get(5, TimeUnit.SECONDS));
+            verify(delegate, times(1)).tryLoad(eq("s"), eq(Object.class), any(Assets.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldLoadSubAssetsAsync() throws Exception {
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final ManagedAssets async = new ManagedAssets(delegate, new ConcurrentHashMap<>(), executor);
+            when(delegate.tryLoad(eq("part1"), eq(String.class), any(Assets.class)))
+                    .thenReturn(Optional.of("Hello, "));
+            when(delegate.tryLoad(eq("part2"), eq(String.class), any(Assets.class)))
+                    .thenReturn(Optional.of("World!"));
+            when(delegate.tryLoad(eq("whole"), eq(String.class), any(Assets.class)))
+                    .thenAnswer(inv -> {
+                        final Assets a = inv.getArgument(2);
+                        final CompletableFuture<String> p1 = a.loadAsync("part1", String.class);
+                        final CompletableFuture<String> p2 = a.loadAsync("part2", String.class);
+                        return Optional.of(p1.join() + p2.join());
+                    });
+            assertEquals("Hello, World!", async.loadAsync("whole", String.class).get(5, TimeUnit.SECONDS));
+            assertEquals("World!", async.load("part2", String.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldCompleteExceptionallyIfNotFound() throws Exception {
+        when(delegate.tryLoad(eq("missing"), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.empty());
+        try {
+            assets.loadAsync("missing", String.class).get(5, TimeUnit.SECONDS);
+            fail("Exception expected!");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ResourceException);
+        }
+    }
+
+    @Test
+    public void shouldCloseEvictedAssets() throws Exception {
+        final ManagedAssets bounded = new ManagedAssets(delegate, new BoundedAssetCache(1));
+        final AutoCloseable a = mock(AutoCloseable.class);
+        when(delegate.tryLoad(eq("a"), eq(AutoCloseable.class), any(Assets.class)))
+                .thenReturn(Optional.of(a));
+        when(delegate.tryLoad(eq("b"), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.of("B"));
+        assertSame(a, bounded.load("a", AutoCloseable.class));
+        assertEquals("B", bounded.load("b", String.class));
+        verify(a, times(1)).close();
+    }
+
+    @Test
+    public void shouldNotCloseEvictedAssetsIfDisabled() throws Exception {
+        final ManagedAssets bounded = new ManagedAssets(
+                delegate,
+                new BoundedAssetCache(1, Weigher.unit(), AssetsListener.NO_OP, false)
+        );
+        final AutoCloseable a = mock(AutoCloseable.class);
+        when(delegate.tryLoad(eq("a"), eq(AutoCloseable.class), any(Assets.class)))
+                .thenReturn(Optional.of(a));
+        when(delegate.tryLoad(eq("b"), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.of("B"));
+        assertSame(a, bounded.load("a", AutoCloseable.class));
+        assertEquals("B", bounded.load("b", String.class));
+        assertEquals("B", bounded.load("b", String.class));
+        // caller of plain load may still use evicted asset
+        verify(a, never()).close();
+        verify(delegate, times(1)).tryLoad(eq("b"), eq(String.class), any(Assets.class));
+    }
+
+    @Test
+    public void shouldNotCloseAcquiredAssetOnInvalidate() throws Exception {
+        for (ManagedAssets managed : new ManagedAssets[]{new ManagedAssets(delegate), assets}) {
+            final AutoCloseable a = mock(AutoCloseable.class);
+            when(delegate.tryLoad(eq("a"), eq(AutoCloseable.class), any(Assets.class)))
+                    .thenReturn(Optional.of(a));
+            final AssetHandle<AutoCloseable> handle = managed.acquire("a", AutoCloseable.class);
+            assertEquals(Collections.singleton("a"), managed.invalidate("a"));
+            verify(a, never()).close();
+            assertSame(a, handle.get());
+            handle.close();
+            verify(a, times(1)).close();
+        }
+    }
+
+    @Test
+    public void shouldKeepReloadedAssetWhenLastHandleIsClosed() throws Exception {
+        final AssetCache[] caches = {
+                new ConcurrentAssetCache(),
+                new BoundedAssetCache(10)
+        };
+        for (AssetCache cache : caches) {
+            final ManagedAssets managed = new ManagedAssets(delegate, cache, Runnable::run);
+            final AutoCloseable first = mock(AutoCloseable.class);
+            final AutoCloseable second = mock(AutoCloseable.class);
+            when(delegate.tryLoad(eq("a"), eq(AutoCloseable.class), any(Assets.class)))
+                    .thenReturn(Optional.of(first))
+                    .thenReturn(Optional.of(second));
+            final AssetHandle<AutoCloseable> handle = managed.acquire("a", AutoCloseable.class);
+            managed.reload("a").get(5, TimeUnit.SECONDS);
+            verify(first, never()).close();
+            handle.close();
+            verify(first, times(1)).close();
+            verify(second, never()).close();
+            assertSame(second, managed.load("a", AutoCloseable.class));
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotAcquireFromCacheWhichCanNotPin() {
+        final Map<String, Object> map = new HashMap<>();
+        final ManagedAssets managed = new ManagedAssets(delegate, new AssetCache() {
+            @Override
+            public Object get(String resource) {
+                return map.get(resource);
+            }
+
+            @Override
+            public void put(String resource, Object value) {
+                map.put(resource, value);
+            }
+
+            @Override
+            public boolean remove(String resource) {
+                return map.remove(resource) != null;
+            }
+
+            @Override
+            public void close() {
+                map.clear();
+            }
+        });
+        when(delegate.tryLoad(eq("a"), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.of("A"));
+        managed.acquire("a", String.class);
+    }
+
+    @Test
+    public void shouldNotEvictAcquiredAssets() throws Exception {
+        final ManagedAssets bounded = new ManagedAssets(delegate, new BoundedAssetCache(1));
+        final AutoCloseable a = mock(AutoCloseable.class);
+        when(delegate.tryLoad(eq("a"), eq(AutoCloseable.class), any(Assets.class)))
+                .thenReturn(Optional.of(a));
+        when(delegate.tryLoad(eq("b"), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.of("B"));
+        final AssetHandle<AutoCloseable> handle = bounded.acquire("a", AutoCloseable.class);
+        assertEquals("B", bounded.load("b", String.class));
+        verify(a, never()).close();
+        try (AssetHandle<AutoCloseable> other = bounded.acquire("a", AutoCloseable.class)) {
+            assertSame(a, other.get());
+        }
+        verify(delegate, times(1)).tryLoad(eq("a"), eq(AutoCloseable.class), any(Assets.class));
+        verify(a, never()).close();
+        handle.close();
+        verify(a, times(1)).close();
+    }
+
+    @Test
+    public void shouldNotEvictAssetsWhenProbingMissingResources() {
+        final ManagedAssets bounded = new ManagedAssets(delegate, new BoundedAssetCache(1));
+        when(delegate.tryLoad(eq("a"), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.of("A"));
+        when(delegate.tryLoad(eq("m"), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.empty());
+        assertEquals("A", bounded.load("a", String.class));
+        assertFalse(bounded.tryLoad("m", String.class).isPresent());
+        assertFalse(bounded.tryLoad("m", String.class).isPresent());
+        assertEquals("A", bounded.load("a", String.class));
+        verify(delegate, times(1)).tryLoad(eq("a"), eq(String.class), any(Assets.class));
+        verify(delegate, times(1)).tryLoad(eq("m"), eq(String.class), any(Assets.class));
+    }
+
+    @Test
+    public void shouldForgetMissingOnInvalidate() {
+        when(delegate.tryLoad(eq("m"), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of("M"));
+        assertFalse(assets.tryLoad("m", String.class).isPresent());
+        assertEquals(Collections.singleton("m"), assets.invalidate("m"));
+        assertEquals("M", assets.load("m", String.class));
+    }
+
+    @Test
+    public void shouldRecordDependencies() {
+        when(delegate.tryLoad(eq("texture"), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.of("T"));
+        when(delegate.tryLoad(eq("material"), eq(String.class), any(Assets.class)))
+                .thenAnswer(inv -> {
+                    final Assets a = inv.getArgument(2);
+                    return Optional.of("M" + a.load("texture", String.class));
+                });
+        when(delegate.tryLoad(eq("model"), eq(String.class), any(Assets.class)))
+                .thenAnswer(inv -> {
+                    final Assets a = inv.getArgument(2);
+                    return Optional.of(a.load("material", String.class) + a.load("texture", String.class));
+                });
+        assertEquals("MTT", assets.load("model", String.class));
+        final DependencyGraph graph = assets.dependencies();
+        assertEquals(new HashSet<>(Arrays.asList("material", "texture")), graph.dependencies("model"));
+        assertEquals(Collections.singleton("texture"), graph.dependencies("material"));
+        assertEquals(Collections.emptySet(), graph.dependencies("texture"));
+        assertEquals(new HashSet<>(Arrays.asList("material", "model")), graph.dependents("texture"));
+        assertEquals(Collections.singleton("model"), graph.transitiveDependents("material"));
+    }
+
+    @Test
+    public void shouldLoadSiblingsInParallel() throws Exception {
+        final int count = 8;
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            final ManagedAssets async = new ManagedAssets(delegate, new ConcurrentHashMap<>(), executor);
+            // each texture completes only when all of them are being loaded at the same time
+            final CyclicBarrier barrier = new CyclicBarrier(count);
+            final List<String> textures = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                final String name = "texture" + i;
+                textures.add(name);
+                when(delegate.tryLoad(eq(name), eq(String.class), any(Assets.class)))
+                        .thenAnswer(inv -> {
+                            barrier.await(5, TimeUnit.SECONDS);
+                            return Optional.of(name.toUpperCase());
+                        });
+            }
+            when(delegate.tryLoad(eq("model"), eq(String.class), any(Assets.class)))
+                    .thenAnswer(inv -> {
+                        final Assets a = inv.getArgument(2);
+                        return Optional.of(String.join(",", a.loadAll(textures, String.class)));
+                    });
+            assertEquals(
+                    "TEXTURE0,TEXTURE1,TEXTURE2,TEXTURE3,TEXTURE4,TEXTURE5,TEXTURE6,TEXTURE7",
+                    async.load("model", String.class)
+            );
+            assertEquals(new HashSet<>(textures), async.dependencies().dependencies("model"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = ResourceException.class)
+    public void shouldFailLoadAllIfAnyIsMissing() {
+        when(delegate.tryLoad(eq("a"), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.of("A"));
+        when(delegate.tryLoad(eq("b"), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.empty());
+        assets.loadAll(Arrays.asList("a", "b"), String.class);
+    }
+
+    @Test
+    public void shouldReloadOnlyDependents() throws Exception {
+        final ManagedAssets managed = new ManagedAssets(delegate);
+        final AtomicInteger version = new AtomicInteger(1);
+        when(delegate.tryLoad(eq("texture"), eq(String.class), any(Assets.class)))
+                .thenAnswer(inv -> Optional.of("T" + version.get()));
+        when(delegate.tryLoad(eq("other"), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.of("O"));
+        when(delegate.tryLoad(eq("material"), eq(String.class), any(Assets.class)))
+                .thenAnswer(inv -> {
+                    final Assets a = inv.getArgument(2);
+                    return Optional.of("M" + a.load("texture", String.class));
+                });
+        when(delegate.tryLoad(eq("model"), eq(String.class), any(Assets.class)))
+                .thenAnswer(inv -> {
+                    final Assets a = inv.getArgument(2);
+                    return Optional.of(a.load("material", String.class) + a.load("other", String.class));
+                });
+        assertEquals("MT1O", managed.load("model", String.class));
+        final List<String> models = new ArrayList<>();
+        final List<String> others = new ArrayList<>();
+        managed.subscribe("model", String.class, models::add);
+        final ManagedAssets.Subscription subscription = managed.subscribe("other", String.class, others::add);
+        try {
+            version.set(2);
+            managed.reload("texture").get(5, TimeUnit.SECONDS);
+        } finally {
+            subscription.close();
+        }
+        assertEquals(Collections.singletonList("MT2O"), models);
+        assertEquals(Collections.emptyList(), others);
+        assertEquals("MT2O", managed.load("model", String.class));
+        verify(delegate, times(2)).tryLoad(eq("texture"), eq(String.class), any(Assets.class));
+        verify(delegate, times(2)).tryLoad(eq("material"), eq(String.class), any(Assets.class));
+        verify(delegate, times(2)).tryLoad(eq("model"), eq(String.class), any(Assets.class));
+        verify(delegate, times(1)).tryLoad(eq("other"), eq(String.class), any(Assets.class));
+    }
+
+    @Test
+    public void shouldCloseOldInstanceAfterNotifyingSubscribers() throws Exception {
+        final ManagedAssets managed = new ManagedAssets(delegate, new ConcurrentAssetCache(), Runnable::run);
+        final AtomicInteger closed = new AtomicInteger();
+        final AutoCloseable first = closed::incrementAndGet;
+        final AutoCloseable second = mock(AutoCloseable.class);
+        when(delegate.tryLoad(eq("a"), eq(AutoCloseable.class), any(Assets.class)))
+                .thenReturn(Optional.of(first))
+                .thenReturn(Optional.of(second));
+        assertSame(first, managed.load("a", AutoCloseable.class));
+        final List<Integer> closedOnNotify = new ArrayList<>();
+        managed.subscribe("a", AutoCloseable.class, value -> {
+            assertSame(second, value);
+            // old instance is still usable while subscribers switch to new one
+            closedOnNotify.add(closed.get());
+        });
+        managed.reload("a").get(5, TimeUnit.SECONDS);
+        assertEquals(Collections.singletonList(0), closedOnNotify);
+        assertEquals(1, closed.get());
+        verify(second, never()).close();
+        assertSame(second, managed.load("a", AutoCloseable.class));
+    }
+
+    @Test
+    public void shouldCloseOldDependencyAfterDependentsAreReloaded() throws Exception {
+        final ManagedAssets managed = new ManagedAssets(delegate, new ConcurrentAssetCache(), Runnable::run);
+        final AtomicInteger closed = new AtomicInteger();
+        final AutoCloseable first = closed::incrementAndGet;
+        final AutoCloseable second = mock(AutoCloseable.class);
+        when(delegate.tryLoad(eq("texture"), eq(AutoCloseable.class), any(Assets.class)))
+                .thenReturn(Optional.of(first))
+                .thenReturn(Optional.of(second));
+        final List<Integer> closedOnLoad = new ArrayList<>();
+        when(delegate.tryLoad(eq("material"), eq(String.class), any(Assets.class)))
+                .thenAnswer(inv -> {
+                    final Assets a = inv.getArgument(2);
+                    a.load("texture", AutoCloseable.class);
+                    closedOnLoad.add(closed.get());
+                    return Optional.of("M");
+                });
+        assertEquals("M", managed.load("material", String.class));
+        managed.reload("texture").get(5, TimeUnit.SECONDS);
+        // old material may still refer to old texture while being re-loaded
+        assertEquals(Arrays.asList(0, 0), closedOnLoad);
+        assertEquals(1, closed.get());
+        verify(second, never()).close();
+    }
+
+    @Test
+    public void shouldInvalidate() throws Exception {
+        final AutoCloseable a = mock(AutoCloseable.class);
+        when(delegate.tryLoad(eq("a"), eq(AutoCloseable.class), any(Assets.class)))
+                .thenReturn(Optional.of(a));
+        assets.load("a", AutoCloseable.class);
+        assertEquals(Collections.singleton("a"), assets.invalidate("a"));
+        assertEquals(Collections.emptySet(), assets.invalidate("a"));
+        verify(a, times(1)).close();
+    }
+
+    @Test
+    public void shouldRememberMissingForeverByDefault() {
+        when(delegate.tryLoad(eq("m"), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.empty());
+        assertFalse(assets.tryLoad("m", String.class).isPresent());
+        assertFalse(assets.tryLoad("m", String.class).isPresent());
+        verify(delegate, times(1)).tryLoad(eq("m"), eq(String.class), any(Assets.class));
+    }
+
+    @Test
+    public void shouldForgetMissingAfterTtl() throws Exception {
+        final ManagedAssets managed = new ManagedAssets(
+                delegate,
+                new ConcurrentAssetCache(),
+                Runnable::run,
+                AssetsListener.NO_OP,
+                50,
+                TimeUnit.MILLISECONDS
+        );
+        when(delegate.tryLoad(eq("m"), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of("M"));
+        assertFalse(managed.tryLoad("m", String.class).isPresent());
+        assertFalse(managed.tryLoad("m", String.class).isPresent());
+        Thread.sleep(100);
+        assertEquals("M", managed.load("m", String.class));
+        verify(delegate, times(2)).tryLoad(eq("m"), eq(String.class), any(Assets.class));
+    }
+
+    @Test
+    public void shouldForgetOldestMissingWhenFull() {
+        final ManagedAssets managed = new ManagedAssets(
+                delegate,
+                new ConcurrentAssetCache(),
+                Runnable::run,
+                AssetsListener.NO_OP,
+                Long.MAX_VALUE,
+                TimeUnit.NANOSECONDS,
+                2
+        );
+        when(delegate.tryLoad(anyString(), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.empty());
+        for (String name : Arrays.asList("a", "b", "c", "b", "c")) {
+            assertFalse(managed.tryLoad(name, String.class).isPresent());
+        }
+        verify(delegate, times(1)).tryLoad(eq("a"), eq(String.class), any(Assets.class));
+        verify(delegate, times(1)).tryLoad(eq("b"), eq(String.class), any(Assets.class));
+        verify(delegate, times(1)).tryLoad(eq("c"), eq(String.class), any(Assets.class));
+        assertFalse(managed.tryLoad("a", String.class).isPresent());
+        verify(delegate, times(2)).tryLoad(eq("a"), eq(String.class), any(Assets.class));
+    }
+
+    @Test
+    public void shouldForgetExpiredMissingBeforeLiveOnes() throws Exception {
+        final ManagedAssets managed = new ManagedAssets(
+                delegate,
+                new ConcurrentAssetCache(),
+                Runnable::run,
+                AssetsListener.NO_OP,
+                50,
+                TimeUnit.MILLISECONDS,
+                2
+        );
+        when(delegate.tryLoad(anyString(), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.empty());
+        assertFalse(managed.tryLoad("a", String.class).isPresent());
+        Thread.sleep(100);
+        assertFalse(managed.tryLoad("b", String.class).isPresent());
+        assertFalse(managed.tryLoad("c", String.class).isPresent());
+        assertFalse(managed.tryLoad("b", String.class).isPresent());
+        assertFalse(managed.tryLoad("c", String.class).isPresent());
+        verify(delegate, times(1)).tryLoad(eq("b"), eq(String.class), any(Assets.class));
+        verify(delegate, times(1)).tryLoad(eq("c"), eq(String.class), any(Assets.class));
+    }
+
+    @Test
+    public void shouldNotRememberMissingIfLimitIsZero() {
+        final ManagedAssets managed = new ManagedAssets(
+                delegate,
+                new ConcurrentAssetCache(),
+                Runnable::run,
+                AssetsListener.NO_OP,
+                Long.MAX_VALUE,
+                TimeUnit.NANOSECONDS,
+                0
+        );
+        when(delegate.tryLoad(eq("m"), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.empty());
+        assertFalse(managed.tryLoad("m", String.class).isPresent());
+        assertFalse(managed.tryLoad("m", String.class).isPresent());
+        verify(delegate, times(2)).tryLoad(eq("m"), eq(String.class), any(Assets.class));
+    }
+
+    @Test
+    public void shouldNotRememberMissingIfTtlIsZero() {
+        final ManagedAssets managed = new ManagedAssets(
+                delegate,
+                new ConcurrentAssetCache(),
+                Runnable::run,
+                AssetsListener.NO_OP,
+                0,
+                TimeUnit.MILLISECONDS
+        );
+        when(delegate.tryLoad(eq("m"), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.empty());
+        assertFalse(managed.tryLoad("m", String.class).isPresent());
+        assertFalse(managed.tryLoad("m", String.class).isPresent());
+        verify(delegate, times(2)).tryLoad(eq("m"), eq(String.class), any(Assets.class));
+    }
+
+    @Test
+    public void shouldNotAllocateOnCacheHit() {
+        final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean mxBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(mxBean.isThreadAllocatedMemorySupported() && mxBean.isThreadAllocatedMemoryEnabled());
+        final ManagedAssets bounded = new ManagedAssets(delegate, new BoundedAssetCache(10));
+        for (ManagedAssets managed : new ManagedAssets[]{assets, bounded}) {
+            when(delegate.tryLoad(eq("a"), eq(String.class), any(Assets.class)))
+                    .thenReturn(Optional.of("A"));
+            managed.load("a", String.class);
+            final long id = Thread.currentThread().getId();
+            long allocated = Long.MAX_VALUE;
+            // first rounds may allocate while code is being compiled
+            for (int round = 0; round < 10 && allocated > 0; round++) {
+                final long before = mxBean.getThreadAllocatedBytes(id);
+                for (int i = 0; i < 100_000; i++) {
+                    managed.load("a", String.class);
+                }
+                allocated = mxBean.getThreadAllocatedBytes(id) - before;
+            }
+            assertEquals(0, allocated);
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class OverlayResourcesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path base;
+
+    private Path mod;
+
+    private FileSystemResources baseLayer;
+
+    private FileSystemResources modLayer;
+
+    private OverlayResources resources;
+
+    @Before
+    public void setUp() throws IOException {
+        base = folder.newFolder("base").toPath();
+        mod = folder.newFolder("mod").toPath();
+        write(base, "a.txt", "base a");
+        write(base, "sub/b.txt", "base b");
+        write(mod, "sub/b.txt", "mod b");
+        write(mod, "c.txt", "mod c");
+        baseLayer = new FileSystemResources(base);
+        modLayer = new FileSystemResources(mod);
+        resources = new OverlayResources(modLayer, baseLayer);
+    }
+
+    private static void write(Path root, String name, String content) throws IOException {
+        final Path file = root.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String read(String resource) throws IOException {
+        try (ReadableByteChannel channel = resources.open(resource).get()) {
+            final ByteBuffer buffer = ByteBuffer.allocate(100);
+            while (channel.read(buffer) >= 0) {
+                // keep reading
+            }
+            buffer.flip();
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        }
+    }
+
+    @Test
+    public void shouldPreferFirstLayer() throws IOException {
+        assertEquals("base a", read("a.txt"));
+        assertEquals("mod b", read("/sub/b.txt"));
+        assertEquals("mod c", read("c.txt"));
+        assertSame(modLayer, resources.layerOf("sub/b.txt"));
+        assertEquals(new HashSet<>(Arrays.asList("a.txt", "sub/b.txt", "c.txt")), resources.names());
+    }
+
+    @Test
+    public void shouldReadAttributesOfFirstLayer() {
+        assertEquals(5, resources.attributes("sub/b.txt").get().size());
+        assertEquals(6, resources.attributes("/a.txt").get().size());
+        assertFalse(resources.attributes("d.txt").isPresent());
+    }
+
+    @Test
+    public void shouldNotProbeLayersForMissing() {
+        final ListableResources layer = mock(ListableResources.class);
+        when(layer.names()).thenReturn(Collections.singletonList("x"));
+        final OverlayResources overlay = new OverlayResources(layer);
+        assertFalse(overlay.open("y").isPresent());
+        verify(layer, never()).open(anyString());
+        verify(layer, never()).exists(anyString());
+    }
+
+    @Test
+    public void shouldUpdateSingleResource() throws IOException {
+        write(base, "d.txt", "base d");
+        assertFalse(resources.exists("d.txt"));
+        resources.update("d.txt");
+        assertEquals("base d", read("d.txt"));
+        Files.delete(mod.resolve("sub/b.txt"));
+        resources.update("/sub/b.txt");
+        assertEquals("base b", read("sub/b.txt"));
+    }
+
+    @Test
+    public void shouldRefreshLayer() throws IOException {
+        write(mod, "a.txt", "mod a");
+        write(mod, "e.txt", "mod e");
+        Files.delete(mod.resolve("c.txt"));
+        resources.refresh(modLayer);
+        assertEquals("mod a", read("a.txt"));
+        assertEquals("mod e", read("e.txt"));
+        assertFalse(resources.open("c.txt").isPresent());
+    }
+
+    @Test
+    public void shouldStackPackedLayer() throws IOException {
+        final Path archive = folder.getRoot().toPath().resolve("base.pak");
+        PackedResources.pack(base, archive);
+        resources = new OverlayResources(modLayer, new PackedResources(archive));
+        assertEquals("base a", read("a.txt"));
+        assertEquals("mod b", read("sub/b.txt"));
+    }
+}
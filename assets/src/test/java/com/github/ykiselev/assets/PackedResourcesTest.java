@@ -0,0 +1,134 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class PackedResourcesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path archive;
+
+    @Before
+    public void setUp() throws IOException {
+        final Path root = folder.newFolder("root").toPath();
+        Files.createDirectories(root.resolve("sub"));
+        Files.write(root.resolve("a.txt"), "Hello, World!".getBytes(StandardCharsets.UTF_8));
+        Files.write(root.resolve("sub/b.bin"), new byte[]{1, 2, 3});
+        Files.write(root.resolve("sub/empty"), new byte[0]);
+        archive = folder.getRoot().toPath().resolve("test.pak");
+        PackedResources.pack(root, archive);
+    }
+
+    @Test
+    public void shouldReadAttributes() throws IOException {
+        final PackedResources resources = new PackedResources(archive);
+        final ResourceAttributes attributes = resources.attributes("/sub/b.bin").get();
+        assertEquals(3, attributes.size());
+        assertEquals(Files.getLastModifiedTime(archive).toMillis(), attributes.lastModified());
+        assertEquals(0, resources.attributes("sub/empty").get().size());
+        assertFalse(resources.attributes("c.txt").isPresent());
+    }
+
+    @Test
+    public void shouldRead() throws IOException {
+        final PackedResources resources = new PackedResources(archive);
+        assertEquals(3, resources.size());
+        assertEquals("Hello, World!", read(resources, "/a.txt"));
+        assertEquals("", read(resources, "sub/empty"));
+        try (ReadableByteChannel channel = resources.open("sub/b.bin").get()) {
+            final ByteBuffer buffer = ((MappableChannel) channel).map();
+            assertEquals(3, buffer.remaining());
+            assertEquals(1, buffer.get(0));
+            assertEquals(3, buffer.get(2));
+        }
+    }
+
+    @Test
+    public void shouldNotFindMissing() {
+        assertFalse(new PackedResources(archive).open("b.bin").isPresent());
+    }
+
+    @Test(expected = ResourceException.class)
+    public void shouldRejectForeignFile() throws IOException {
+        final Path file = folder.newFile("foreign").toPath();
+        Files.write(file, "Not an archive at all".getBytes(StandardCharsets.UTF_8));
+        new PackedResources(file);
+    }
+
+    @Test(expected = ResourceException.class)
+    public void shouldRejectNegativeCount() throws IOException {
+        new PackedResources(patch(8, -1));
+    }
+
+    @Test(expected = ResourceException.class)
+    public void shouldRejectHugeCount() throws IOException {
+        new PackedResources(patch(8, Integer.MAX_VALUE));
+    }
+
+    @Test(expected = ResourceException.class)
+    public void shouldRejectNameHashMismatch() throws IOException {
+        new PackedResources(patch(12, "a.txt".hashCode() + 1));
+    }
+
+    /**
+     * Overwrites int value of archive header.
+     */
+    private Path patch(int position, int value) throws IOException {
+        final byte[] bytes = Files.readAllBytes(archive);
+        ByteBuffer.wrap(bytes)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(position, value);
+        final Path result = folder.getRoot().toPath().resolve("patched.pak");
+        Files.write(result, bytes);
+        return result;
+    }
+
+    private static String read(Resources resources, String resource) throws IOException {
+        try (ReadableByteChannel channel = resources.open(resource).get()) {
+            final ByteBuffer buffer = ByteBuffer.allocate(7);
+            final StringBuilder sb = new StringBuilder();
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                sb.append(StandardCharsets.UTF_8.decode(buffer));
+                buffer.clear();
+            }
+            assertTrue(channel.isOpen());
+            return sb.toString();
+        }
+    }
+}
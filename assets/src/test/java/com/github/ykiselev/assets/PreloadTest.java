@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class PreloadTest {
+
+    private final Assets delegate = mock(Assets.class);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final ManagedAssets assets = new ManagedAssets(delegate, new ConcurrentHashMap<>(), executor);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private static Map<String, Class<?>> manifest(int count) {
+        final Map<String, Class<?>> result = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            result.put("r" + i, String.class);
+        }
+        return result;
+    }
+
+    @Test
+    public void shouldLoadAllAndReportProgress() throws Exception {
+        when(delegate.tryLoad(anyString(), eq(String.class), any(Assets.class)))
+                .thenAnswer(inv -> Optional.of(inv.getArgument(0).toString().toUpperCase()));
+        final List<Integer> progress = new ArrayList<>();
+        final Preload preload = assets.preload(manifest(10), 3, (resource, completed, total) -> {
+            synchronized (progress) {
+                progress.add(completed);
+            }
+            assertEquals(10, total);
+        });
+        preload.get(5, TimeUnit.SECONDS);
+        assertEquals(10, preload.completed());
+        assertEquals(10, progress.size());
+        assertTrue(progress.contains(10));
+        assertEquals("R7", assets.load("r7", String.class));
+        verify(delegate, times(1)).tryLoad(eq("r7"), eq(String.class), any(Assets.class));
+    }
+
+    @Test
+    public void shouldLimitParallelism() throws Exception {
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger max = new AtomicInteger();
+        when(delegate.tryLoad(anyString(), eq(String.class), any(Assets.class)))
+                .thenAnswer(inv -> {
+                    max.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    Thread.sleep(10);
+                    active.decrementAndGet();
+                    return Optional.of("x");
+                });
+        assets.preload(manifest(12), 2).get(5, TimeUnit.SECONDS);
+        assertTrue(max.get() <= 2);
+        verify(delegate, times(12)).tryLoad(anyString(), eq(String.class), any(Assets.class));
+    }
+
+    @Test
+    public void shouldCollectFailures() throws Exception {
+        when(delegate.tryLoad(anyString(), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.of("x"));
+        when(delegate.tryLoad(eq("r1"), eq(String.class), any(Assets.class)))
+                .thenThrow(new ResourceException("Oops!"));
+        when(delegate.tryLoad(eq("r2"), eq(String.class), any(Assets.class)))
+                .thenReturn(Optional.empty());
+        final Preload preload = assets.preload(manifest(4), 2);
+        try {
+            preload.get(5, TimeUnit.SECONDS);
+            fail("Exception expected!");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ResourceException);
+            assertEquals(1, e.getCause().getSuppressed().length);
+            assertEquals("Oops!", e.getCause().getSuppressed()[0].getMessage());
+        }
+        assertEquals(4, preload.completed());
+        verify(delegate, times(1)).tryLoad(eq("r3"), eq(String.class), any(Assets.class));
+    }
+
+    @Test
+    public void shouldStopWhenCancelled() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        when(delegate.tryLoad(anyString(), eq(String.class), any(Assets.class)))
+                .thenAnswer(inv -> {
+                    started.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return Optional.of("x");
+                });
+        final Preload preload = assets.preload(manifest(3), 1);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(preload.cancel(false));
+        release.countDown();
+        try {
+            preload.get(5, TimeUnit.SECONDS);
+            fail("Exception expected!");
+        } catch (CancellationException e) {
+            // expected
+        }
+        // wait for the started load to finish
+        assets.loadAsync("r0", String.class).get(5, TimeUnit.SECONDS);
+        verify(delegate, never()).tryLoad(eq("r1"), eq(String.class), any(Assets.class));
+        verify(delegate, never()).tryLoad(eq("r2"), eq(String.class), any(Assets.class));
+    }
+
+    @Test
+    public void shouldCompleteEmpty() throws Exception {
+        assertTrue(assets.preload(new LinkedHashMap<>(), 4).isDone());
+    }
+}
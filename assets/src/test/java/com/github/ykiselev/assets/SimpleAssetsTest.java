@@ -19,13 +19,17 @@ package com.github.ykiselev.assets;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.nio.channels.ReadableByteChannel;
 import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -35,6 +39,8 @@ public class SimpleAssetsTest {
 
     private final Resources resources = mock(Resources.class);
 
+    private final ReadableByteChannel channel = mock(ReadableByteChannel.class);
+
     private final ReadableAssets readableAssets = mock(ReadableAssets.class);
 
     @SuppressWarnings("unchecked")
@@ -46,7 +52,7 @@ public class SimpleAssetsTest {
     public void setUp() {
         when(resources.open(any(String.class)))
                 .thenReturn(
-                        Optional.of(mock(ReadableByteChannel.class))
+                        Optional.of(channel)
                 );
         when(readableAsset.read(any(ReadableByteChannel.class), any()))
                 .thenReturn(Math.PI);
@@ -60,4 +66,37 @@ public class SimpleAssetsTest {
                 .thenReturn(Math.PI);
         assertEquals(Math.PI, assets.load("x", Double.class), 0.00001);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldReturnEmptyIfReaderReturnsNull() throws IOException {
+        when(readableAssets.resolve(any(String.class), eq(Double.class)))
+                .thenReturn(readableAsset);
+        when(readableAsset.read(any(ReadableByteChannel.class), any()))
+                .thenReturn(null);
+        assertFalse(assets.tryLoad("x", Double.class).isPresent());
+        verify(channel).close();
+    }
+
+    @Test
+    public void shouldCloseChannel() throws IOException {
+        when(readableAssets.resolve(any(String.class), eq(Double.class)))
+                .thenReturn(readableAsset);
+        assets.load("x", Double.class);
+        verify(channel).close();
+    }
+
+    @Test
+    public void shouldCloseChannelOnFailure() throws IOException {
+        when(readableAssets.resolve(any(String.class), eq(Double.class)))
+                .thenReturn(readableAsset);
+        when(readableAsset.read(any(ReadableByteChannel.class), any()))
+                .thenThrow(new ResourceException("Broken!"));
+        try {
+            assets.load("x", Double.class);
+            fail("Exception expected!");
+        } catch (ResourceException e) {
+            // expected
+        }
+        verify(channel).close();
+    }
+}
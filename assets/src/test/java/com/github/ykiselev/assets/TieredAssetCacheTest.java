@@ -0,0 +1,320 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class TieredAssetCacheTest {
+
+    private final Resources resources = mock(Resources.class);
+
+    private static byte[] bytes(int length) {
+        final byte[] result = new byte[length];
+        new Random(length).nextBytes(result);
+        return result;
+    }
+
+    private void register(String resource, byte[] content) {
+        when(resources.open(resource))
+                .thenAnswer(inv -> Optional.of(new ByteBufferChannel(ByteBuffer.wrap(content))));
+    }
+
+    private static byte[] read(ReadableByteChannel channel) throws IOException {
+        try (ReadableByteChannel c = channel) {
+            final ByteBuffer buffer = ByteBuffer.allocate((int) BufferPool.remaining(c));
+            BufferPool.readFully(c, buffer);
+            assertEquals(-1, c.read(ByteBuffer.allocate(1)));
+            return buffer.array();
+        }
+    }
+
+    @Test
+    public void shouldServeContentFromColdTier() throws IOException {
+        final byte[] a = bytes(10_000);
+        register("a", a);
+        final TieredAssetCache cache = new TieredAssetCache(resources, 10, Weigher.unit(), 64 * 1024, 4096,
+                AssetsListener.NO_OP);
+        assertArrayEquals(a, read(cache.resources().open("a").get()));
+        assertArrayEquals(a, read(cache.resources().open("a").get()));
+        verify(resources, times(1)).open("a");
+        assertEquals(1, cache.coldMisses());
+        assertEquals(1, cache.promotions());
+        assertEquals(3 * 4096, cache.coldSize());
+    }
+
+    @Test
+    public void shouldNotDemotePinned() {
+        final TieredAssetCache cache = new TieredAssetCache(resources, 1, Weigher.unit(), 64 * 1024);
+        cache.put("a", "A");
+        try (AssetCache.Pin pin = cache.pin("a")) {
+            assertEquals("A", pin.value());
+            cache.put("b", "B");
+            assertEquals("A", cache.get("a"));
+            assertEquals(0, cache.demotions());
+        }
+        assertNull(cache.pin("missing"));
+    }
+
+    @Test
+    public void shouldNotCacheMissingOrUnsized() throws IOException {
+        when(resources.open("missing")).thenReturn(Optional.empty());
+        when(resources.open("stream")).thenAnswer(inv ->
+                Optional.of(Channels.newChannel(new ByteArrayInputStream(new byte[]{1, 2, 3}))));
+        final TieredAssetCache cache = new TieredAssetCache(resources, 10, Weigher.unit(), 64 * 1024);
+        assertFalse(cache.resources().open("missing").isPresent());
+        cache.resources().open("stream").get().close();
+        cache.resources().open("stream").get().close();
+        verify(resources, times(2)).open("stream");
+        assertEquals(0, cache.coldSize());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedContent() throws IOException {
+        register("a", bytes(4096));
+        register("b", bytes(4096));
+        register("c", bytes(4096));
+        final TieredAssetCache cache = new TieredAssetCache(resources, 10, Weigher.unit(), 2 * 4096, 4096,
+                AssetsListener.NO_OP);
+        read(cache.resources().open("a").get());
+        read(cache.resources().open("b").get());
+        read(cache.resources().open("a").get());
+        read(cache.resources().open("c").get());
+        assertEquals(1, cache.coldEvictions());
+        read(cache.resources().open("a").get());
+        verify(resources, times(1)).open("a");
+        read(cache.resources().open("b").get());
+        verify(resources, times(2)).open("b");
+    }
+
+    @Test
+    public void shouldNotReusePagesBeingRead() throws IOException {
+        final byte[] a = bytes(4096);
+        register("a", a);
+        register("b", bytes(4096));
+        final TieredAssetCache cache = new TieredAssetCache(resources, 10, Weigher.unit(), 4096, 4096,
+                AssetsListener.NO_OP);
+        final ReadableByteChannel channel = cache.resources().open("a").get();
+        // no free pages while "a" is being read, so "b" is served by underlying resources
+        read(cache.resources().open("b").get());
+        assertArrayEquals(a, read(channel));
+        read(cache.resources().open("b").get());
+        read(cache.resources().open("b").get());
+        verify(resources, times(2)).open("b");
+    }
+
+    @Test
+    public void shouldNotEvictContentBeingRead() throws IOException {
+        final byte[] a = bytes(4096);
+        register("a", a);
+        register("b", bytes(4096));
+        register("c", bytes(4096));
+        final TieredAssetCache cache = new TieredAssetCache(resources, 10, Weigher.unit(), 2 * 4096, 4096,
+                AssetsListener.NO_OP);
+        final ReadableByteChannel channel = cache.resources().open("a").get();
+        read(cache.resources().open("b").get());
+        // "a" is least recently used but evicting it would free nothing
+        read(cache.resources().open("c").get());
+        assertEquals(1, cache.coldEvictions());
+        assertArrayEquals(a, read(channel));
+        assertArrayEquals(a, read(cache.resources().open("a").get()));
+        verify(resources, times(1)).open("a");
+    }
+
+    @Test
+    public void shouldNotEvictAnythingIfNotEnoughPagesMayBeFreed() throws IOException {
+        register("a", bytes(4096));
+        register("b", bytes(4096));
+        register("c", bytes(2 * 4096));
+        final TieredAssetCache cache = new TieredAssetCache(resources, 10, Weigher.unit(), 2 * 4096, 4096,
+                AssetsListener.NO_OP);
+        final ReadableByteChannel channel = cache.resources().open("a").get();
+        read(cache.resources().open("b").get());
+        read(cache.resources().open("c").get());
+        assertEquals(0, cache.coldEvictions());
+        read(channel);
+        read(cache.resources().open("b").get());
+        verify(resources, times(1)).open("b");
+    }
+
+    @Test
+    public void shouldFreePagesIfFillFails() {
+        when(resources.open("a")).thenAnswer(inv -> Optional.of(new SizedChannel() {
+            @Override
+            public long remaining() {
+                return 4096;
+            }
+
+            @Override
+            public int read(ByteBuffer dst) {
+                throw new IllegalStateException("Broken channel");
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        }));
+        final TieredAssetCache cache = new TieredAssetCache(resources, 10, Weigher.unit(), 4096, 4096,
+                AssetsListener.NO_OP);
+        try {
+            cache.resources().open("a");
+            fail("Failure of channel should be propagated");
+        } catch (IllegalStateException e) {
+            assertEquals("Broken channel", e.getMessage());
+        }
+        assertEquals(0, cache.coldSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectTooManyPages() {
+        new TieredAssetCache(resources, 10, Weigher.unit(), 4L * Integer.MAX_VALUE, 1, AssetsListener.NO_OP);
+    }
+
+    @Test
+    public void shouldCountDemotions() throws IOException {
+        register("a", bytes(100));
+        register("b", bytes(100));
+        final TieredAssetCache cache = new TieredAssetCache(resources, 1, Weigher.unit(), 64 * 1024);
+        read(cache.resources().open("a").get());
+        cache.put("a", "A");
+        cache.put("b", "B");
+        assertEquals(1, cache.demotions());
+        assertEquals(null, cache.get("a"));
+        assertEquals("B", cache.get("b"));
+        assertEquals(1, cache.hotHits());
+        assertEquals(1, cache.hotMisses());
+    }
+
+    @Test
+    public void shouldRemoveFromBothTiers() throws IOException {
+        register("a", bytes(100));
+        final TieredAssetCache cache = new TieredAssetCache(resources, 10, Weigher.unit(), 64 * 1024);
+        read(cache.resources().open("a").get());
+        cache.put("a", "A");
+        assertTrue(cache.remove("a"));
+        assertEquals(null, cache.get("a"));
+        read(cache.resources().open("a").get());
+        verify(resources, times(2)).open("a");
+        cache.close();
+        assertEquals(0, cache.coldSize());
+    }
+
+    @Test
+    public void shouldDecodeEvictedAssetWithoutOpeningResource() {
+        register("a.txt", "a".getBytes(StandardCharsets.UTF_8));
+        register("b.txt", "b".getBytes(StandardCharsets.UTF_8));
+        final TieredAssetCache cache = new TieredAssetCache(resources, 1, Weigher.unit(), 64 * 1024, 4096,
+                AssetsListener.NO_OP);
+        final ReadableAsset<String> text = (channel, assets) -> {
+            try (BufferPool.Buffer buffer = BufferPool.shared().readFully(channel)) {
+                return StandardCharsets.UTF_8.decode(buffer.buffer()).toString();
+            }
+        };
+        final ManagedAssets assets = new ManagedAssets(
+                new SimpleAssets(cache.resources(), new IndexedReadableAssets().register("txt", text)),
+                cache
+        );
+        assertEquals("a", assets.load("a.txt", String.class));
+        assertEquals("b", assets.load("b.txt", String.class));
+        assertEquals("a", assets.load("a.txt", String.class));
+        verify(resources, times(1)).open("a.txt");
+        assertEquals(1, cache.promotions());
+        assertTrue(cache.demotions() >= 1);
+    }
+
+    @Test
+    public void shouldFreePagesOfChannelReadToEnd() throws IOException {
+        register("a", bytes(5000));
+        final TieredAssetCache cache = new TieredAssetCache(resources, 10, Weigher.unit(), 8192, 4096,
+                AssetsListener.NO_OP);
+        final ReadableByteChannel channel = cache.resources().open("a").get();
+        BufferPool.readFully(channel, ByteBuffer.allocate(5000));
+        assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+        cache.remove("a");
+        assertEquals(0, cache.coldSize());
+    }
+
+    @Test
+    public void shouldKeepColdTierWorkingWithNonClosingReader() {
+        for (int i = 0; i < 20; i++) {
+            register(i + ".bin", bytes(4096));
+        }
+        final TieredAssetCache cache = new TieredAssetCache(resources, 1, Weigher.unit(), 4 * 4096, 4096,
+                AssetsListener.NO_OP);
+        final ReadableAsset<byte[]> leaky = (channel, assets) -> {
+            final ByteBuffer buffer = ByteBuffer.allocate(4096);
+            try {
+                BufferPool.readFully(channel, buffer);
+                // reads till the end of stream and never closes channel
+                assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+            } catch (IOException e) {
+                throw new ResourceException(e);
+            }
+            return buffer.array();
+        };
+        final ManagedAssets assets = new ManagedAssets(
+                new SimpleAssets(cache.resources(), new IndexedReadableAssets().register("bin", leaky)),
+                cache
+        );
+        for (int i = 0; i < 20; i++) {
+            assets.load(i + ".bin", byte[].class);
+        }
+        assertEquals(16, cache.coldEvictions());
+        assertEquals(4 * 4096, cache.coldSize());
+        for (int i = 16; i < 19; i++) {
+            assets.load(i + ".bin", byte[].class);
+        }
+        assertEquals(3, cache.promotions());
+        assertEquals(20, cache.coldMisses());
+    }
+
+    @Test
+    public void shouldNotOpenUnderlyingResourcesForAttributes() {
+        when(resources.attributes(anyString())).thenReturn(Optional.empty());
+        final TieredAssetCache cache = new TieredAssetCache(resources, 1, Weigher.unit(), 64 * 1024);
+        assertFalse(cache.resources().attributes("a").isPresent());
+        verify(resources, times(0)).open(anyString());
+    }
+}
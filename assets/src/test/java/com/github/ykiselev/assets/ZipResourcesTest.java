@@ -0,0 +1,222 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+public class ZipResourcesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private byte[] text;
+
+    private byte[] image;
+
+    private ZipResources resources;
+
+    @Before
+    public void setUp() throws IOException {
+        final Path root = folder.newFolder("root").toPath();
+        Files.createDirectories(root.resolve("sub"));
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            sb.append("line ").append(i).append('\n');
+        }
+        text = sb.toString().getBytes(StandardCharsets.UTF_8);
+        image = new byte[50_000];
+        new Random(1).nextBytes(image);
+        Files.write(root.resolve("sub/a.txt"), text);
+        Files.write(root.resolve("b.png"), image);
+        Files.write(root.resolve("empty.txt"), new byte[0]);
+        final Path archive = folder.getRoot().toPath().resolve("assets.zip");
+        ZipResources.pack(root, archive, name -> name.endsWith(".png"));
+        resources = new ZipResources(archive);
+    }
+
+    private static byte[] read(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        try (ReadableByteChannel c = channel) {
+            final ByteArrayOutputStream os = new ByteArrayOutputStream();
+            while (c.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    os.write(buffer.get());
+                }
+                buffer.clear();
+            }
+            return os.toByteArray();
+        }
+    }
+
+    @Test
+    public void shouldInflate() throws IOException {
+        assertArrayEquals(text, read(resources.open("sub/a.txt").get(), ByteBuffer.allocate(1000)));
+        assertArrayEquals(text, read(resources.open("/sub/a.txt").get(), ByteBuffer.allocateDirect(777)));
+        assertArrayEquals(new byte[0], read(resources.open("empty.txt").get(), ByteBuffer.allocate(10)));
+        assertEquals(text.length, resources.size("sub/a.txt"));
+    }
+
+    @Test
+    public void shouldReadIntoPooledBuffer() throws IOException {
+        try (ReadableByteChannel channel = resources.open("sub/a.txt").get();
+             BufferPool.Buffer buffer = BufferPool.shared().readFully(channel)) {
+            assertEquals(text.length, buffer.buffer().remaining());
+            final byte[] bytes = new byte[text.length];
+            buffer.buffer().get(bytes);
+            assertArrayEquals(text, bytes);
+        }
+    }
+
+    @Test
+    public void shouldReadAttributes() {
+        final CRC32 crc = new CRC32();
+        crc.update(text);
+        final ResourceAttributes attributes = resources.attributes("/sub/a.txt").get();
+        assertEquals(text.length, attributes.size());
+        assertEquals(String.format("crc32:%08x", crc.getValue()), attributes.hash());
+        assertTrue(attributes.lastModified() > 0);
+        assertTrue(Math.abs(attributes.lastModified() - System.currentTimeMillis()) < TimeUnit.HOURS.toMillis(1));
+        assertFalse(resources.attributes("c.png").isPresent());
+    }
+
+    @Test
+    public void shouldMapStored() throws IOException {
+        try (ReadableByteChannel channel = resources.open("b.png").get()) {
+            assertTrue(channel instanceof MappableChannel);
+            final ByteBuffer buffer = ((MappableChannel) channel).map();
+            final byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            assertArrayEquals(image, bytes);
+        }
+    }
+
+    @Test
+    public void shouldList() {
+        assertEquals(new HashSet<>(Arrays.asList("sub/a.txt", "b.png", "empty.txt")), resources.names());
+        assertTrue(resources.exists("/b.png"));
+        assertFalse(resources.exists("c.png"));
+        assertFalse(resources.open("c.png").isPresent());
+    }
+
+    @Test
+    public void shouldReadArchiveWithFolders() throws IOException {
+        final Path archive = folder.getRoot().toPath().resolve("other.zip");
+        try (OutputStream os = Files.newOutputStream(archive);
+             ZipOutputStream zip = new ZipOutputStream(os)) {
+            zip.setComment("comment");
+            zip.putNextEntry(new ZipEntry("dir/"));
+            zip.closeEntry();
+            final ZipEntry entry = new ZipEntry("dir/x.txt");
+            entry.setExtra(new byte[]{(byte) 0xca, (byte) 0xfe, 0, 0});
+            zip.putNextEntry(entry);
+            zip.write("x".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        final ZipResources zip = new ZipResources(archive);
+        assertEquals(new HashSet<>(Arrays.asList("dir/x.txt")), zip.names());
+        assertArrayEquals("x".getBytes(StandardCharsets.UTF_8), read(zip.open("dir/x.txt").get(), ByteBuffer.allocate(10)));
+    }
+
+    @Test
+    public void shouldInflateInParallel() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<byte[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(executor.submit(() -> read(resources.open("sub/a.txt").get(), ByteBuffer.allocate(4096))));
+            }
+            for (Future<byte[]> future : futures) {
+                assertArrayEquals(text, future.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailOnCrcMismatch() throws IOException {
+        final ZipResources zip = new ZipResources(corrupted(16));
+        read(zip.open("x.txt").get(), ByteBuffer.allocate(100));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailOnSizeMismatch() throws IOException {
+        final ZipResources zip = new ZipResources(corrupted(24));
+        read(zip.open("x.txt").get(), ByteBuffer.allocateDirect(100));
+    }
+
+    /**
+     * Creates archive with single deflated entry and flips one byte of its central directory record.
+     */
+    private Path corrupted(int field) throws IOException {
+        final Path archive = folder.getRoot().toPath().resolve("corrupted.zip");
+        try (OutputStream os = Files.newOutputStream(archive);
+             ZipOutputStream zip = new ZipOutputStream(os)) {
+            zip.putNextEntry(new ZipEntry("x.txt"));
+            zip.write(text, 0, 1000);
+            zip.closeEntry();
+        }
+        final byte[] bytes = Files.readAllBytes(archive);
+        for (int i = bytes.length - 4; i >= 0; i--) {
+            if (bytes[i] == 'P' && bytes[i + 1] == 'K' && bytes[i + 2] == 1 && bytes[i + 3] == 2) {
+                bytes[i + field] ^= 1;
+                Files.write(archive, bytes);
+                return archive;
+            }
+        }
+        throw new AssertionError("No central directory");
+    }
+
+    @Test(expected = ResourceException.class)
+    public void shouldFailIfNotZip() throws IOException {
+        final Path file = folder.newFile("bad.zip").toPath();
+        Files.write(file, new byte[100]);
+        new ZipResources(file);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets.benchmarks;
+
+import com.github.ykiselev.assets.FileSystemResources;
+import com.github.ykiselev.assets.PackedResources;
+import com.github.ykiselev.assets.Resources;
+import com.github.ykiselev.assets.ZipResources;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Loading of many small resources: loose files versus {@link PackedResources} and {@link ZipResources} (with entries
+ * stored or deflated). Each operation opens and reads all
+ * {@code count} resources.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArchiveBenchmark {
+
+    @Param({"1000"})
+    public int count;
+
+    @Param({"512"})
+    public int size;
+
+    private Path folder;
+
+    private String[] names;
+
+    private Resources files;
+
+    private Resources packed;
+
+    private Resources zipStored;
+
+    private Resources zipDeflated;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+
+    @Setup
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("assets-archive");
+        final Path root = Files.createDirectories(folder.resolve("root"));
+        final Random random = new Random(1);
+        names = new String[count];
+        for (int i = 0; i < count; i++) {
+            final byte[] content = new byte[size];
+            random.nextBytes(content);
+            names[i] = "dir" + (i % 10) + "/asset" + i + ".bin";
+            final Path file = root.resolve(names[i]);
+            Files.createDirectories(file.getParent());
+            Files.write(file, content);
+        }
+        final Path archive = folder.resolve("assets.pak");
+        PackedResources.pack(root, archive);
+        files = new FileSystemResources(root);
+        packed = new PackedResources(archive);
+        final Path stored = folder.resolve("stored.zip");
+        ZipResources.pack(root, stored, name -> true);
+        zipStored = new ZipResources(stored);
+        final Path deflated = folder.resolve("deflated.zip");
+        ZipResources.pack(root, deflated);
+        zipDeflated = new ZipResources(deflated);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            paths.sorted(Comparator.reverseOrder())
+                    .forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long looseFiles() throws IOException {
+        return readAll(files);
+    }
+
+    @Benchmark
+    public long packedArchive() throws IOException {
+        return readAll(packed);
+    }
+
+    @Benchmark
+    public long zipStored() throws IOException {
+        return readAll(zipStored);
+    }
+
+    @Benchmark
+    public long zipDeflated() throws IOException {
+        return readAll(zipDeflated);
+    }
+
+    private long readAll(Resources resources) throws IOException {
+        long total = 0;
+        for (String name : names) {
+            try (ReadableByteChannel channel = resources.open(name).get()) {
+                buffer.clear();
+                while (channel.read(buffer) > 0) {
+                    total += buffer.position();
+                }
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets.benchmarks;
+
+import com.github.ykiselev.assets.ConcurrentAssetCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent lookups and replacements in {@link ConcurrentAssetCache} versus {@link ConcurrentHashMap} of
+ * {@link Optional} values (the cache {@code ManagedAssets} used before). Keys are fresh (not interned) strings, as
+ * resource names usually are. Run with {@code -prof gc} to compare allocation per replacement.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class CacheBenchmark {
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private String[] keys;
+
+    private ConcurrentAssetCache cache;
+
+    private ConcurrentMap<String, Optional<?>> map;
+
+    @Setup
+    public void setUp() {
+        keys = new String[size];
+        cache = new ConcurrentAssetCache();
+        map = new ConcurrentHashMap<>();
+        for (int i = 0; i < size; i++) {
+            final String value = "asset" + i;
+            cache.put("textures/" + i + ".png", value);
+            map.put("textures/" + i + ".png", Optional.of(value));
+            // copy so neither implementation can match keys by reference
+            keys[i] = new String("textures/" + i + ".png");
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int index;
+
+        int next(int size) {
+            index = index + 1 < size ? index + 1 : 0;
+            return index;
+        }
+    }
+
+    @Benchmark
+    public Object cacheGet(Cursor cursor) {
+        return cache.get(keys[cursor.next(size)]);
+    }
+
+    @Benchmark
+    public Object mapGet(Cursor cursor) {
+        return map.get(keys[cursor.next(size)]);
+    }
+
+    @Benchmark
+    public void cachePut(Cursor cursor) {
+        final String key = keys[cursor.next(size)];
+        cache.put(key, key);
+    }
+
+    @Benchmark
+    public void mapPut(Cursor cursor) {
+        final String key = keys[cursor.next(size)];
+        map.put(key, Optional.of(key));
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets.benchmarks;
+
+import com.github.ykiselev.assets.AssetCache;
+import com.github.ykiselev.assets.Assets;
+import com.github.ykiselev.assets.BoundedAssetCache;
+import com.github.ykiselev.assets.ByteBufferChannel;
+import com.github.ykiselev.assets.IndexedReadableAssets;
+import com.github.ykiselev.assets.ManagedAssets;
+import com.github.ykiselev.assets.ReadableAsset;
+import com.github.ykiselev.assets.ResourceException;
+import com.github.ykiselev.assets.Resources;
+import com.github.ykiselev.assets.SimpleAssets;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent loads through small cache (so misses are frequent) with expensive decoding. Compares single-flight
+ * {@link ManagedAssets} with naive "get, load, put" caching which decodes the same asset in several threads at once.
+ * Auxiliary counter {@code decodes} shows how many times assets were actually decoded. Use {@code -t 1} to compare
+ * with single-threaded case.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ContentionBenchmark {
+
+    @Param({"16", "256"})
+    public int keys;
+
+    @Param({"1000"})
+    public int decodeTokens;
+
+    /**
+     * Decoding happens in the thread which requested asset so decodes are counted per thread.
+     */
+    private static final ThreadLocal<long[]> DECODES = ThreadLocal.withInitial(() -> new long[1]);
+
+    private String[] names;
+
+    private Assets singleFlight;
+
+    private Assets naive;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final ByteBuffer payload = ByteBuffer.allocate(16);
+        final Resources resources = resource -> Optional.of(new ByteBufferChannel(payload));
+        final ReadableAsset<Object> reader = (channel, assets) -> {
+            DECODES.get()[0]++;
+            Blackhole.consumeCPU(decodeTokens);
+            return new Object();
+        };
+        final Assets simple = new SimpleAssets(resources, new IndexedReadableAssets().register(Object.class, reader));
+        names = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            names[i] = "asset-" + i;
+        }
+        singleFlight = new ManagedAssets(simple, new BoundedAssetCache(keys / 4));
+        naive = new NaiveAssets(simple, new BoundedAssetCache(keys / 4));
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+
+        private long start;
+
+        public long decodes;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            start = DECODES.get()[0];
+            decodes = 0;
+        }
+
+        void update() {
+            decodes = DECODES.get()[0] - start;
+        }
+    }
+
+    @Benchmark
+    public Object singleFlight(Counters counters) {
+        final Object result = singleFlight.load(name(), Object.class);
+        counters.update();
+        return result;
+    }
+
+    @Benchmark
+    public Object naive(Counters counters) {
+        final Object result = naive.load(name(), Object.class);
+        counters.update();
+        return result;
+    }
+
+    private String name() {
+        // skewed distribution: lower indices are requested more often
+        final int r = ThreadLocalRandom.current().nextInt(keys);
+        return names[ThreadLocalRandom.current().nextInt(r + 1)];
+    }
+
+    /**
+     * Caching without in-flight coordination (the way ManagedAssets worked before single-flight loading).
+     */
+    private static final class NaiveAssets implements Assets {
+
+        private final Assets delegate;
+
+        private final AssetCache cache;
+
+        NaiveAssets(Assets delegate, AssetCache cache) {
+            this.delegate = delegate;
+            this.cache = cache;
+        }
+
+        @Override
+        public <T> Optional<T> tryLoad(String resource, Class<T> clazz, Assets assets) throws ResourceException {
+            final Object value = cache.get(resource);
+            if (value != null) {
+                return Optional.of(clazz.cast(value));
+            }
+            final Optional<T> result = delegate.tryLoad(resource, clazz, assets);
+            result.ifPresent(v -> cache.put(resource, v));
+            return result;
+        }
+
+        @Override
+        public <T> ReadableAsset<T> resolve(String resource, Class<T> clazz) throws ResourceException {
+            return delegate.resolve(resource, clazz);
+        }
+    }
+}
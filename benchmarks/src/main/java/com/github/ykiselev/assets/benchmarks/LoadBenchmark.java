@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets.benchmarks;
+
+import com.github.ykiselev.assets.Assets;
+import com.github.ykiselev.assets.BoundedAssetCache;
+import com.github.ykiselev.assets.ByteBufferChannel;
+import com.github.ykiselev.assets.IndexedReadableAssets;
+import com.github.ykiselev.assets.ManagedAssets;
+import com.github.ykiselev.assets.ReadableAsset;
+import com.github.ykiselev.assets.Resources;
+import com.github.ykiselev.assets.SimpleAssets;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of single load: uncached {@link SimpleAssets}, {@link ManagedAssets} cache hit and cache miss.
+ * Run with {@code -prof gc} to see allocation rate per operation.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadBenchmark {
+
+    private Assets simple;
+
+    private ManagedAssets hits;
+
+    private ManagedAssets misses;
+
+    @Setup
+    public void setUp() {
+        final ByteBuffer payload = ByteBuffer.allocate(16);
+        final Resources resources = resource -> Optional.of(new ByteBufferChannel(payload));
+        final ReadableAsset<String> reader = (channel, assets) -> "asset";
+        simple = new SimpleAssets(resources, new IndexedReadableAssets().register(String.class, reader));
+        hits = new ManagedAssets(simple);
+        hits.load("a", String.class);
+        // zero-sized cache never stores anything so each call is a miss
+        misses = new ManagedAssets(simple, new BoundedAssetCache(0));
+    }
+
+    @Benchmark
+    public Object simpleLoad() {
+        return simple.load("a", String.class);
+    }
+
+    @Benchmark
+    public Object managedHitLoad() {
+        return hits.load("a", String.class);
+    }
+
+    @Benchmark
+    public Object managedHitTryLoad() {
+        return hits.tryLoad("a", String.class);
+    }
+
+    @Benchmark
+    public Object managedMissLoad() {
+        return misses.load("a", String.class);
+    }
+}
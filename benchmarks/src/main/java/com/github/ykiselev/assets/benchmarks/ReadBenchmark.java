@@ -0,0 +1,138 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets.benchmarks;
+
+import com.github.ykiselev.assets.FileSystemResources;
+import com.github.ykiselev.assets.MappableChannel;
+import com.github.ykiselev.assets.PackedResources;
+import com.github.ykiselev.assets.Resources;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of reading whole resource of given size: loose file read through channel, loose file mapped and the same
+ * resource read from {@link PackedResources}.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadBenchmark {
+
+    @Param({"1024", "65536", "1048576", "16777216"})
+    public int size;
+
+    private Path folder;
+
+    private Resources files;
+
+    private Resources packed;
+
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("assets-read");
+        final Path root = Files.createDirectories(folder.resolve("root"));
+        final byte[] content = new byte[size];
+        new Random(1).nextBytes(content);
+        Files.write(root.resolve("asset.bin"), content);
+        final Path archive = folder.resolve("assets.pak");
+        PackedResources.pack(root, archive);
+        files = new FileSystemResources(root);
+        packed = new PackedResources(archive);
+        buffer = ByteBuffer.allocateDirect(64 * 1024);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            paths.sorted(Comparator.reverseOrder())
+                    .forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public long fileRead() throws IOException {
+        return read(files);
+    }
+
+    @Benchmark
+    public long fileMap() throws IOException {
+        return map(files);
+    }
+
+    @Benchmark
+    public long packedRead() throws IOException {
+        return read(packed);
+    }
+
+    @Benchmark
+    public long packedMap() throws IOException {
+        return map(packed);
+    }
+
+    private long read(Resources resources) throws IOException {
+        long total = 0;
+        try (ReadableByteChannel channel = resources.open("asset.bin").get()) {
+            for (; ; ) {
+                buffer.clear();
+                final int read = channel.read(buffer);
+                if (read < 0) {
+                    break;
+                }
+                total += buffer.get(0) + read;
+            }
+        }
+        return total;
+    }
+
+    private static long map(Resources resources) throws IOException {
+        try (ReadableByteChannel channel = resources.open("asset.bin").get()) {
+            final ByteBuffer mapped = ((MappableChannel) channel).map();
+            long total = 0;
+            for (int i = 0; i < mapped.limit(); i += 4096) {
+                total += mapped.get(i);
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.ykiselev.assets.benchmarks;
+
+import com.github.ykiselev.assets.CompositeReadableAssets;
+import com.github.ykiselev.assets.IndexedReadableAssets;
+import com.github.ykiselev.assets.ReadableAsset;
+import com.github.ykiselev.assets.ReadableAssets;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolution of {@link ReadableAsset} by extension when matching reader is the last of {@code depth} readers: linear
+ * scan over delegates, {@link CompositeReadableAssets} (remembers resolving delegate) and {@link IndexedReadableAssets}.
+ *
+ * @author Yuriy Kiselev (uze@yandex.ru).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolveBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int depth;
+
+    private ReadableAssets[] delegates;
+
+    private ReadableAssets composite;
+
+    private ReadableAssets indexed;
+
+    private String resource;
+
+    @Setup
+    public void setUp() {
+        delegates = new ReadableAssets[depth];
+        final IndexedReadableAssets registry = new IndexedReadableAssets();
+        for (int i = 0; i < depth; i++) {
+            final String extension = "e" + i;
+            final ReadableAsset<Object> reader = (channel, assets) -> extension;
+            delegates[i] = new ReadableAssets() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <T> ReadableAsset<T> resolve(String resource, Class<T> clazz) {
+                    return resource.endsWith(extension) ? (ReadableAsset<T>) reader : null;
+                }
+            };
+            registry.register(extension, reader);
+        }
+        composite = new CompositeReadableAssets(delegates);
+        indexed = registry;
+        resource = "/some/folder/asset.e" + (depth - 1);
+    }
+
+    @Benchmark
+    public Object scan() {
+        for (ReadableAssets delegate : delegates) {
+            final ReadableAsset<Object> result = delegate.resolve(resource, null);
+            if (result != null) {
+                return result;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    @Benchmark
+    public Object composite() {
+        return composite.resolve(resource, null);
+    }
+
+    @Benchmark
+    public Object indexed() {
+        return indexed.resolve(resource, null);
+    }
+}
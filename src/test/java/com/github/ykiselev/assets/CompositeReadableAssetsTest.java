@@ -1,49 +0,0 @@
-/*
- * Copyright 2017 Yuriy Kiselev (uze@yandex.ru)
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-
-package com.github.ykiselev.assets;
-
-import org.junit.Test;
-
-import static org.junit.Assert.assertEquals;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
-
-/**
- * @author Yuriy Kiselev (uze@yandex.ru).
- */
-public class CompositeReadableAssetsTest {
-
-    @Test
-    public void shouldResolve() {
-        final ReadableAsset<String> rr = (stream, assets) -> null;
-        final ReadableAssets delegate1 = mock(ReadableAssets.class);
-        final ReadableAssets delegate2 = mock(ReadableAssets.class);
-        when(delegate1.resolve(eq("a"), eq(String.class)))
-                .thenReturn(null);
-        when(delegate2.resolve(eq("a"), eq(String.class)))
-                .thenReturn(rr);
-        final ReadableAssets readableAssets = new CompositeReadableAssets(
-                delegate1,
-                delegate2
-        );
-        assertEquals(
-                rr,
-                readableAssets.resolve("a", String.class)
-        );
-    }
-}
\ No newline at end of file